@@ -22,6 +22,7 @@ import org.h2.result.ResultInterface;
 import org.h2.result.ResultWithGeneratedKeys;
 import org.h2.result.ResultWithPaddedStrings;
 import org.h2.util.MathUtils;
+import org.h2.value.Value;
 
 /**
  * Represents a SQL statement. This object is only used on the server side.
@@ -297,6 +298,12 @@ public abstract class Command implements CommandInterface {
         }
     }
 
+    @Override
+    public int[] executeBatchUpdate(ArrayList<Value[]> batchParameters, DbException[] exceptions) {
+        // in embedded mode there is no round trip to save
+        return null;
+    }
+
     private long filterConcurrentUpdate(DbException e, long start) {
         int errorCode = e.getErrorCode();
         if (errorCode != ErrorCode.CONCURRENT_UPDATE_1 &&
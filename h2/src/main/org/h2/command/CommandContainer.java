@@ -82,6 +82,8 @@ public class CommandContainer extends Command {
     private Prepared prepared;
     private boolean readOnlyKnown;
     private boolean readOnly;
+    private SharedPlanCache sharedPlanCache;
+    private SharedPlanCache.Key sharedPlanKey;
 
     /**
      * Clears CTE views for a specified statement.
@@ -118,6 +120,22 @@ public class CommandContainer extends Command {
         this.prepared = prepared;
     }
 
+    /**
+     * Return the prepared statement to the shared plan cache when this
+     * command is closed.
+     *
+     * @param cache the shared plan cache
+     * @param key the cache key
+     */
+    void setSharedPlanCache(SharedPlanCache cache, SharedPlanCache.Key key) {
+        this.sharedPlanCache = cache;
+        this.sharedPlanKey = key;
+    }
+
+    Prepared getPrepared() {
+        return prepared;
+    }
+
     @Override
     public ArrayList<? extends ParameterInterface> getParameters() {
         return prepared.getParameters();
@@ -301,6 +319,19 @@ public class CommandContainer extends Command {
         return super.canReuse() && prepared.getCteCleanups() == null;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        SharedPlanCache cache = sharedPlanCache;
+        if (cache != null) {
+            sharedPlanCache = null;
+            for (Parameter param : prepared.getParameters()) {
+                param.setValue(null, true);
+            }
+            cache.release(sharedPlanKey, prepared);
+        }
+    }
+
     @Override
     public boolean isReadOnly() {
         if (!readOnlyKnown) {
@@ -7,8 +7,10 @@ package org.h2.command;
 
 import java.util.ArrayList;
 import org.h2.expression.ParameterInterface;
+import org.h2.message.DbException;
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultWithGeneratedKeys;
+import org.h2.value.Value;
 
 /**
  * Represents a SQL statement.
@@ -533,6 +535,20 @@ public interface CommandInterface extends AutoCloseable {
      */
     ResultWithGeneratedKeys executeUpdate(Object generatedKeysRequest);
 
+    /**
+     * Execute the statement once for each set of parameter values, sending
+     * all of them to the server at once. Generated keys are not returned.
+     *
+     * @param batchParameters the parameter values of each execution
+     * @param exceptions the array to store the exception of each failed
+     *            execution into
+     * @return the update counts ({@link java.sql.Statement#EXECUTE_FAILED}
+     *         for failed executions), or null if batch execution is not
+     *         supported and the statement needs to be executed once per
+     *         parameter set
+     */
+    int[] executeBatchUpdate(ArrayList<Value[]> batchParameters, DbException[] exceptions);
+
     /**
      * Stop the command execution, release all locks and resources
      */
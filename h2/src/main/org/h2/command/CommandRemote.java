@@ -6,6 +6,7 @@
 package org.h2.command;
 
 import java.io.IOException;
+import java.sql.Statement;
 import java.util.ArrayList;
 
 import org.h2.engine.Constants;
@@ -259,6 +260,49 @@ public class CommandRemote implements CommandInterface {
         }
     }
 
+    @Override
+    public int[] executeBatchUpdate(ArrayList<Value[]> batchParameters, DbException[] exceptions) {
+        if (session.getClientVersion() < Constants.TCP_PROTOCOL_VERSION_20) {
+            return null;
+        }
+        synchronized (session) {
+            int size = batchParameters.size();
+            int[] updateCounts = new int[size];
+            boolean autoCommit = false;
+            for (int i = 0, count = 0; i < transferList.size(); i++) {
+                prepareIfRequired();
+                Transfer transfer = transferList.get(i);
+                try {
+                    session.traceOperation("COMMAND_EXECUTE_BATCH_UPDATE", id);
+                    transfer.writeInt(SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE).writeInt(id).writeInt(size);
+                    for (Value[] values : batchParameters) {
+                        transfer.writeInt(values.length);
+                        for (Value v : values) {
+                            transfer.writeValue(v);
+                        }
+                    }
+                    session.done(transfer);
+                    for (int j = 0; j < size; j++) {
+                        if (transfer.readBoolean()) {
+                            updateCounts[j] = transfer.readInt();
+                            exceptions[j] = null;
+                        } else {
+                            updateCounts[j] = Statement.EXECUTE_FAILED;
+                            exceptions[j] = DbException.convert(SessionRemote.readException(transfer));
+                        }
+                    }
+                    autoCommit = transfer.readBoolean();
+                } catch (IOException e) {
+                    session.removeServer(e, i--, ++count);
+                }
+            }
+            session.setAutoCommitFromServer(autoCommit);
+            session.autoCommitIfCluster();
+            session.readSessionState();
+            return updateCounts;
+        }
+    }
+
     private void checkParameters() {
         if (cmdType != EXPLAIN) {
             for (ParameterInterface p : parameters) {
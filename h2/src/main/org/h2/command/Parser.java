@@ -3124,7 +3124,6 @@ public class Parser {
                 if (readIf("ESCAPE")) {
                     esc = readConcat();
                 }
-                recompileAlways = true;
                 r = new CompareLike(database, r, b, esc, false);
             } else if (readIf("ILIKE")) {
                 Function function = Function.getFunctionWithArgs(database, Function.CAST, r);
@@ -3135,11 +3134,9 @@ public class Parser {
                 if (readIf("ESCAPE")) {
                     esc = readConcat();
                 }
-                recompileAlways = true;
                 r = new CompareLike(database, r, b, esc, false);
             } else if (readIf("REGEXP")) {
                 Expression b = readConcat();
-                recompileAlways = true;
                 r = new CompareLike(database, r, b, null, true);
             } else if (readIf(IS)) {
                 boolean isNot = readIf(NOT);
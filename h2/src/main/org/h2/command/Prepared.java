@@ -456,6 +456,17 @@ public abstract class Prepared {
         return false;
     }
 
+    /**
+     * Check if this statement may be used by other sessions once it is closed.
+     * The statement must not keep any state bound to the session between
+     * executions, and must not depend on session-local objects.
+     *
+     * @return true if it can be added to the shared plan cache
+     */
+    public boolean isShareable() {
+        return false;
+    }
+
     /**
      * @return the temporary views created for CTE's.
      */
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.h2.engine.Database;
+import org.h2.engine.DbObject;
+import org.h2.engine.Session;
+import org.h2.engine.User;
+import org.h2.table.Table;
+import org.h2.table.TableType;
+import org.h2.util.SmallLRUCache;
+
+/**
+ * A cache of prepared statements that is shared by all sessions of a
+ * database.
+ * <p>
+ * A prepared statement keeps per-execution state (parameter values, the
+ * session, the last result), so it can only be used by one session at a time.
+ * Because of that, the cache does not hand out the same object to multiple
+ * sessions. Instead, it keeps a small pool of idle prepared statements per SQL
+ * statement: a statement is checked out when a session prepares the SQL, and
+ * returned to the pool when the command is closed.
+ * </p>
+ * <p>
+ * The whole cache is cleared when the meta data of the database is modified.
+ * </p>
+ */
+public final class SharedPlanCache {
+
+    /**
+     * The maximum number of idle prepared statements kept per SQL statement.
+     */
+    private static final int MAX_IDLE_PER_STATEMENT = 16;
+
+    private final Database database;
+    private final SmallLRUCache<Key, ArrayDeque<Prepared>> cache;
+    private long modificationMetaId;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SharedPlanCache(Database database, int size) {
+        this.database = database;
+        cache = SmallLRUCache.newInstance(size);
+        modificationMetaId = database.getModificationMetaId();
+    }
+
+    /**
+     * Get a command for the given SQL statement, using an idle prepared
+     * statement from the cache.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     * @return the command, or null if there is no idle prepared statement
+     */
+    public Command get(Session session, String sql) {
+        Key key = new Key(session, sql);
+        Prepared prepared;
+        synchronized (this) {
+            checkModificationMetaId();
+            ArrayDeque<Prepared> idle = cache.get(key);
+            prepared = idle != null ? idle.poll() : null;
+        }
+        if (prepared == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        prepared.setSession(session);
+        CommandContainer command = new CommandContainer(session, sql, prepared);
+        command.setSharedPlanCache(this, key);
+        return command;
+    }
+
+    /**
+     * Register a newly prepared command. If the statement can be shared, its
+     * prepared statement is returned to this cache when the command is
+     * closed.
+     *
+     * @param session the session
+     * @param sql the SQL statement
+     * @param command the command
+     * @return true if the command was registered
+     */
+    public boolean register(Session session, String sql, Command command) {
+        if (!(command instanceof CommandContainer)) {
+            return false;
+        }
+        CommandContainer container = (CommandContainer) command;
+        if (!isShareable(container.getPrepared())) {
+            return false;
+        }
+        container.setSharedPlanCache(this, new Key(session, sql));
+        return true;
+    }
+
+    /**
+     * Return an idle prepared statement to the cache.
+     *
+     * @param key the key
+     * @param prepared the prepared statement
+     */
+    synchronized void release(Key key, Prepared prepared) {
+        checkModificationMetaId();
+        if (prepared.needRecompile()) {
+            return;
+        }
+        ArrayDeque<Prepared> idle = cache.get(key);
+        if (idle == null) {
+            idle = new ArrayDeque<>();
+            cache.put(key, idle);
+        }
+        if (idle.size() < MAX_IDLE_PER_STATEMENT) {
+            idle.add(prepared);
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Get the number of times a command was served from this cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of times a command had to be parsed because there was no
+     * idle prepared statement.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of SQL statements in the cache.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    private void checkModificationMetaId() {
+        long id = database.getModificationMetaId();
+        if (id != modificationMetaId) {
+            cache.clear();
+            modificationMetaId = id;
+        }
+    }
+
+    /**
+     * Check whether the prepared statement only depends on regular tables, so
+     * that it can be used by other sessions.
+     *
+     * @param prepared the prepared statement
+     * @return true if it can be shared
+     */
+    private static boolean isShareable(Prepared prepared) {
+        if (!prepared.isShareable() || prepared.prepareAlways || prepared.getCteCleanups() != null) {
+            return false;
+        }
+        HashSet<DbObject> dependencies = new HashSet<>();
+        prepared.collectDependencies(dependencies);
+        for (DbObject object : dependencies) {
+            if (object instanceof Table && !isRegularTable((Table) object)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the table is a persistent or in-memory table that is visible to
+     * all sessions (not a view, a meta table, or a temporary table).
+     *
+     * @param table the table
+     * @return true if it is a regular table
+     */
+    public static boolean isRegularTable(Table table) {
+        return table.getTableType() == TableType.TABLE && !table.isTemporary();
+    }
+
+    /**
+     * The cache key. The same SQL statement may resolve to different objects
+     * or a different plan depending on the user, the schema, and the session
+     * settings.
+     */
+    static final class Key {
+
+        private final String sql;
+        private final User user;
+        private final String schemaName;
+        private final String[] schemaSearchPath;
+        private final boolean forceJoinOrder;
+        private final boolean allowLiterals;
+        private final int hash;
+
+        Key(Session session, String sql) {
+            this.sql = sql;
+            user = session.getUser();
+            schemaName = session.getCurrentSchemaName();
+            schemaSearchPath = session.getSchemaSearchPath();
+            forceJoinOrder = session.isForceJoinOrder();
+            allowLiterals = session.getAllowLiterals();
+            hash = (sql.hashCode() * 31 + System.identityHashCode(user)) * 31 + schemaName.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && user == other.user && forceJoinOrder == other.forceJoinOrder
+                    && allowLiterals == other.allowLiterals && sql.equals(other.sql)
+                    && schemaName.equals(other.schemaName)
+                    && Arrays.equals(schemaSearchPath, other.schemaSearchPath);
+        }
+
+    }
+
+}
@@ -10,6 +10,7 @@ import java.util.HashSet;
 import org.h2.api.Trigger;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.command.SharedPlanCache;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -225,6 +226,17 @@ public class Delete extends Prepared implements DataChangeStatement {
         return true;
     }
 
+    @Override
+    public boolean isShareable() {
+        return sourceTableFilter == null && SharedPlanCache.isRegularTable(targetTableFilter.getTable());
+    }
+
+    @Override
+    public void setSession(Session currentSession) {
+        super.setSession(currentSession);
+        targetTableFilter.setSession(currentSession);
+    }
+
     public void setSourceTableFilter(TableFilter sourceTableFilter) {
         this.sourceTableFilter = sourceTableFilter;
     }
@@ -14,6 +14,7 @@ import org.h2.api.ErrorCode;
 import org.h2.api.Trigger;
 import org.h2.command.Command;
 import org.h2.command.CommandInterface;
+import org.h2.command.SharedPlanCache;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -374,6 +375,20 @@ public class Insert extends CommandWithValues implements ResultTarget, DataChang
         return duplicateKeyAssignmentMap == null;
     }
 
+    @Override
+    public boolean isShareable() {
+        return isCacheable() && sourceTableFilter == null && SharedPlanCache.isRegularTable(table)
+                && (query == null || query.isShareable());
+    }
+
+    @Override
+    public void setSession(Session currentSession) {
+        super.setSession(currentSession);
+        if (query != null) {
+            query.setSession(currentSession);
+        }
+    }
+
     /**
      * @param de duplicate key exception
      * @param currentRow current row values (optional)
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.dml;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.api.ErrorCode;
+import org.h2.engine.Session;
+import org.h2.expression.Alias;
+import org.h2.expression.Expression;
+import org.h2.expression.aggregate.Aggregate;
+import org.h2.expression.condition.BatchCondition;
+import org.h2.index.Cursor;
+import org.h2.message.DbException;
+import org.h2.mvstore.db.MVPrimaryIndex;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueLong;
+
+/**
+ * Computes the aggregates of a query over a single MVStore table in parallel.
+ * The key range of the primary index is split into parts, the threads of a
+ * fork/join pool compute partial results over the parts, and the partial
+ * results are merged at the end.
+ */
+final class ParallelAggregate {
+
+    /**
+     * The minimum number of rows of a part.
+     */
+    private static final int MIN_ROWS_PER_PART = 8_192;
+
+    /**
+     * The number of parts per thread, so that threads that are done early
+     * can take over more work if the keys are not evenly distributed.
+     */
+    private static final int PARTS_PER_THREAD = 4;
+
+    /**
+     * The number of rows that are filtered and aggregated at once.
+     */
+    private static final int BATCH_SIZE = 1_024;
+
+    private static ForkJoinPool pool;
+
+    private final MVPrimaryIndex index;
+
+    private final Aggregate[] aggregates;
+
+    private final BatchCondition condition;
+
+    private ParallelAggregate(MVPrimaryIndex index, Aggregate[] aggregates, BatchCondition condition) {
+        this.index = index;
+        this.aggregates = aggregates;
+        this.condition = condition;
+    }
+
+    /**
+     * Check whether the given expressions and condition can be computed in
+     * parallel over the primary index of the table filter.
+     *
+     * @param session the session
+     * @param filter the table filter, which reads the primary index of an
+     *            MVStore table
+     * @param expressions the select expressions
+     * @param condition the condition, or null
+     * @return the parallel aggregate, or null if the query is not supported
+     */
+    static ParallelAggregate create(Session session, TableFilter filter, ArrayList<Expression> expressions,
+            Expression condition) {
+        int count = expressions.size();
+        Aggregate[] aggregates = new Aggregate[count];
+        for (int i = 0; i < count; i++) {
+            Expression e = expressions.get(i);
+            if (e instanceof Alias) {
+                e = e.getNonAliasExpression();
+            }
+            if (!(e instanceof Aggregate) || !((Aggregate) e).isMergeable(filter)) {
+                return null;
+            }
+            aggregates[i] = (Aggregate) e;
+        }
+        BatchCondition batch = null;
+        if (condition != null) {
+            // the condition must be evaluated without the table filter
+            batch = BatchCondition.create(session, filter, condition);
+            if (batch == null || batch.getRemaining() != null) {
+                return null;
+            }
+        }
+        return new ParallelAggregate((MVPrimaryIndex) filter.getIndex(), aggregates, batch);
+    }
+
+    /**
+     * Compute the result row.
+     *
+     * @param session the session
+     * @param threads the maximum number of threads to use
+     * @return the result row, or null if the table is too small to be split
+     */
+    Value[] query(Session session, int threads) {
+        int parts = (int) Math.min((long) threads * PARTS_PER_THREAD,
+                index.getRowCountApproximation() / MIN_ROWS_PER_PART);
+        if (parts < 2) {
+            return null;
+        }
+        SearchRow firstRow = index.findFirstOrLast(session, true).getSearchRow();
+        SearchRow lastRow = index.findFirstOrLast(session, false).getSearchRow();
+        if (firstRow == null || lastRow == null) {
+            return null;
+        }
+        long first = firstRow.getKey(), last = lastRow.getKey();
+        long range = last - first;
+        if (range < parts) {
+            // also detects an overflow
+            return null;
+        }
+        // the cursors are opened here, so that all parts are read from the
+        // snapshot of the current statement
+        final Cursor[] cursors = new Cursor[parts];
+        long step = range / parts + 1;
+        for (int i = 0; i < parts; i++) {
+            long from = first + i * step;
+            long to = i == parts - 1 ? last : from + step - 1;
+            cursors[i] = index.find(session, ValueLong.get(from), ValueLong.get(to));
+        }
+        Object[] data = createData();
+        final Session s = session;
+        final AtomicInteger nextPart = new AtomicInteger();
+        ForkJoinPool p = getPool();
+        ArrayList<ForkJoinTask<Object[]>> tasks = new ArrayList<>(threads);
+        for (int i = 0, l = Math.min(threads, parts); i < l; i++) {
+            tasks.add(p.submit(new Callable<Object[]>() {
+                @Override
+                public Object[] call() {
+                    Object[] partial = createData();
+                    for (int part; (part = nextPart.getAndIncrement()) < cursors.length;) {
+                        scan(s, cursors[part], partial);
+                    }
+                    return partial;
+                }
+            }));
+        }
+        try {
+            for (ForkJoinTask<Object[]> task : tasks) {
+                Object[] partial = task.get();
+                for (int i = 0; i < aggregates.length; i++) {
+                    aggregates[i].mergePartialData(session, data[i], partial[i]);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw DbException.convert(e);
+        } catch (ExecutionException e) {
+            throw DbException.convert(e.getCause());
+        } finally {
+            // let the other threads stop after the current part
+            nextPart.set(parts);
+            for (ForkJoinTask<Object[]> task : tasks) {
+                task.cancel(false);
+            }
+        }
+        Value[] row = new Value[aggregates.length];
+        for (int i = 0; i < aggregates.length; i++) {
+            row[i] = aggregates[i].getAggregatedValue(session, data[i]);
+        }
+        return row;
+    }
+
+    private Object[] createData() {
+        Object[] data = new Object[aggregates.length];
+        for (int i = 0; i < aggregates.length; i++) {
+            data[i] = aggregates[i].createPartialData();
+        }
+        return data;
+    }
+
+    private void scan(Session session, Cursor cursor, Object[] data) {
+        Row[] rows = new Row[BATCH_SIZE];
+        int[] selection = condition != null ? new int[BATCH_SIZE] : null;
+        int count = 0;
+        while (cursor.next()) {
+            rows[count++] = cursor.get();
+            if (count == BATCH_SIZE) {
+                add(session, rows, selection, count, data);
+                count = 0;
+                checkCanceled(session);
+            }
+        }
+        add(session, rows, selection, count, data);
+    }
+
+    private void add(Session session, Row[] rows, int[] selection, int count, Object[] data) {
+        if (selection != null) {
+            for (int i = 0; i < count; i++) {
+                selection[i] = i;
+            }
+            count = condition.filter(rows, selection, count);
+        }
+        for (int i = 0; i < count; i++) {
+            Row row = rows[selection != null ? selection[i] : i];
+            for (int j = 0; j < aggregates.length; j++) {
+                aggregates[j].addPartialRow(session, data[j], row);
+            }
+        }
+    }
+
+    /**
+     * Check the query timeout without changing the state of the session,
+     * which is used by the thread that executes the statement.
+     */
+    private static void checkCanceled(Session session) {
+        long cancel = session.getCancel();
+        if (cancel != 0 && System.nanoTime() >= cancel) {
+            throw DbException.get(ErrorCode.STATEMENT_WAS_CANCELED);
+        }
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+        return pool;
+    }
+
+}
@@ -850,6 +850,29 @@ public abstract class Query extends Prepared {
         return new OffsetFetch(offset, fetch, fetchPercent);
     }
 
+    /**
+     * Passes OFFSET and FETCH to a sorted result before the rows are added, so
+     * that it only needs to keep the first rows in memory.
+     *
+     * @param result
+     *            the result
+     * @param offset
+     *            OFFSET value
+     * @param fetch
+     *            FETCH value
+     * @param fetchPercent
+     *            whether FETCH value is a PERCENT value
+     */
+    void setTopN(LocalResult result, long offset, int fetch, boolean fetchPercent) {
+        if (fetch > 0 && !fetchPercent && offset <= Integer.MAX_VALUE) {
+            result.setOffset((int) offset);
+            result.setLimit(fetch);
+            if (withTies) {
+                result.setWithTies(sort);
+            }
+        }
+    }
+
     /**
      * Applies limits, if any, to a result and makes it ready for value
      * retrieval.
@@ -934,4 +957,18 @@ public abstract class Query extends Prepared {
         ExpressionVisitor visitor = ExpressionVisitor.getDependenciesVisitor(dependencies);
         isEverything(visitor);
     }
+
+    @Override
+    public boolean isShareable() {
+        return isCacheable();
+    }
+
+    @Override
+    public void setSession(Session currentSession) {
+        if (currentSession != session) {
+            // the last result may still be used by the previous session
+            lastResult = null;
+        }
+        super.setSession(currentSession);
+    }
 }
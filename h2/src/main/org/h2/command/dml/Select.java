@@ -27,6 +27,7 @@ import org.h2.expression.Parameter;
 import org.h2.expression.Wildcard;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.Window;
+import org.h2.expression.condition.BatchCondition;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
 import org.h2.expression.condition.ConditionLocalAndGlobal;
@@ -36,6 +37,7 @@ import org.h2.index.Index;
 import org.h2.index.IndexType;
 import org.h2.index.ViewIndex;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.MVPrimaryIndex;
 import org.h2.result.LazyResult;
 import org.h2.result.LocalResult;
 import org.h2.result.ResultInterface;
@@ -92,6 +94,17 @@ public class Select extends Query {
      */
     private Expression condition;
 
+    /**
+     * The comparisons of the WHERE condition that are evaluated by the table
+     * filter over batches of rows, or null.
+     */
+    private BatchCondition batchCondition;
+
+    /**
+     * The aggregates that can be computed in parallel, or null.
+     */
+    private ParallelAggregate parallelAggregate;
+
     /**
      * HAVING condition.
      */
@@ -445,7 +458,8 @@ public class Select extends Query {
     }
 
     boolean isConditionMet() {
-        return condition == null || condition.getBooleanValue(session);
+        Expression c = batchCondition != null ? batchCondition.getRemaining() : condition;
+        return c == null || c.getBooleanValue(session);
     }
 
     private void queryWindow(int columnCount, LocalResult result, long offset, boolean quickOffset) {
@@ -771,6 +785,21 @@ public class Select extends Query {
         }
     }
 
+    private boolean queryParallel(ResultTarget result, boolean skipResult) {
+        int threads = session.getParallelAggregate();
+        if (parallelAggregate == null || threads <= 1 || getSampleSizeValue(session) > 0) {
+            return false;
+        }
+        Value[] row = parallelAggregate.query(session, threads);
+        if (row == null) {
+            return false;
+        }
+        if (!skipResult) {
+            result.addRow(row);
+        }
+        return true;
+    }
+
     @Override
     protected ResultInterface queryWithoutCache(int maxRows, ResultTarget target) {
         disableLazyForJoinSubqueries(topTableFilter);
@@ -813,6 +842,9 @@ public class Select extends Query {
         if (!lazy && (fetch >= 0 || offset > 0)) {
             result = createLocalResult(result);
         }
+        if (sort != null && !sortUsingIndex && result != null) {
+            setTopN(result, offset, fetch, fetchPercent);
+        }
         topTableFilter.startQuery(session);
         topTableFilter.reset();
         boolean exclusive = isForUpdate && !isForUpdateMvcc;
@@ -835,7 +867,7 @@ public class Select extends Query {
                 } else if (isGroupQuery) {
                     if (isGroupSortedQuery) {
                         lazyResult = queryGroupSorted(columnCount, to, offset, quickOffset);
-                    } else {
+                    } else if (!queryParallel(result, quickOffset && offset > 0)) {
                         queryGroup(columnCount, result, offset, quickOffset);
                     }
                 } else if (isDistinctQuery) {
@@ -886,13 +918,20 @@ public class Select extends Query {
     }
 
     /**
-     * Reset the batch-join after the query result is closed.
+     * Reset the batch-join and release the hash tables of hash joins after
+     * the query result is closed.
      */
     void resetJoinBatchAfterQuery() {
         JoinBatch jb = getJoinBatch();
         if (jb != null) {
             jb.reset(false);
         }
+        topTableFilter.visit(new TableFilterVisitor() {
+            @Override
+            public void accept(TableFilter f) {
+                f.releaseHashJoin();
+            }
+        });
     }
 
     private LocalResult createLocalResult(LocalResult old) {
@@ -1305,10 +1344,56 @@ public class Select extends Query {
                 }
             }
         }
+        prepareBatchScan();
+        prepareParallelAggregate();
         expressionArray = expressions.toArray(new Expression[0]);
         isPrepared = true;
     }
 
+    /**
+     * Use the batch scan mode of the table filter if this is a query over a
+     * single table that is read with a table scan or the primary key, and the
+     * condition compares columns with constants.
+     */
+    private void prepareBatchScan() {
+        int batchSize = session.getDatabase().getSettings().batchScanSize;
+        if (batchSize <= 0 || condition == null || isForUpdate || isQuickAggregateQuery || isDistinctQuery
+                || filters.size() != 1) {
+            return;
+        }
+        TableFilter f = topTableFilter;
+        Index index = f.getIndex();
+        if (index == null || !index.getIndexType().isScan() && !index.isRowIdIndex() || f.getJoin() != null || f.getNestedJoin() != null
+                || f.getFilterCondition() != null || f.getJoinCondition() != null) {
+            return;
+        }
+        BatchCondition batch = BatchCondition.create(session, f, condition);
+        if (batch != null) {
+            f.setBatchCondition(batch, batchSize);
+            batchCondition = batch;
+        }
+    }
+
+    /**
+     * Check whether the aggregates of this query can be computed in parallel.
+     * This is possible for a query without GROUP BY over the primary index of
+     * a single MVStore table if all expressions are aggregates of columns
+     * that can be merged, and the condition only compares columns with
+     * constants.
+     */
+    private void prepareParallelAggregate() {
+        if (!isGroupQuery || groupIndex != null || havingIndex >= 0 || qualifyIndex >= 0 || isWindowQuery
+                || isQuickAggregateQuery || isForUpdate || filters.size() != 1) {
+            return;
+        }
+        TableFilter f = topTableFilter;
+        if (!(f.getIndex() instanceof MVPrimaryIndex) || f.getJoin() != null || f.getNestedJoin() != null
+                || f.getFilterCondition() != null || f.getJoinCondition() != null) {
+            return;
+        }
+        parallelAggregate = ParallelAggregate.create(session, f, expressions, condition);
+    }
+
     @Override
     public void prepareJoinBatch() {
         ArrayList<TableFilter> list = new ArrayList<>();
@@ -1777,6 +1862,22 @@ public class Select extends Query {
         return !isForUpdate;
     }
 
+    @Override
+    public void setSession(final Session currentSession) {
+        if (currentSession == session) {
+            return;
+        }
+        super.setSession(currentSession);
+        for (TableFilter f : topFilters) {
+            f.visit(new TableFilterVisitor() {
+                @Override
+                public void accept(TableFilter filter) {
+                    filter.setSession(currentSession);
+                }
+            });
+        }
+    }
+
     @Override
     public boolean allowGlobalConditions() {
         return offsetExpr == null && (limitExpr == null && distinctExpressions == null || sort == null);
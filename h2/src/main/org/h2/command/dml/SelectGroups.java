@@ -17,7 +17,10 @@ import org.h2.engine.Session;
 import org.h2.expression.Expression;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.PartitionData;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
 import org.h2.value.ValueRow;
 
 /**
@@ -46,10 +49,39 @@ public abstract class SelectGroups {
 
     private static final class Grouped extends SelectGroups {
 
+        /**
+         * The initial number of slots of the hash table.
+         */
+        private static final int INITIAL_HASH_TABLE_SIZE = 64;
+
         private final int[] groupIndex;
 
         /**
-         * Map of group-by key to group-by expression data e.g. AggregateData
+         * The value types of the group expressions if the groups can be looked
+         * up by hash code, or null.
+         */
+        private final int[] hashTypes;
+
+        /**
+         * Open addressing hash table with linear probing. A slot contains the
+         * index of the group in hashKeys and hashData plus one, or 0 if the
+         * slot is empty. Null if the groups are kept in groupByData.
+         */
+        private int[] hashTable;
+
+        /**
+         * The group keys, in the order in which the groups were found.
+         */
+        private ArrayList<ValueRow> hashKeys;
+
+        /**
+         * The group-by expression data, with the same index as hashKeys.
+         */
+        private ArrayList<Object[]> hashData;
+
+        /**
+         * Map of group-by key to group-by expression data e.g. AggregateData.
+         * Used if the group keys can not be hashed.
          */
         private TreeMap<ValueRow, Object[]> groupByData;
 
@@ -59,26 +91,70 @@ public abstract class SelectGroups {
          */
         private ValueRow currentGroupsKey;
 
+        /**
+         * The index of the current group in hashData.
+         */
+        private int currentGroupIndex;
+
         /**
          * Cursor for {@link #next()} method.
          */
         private Iterator<Entry<ValueRow, Object[]>> cursor;
 
+        /**
+         * Cursor for {@link #next()} method if the groups are hashed: the
+         * index of the next group.
+         */
+        private int hashCursor;
+
         Grouped(Session session, ArrayList<Expression> expressions, int[] groupIndex) {
             super(session, expressions);
             this.groupIndex = groupIndex;
+            hashTypes = getHashTypes(session, expressions, groupIndex);
+        }
+
+        /**
+         * Get the value types of the group expressions, if all of them have
+         * equals() and hashCode() methods that are consistent with the
+         * comparison of the database.
+         */
+        private static int[] getHashTypes(Session session, ArrayList<Expression> expressions, int[] groupIndex) {
+            if (groupIndex == null) {
+                return new int[0];
+            }
+            CompareMode compareMode = session.getDatabase().getCompareMode();
+            int[] types = new int[groupIndex.length];
+            for (int i = 0; i < groupIndex.length; i++) {
+                int type = expressions.get(groupIndex[i]).getType().getValueType();
+                if (!DataType.hasConsistentHashCode(type, compareMode)) {
+                    return null;
+                }
+                types[i] = type;
+            }
+            return types;
         }
 
         @Override
         public void reset() {
             super.reset();
-            groupByData = new TreeMap<>(session.getDatabase().getCompareMode());
+            if (hashTypes != null) {
+                hashTable = new int[INITIAL_HASH_TABLE_SIZE];
+                hashKeys = new ArrayList<>();
+                hashData = new ArrayList<>();
+                groupByData = null;
+            } else {
+                hashTable = null;
+                hashKeys = null;
+                hashData = null;
+                groupByData = new TreeMap<>(session.getDatabase().getCompareMode());
+            }
             currentGroupsKey = null;
             cursor = null;
         }
 
         @Override
         public void nextSource() {
+            boolean hashable = hashTable != null;
             if (groupIndex == null) {
                 currentGroupsKey = ValueRow.getEmpty();
             } else {
@@ -87,32 +163,112 @@ public abstract class SelectGroups {
                 for (int i = 0; i < groupIndex.length; i++) {
                     int idx = groupIndex[i];
                     Expression expr = expressions.get(idx);
-                    keyValues[i] = expr.getValue(session);
+                    Value v = expr.getValue(session);
+                    if (hashable && v.getValueType() != hashTypes[i] && v != ValueNull.INSTANCE) {
+                        hashable = false;
+                    }
+                    keyValues[i] = v;
                 }
                 currentGroupsKey = ValueRow.get(keyValues);
             }
-            Object[] values = groupByData.get(currentGroupsKey);
-            if (values == null) {
-                values = createRow();
-                groupByData.put(currentGroupsKey, values);
+            Object[] values;
+            if (hashable) {
+                values = getHashed(currentGroupsKey);
+            } else {
+                if (hashTable != null) {
+                    switchToTree();
+                }
+                values = groupByData.get(currentGroupsKey);
+                if (values == null) {
+                    values = createRow();
+                    groupByData.put(currentGroupsKey, values);
+                }
             }
             currentGroupByExprData = values;
             currentGroupRowId++;
         }
 
+        private Object[] getHashed(ValueRow key) {
+            int[] table = hashTable;
+            int mask = table.length - 1;
+            for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+                int index = table[slot] - 1;
+                if (index < 0) {
+                    index = hashKeys.size();
+                    Object[] values = createRow();
+                    hashKeys.add(key);
+                    hashData.add(values);
+                    table[slot] = index + 1;
+                    if (index + 1 > table.length >>> 1) {
+                        rehash(table.length << 1);
+                    }
+                    currentGroupIndex = index;
+                    return values;
+                }
+                if (key.equals(hashKeys.get(index))) {
+                    currentGroupIndex = index;
+                    return hashData.get(index);
+                }
+            }
+        }
+
+        private void rehash(int size) {
+            int[] table = new int[size];
+            int mask = size - 1;
+            for (int i = 0, l = hashKeys.size(); i < l; i++) {
+                int slot = hash(hashKeys.get(i)) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+            hashTable = table;
+        }
+
+        private static int hash(ValueRow key) {
+            int h = key.hashCode() * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Move the groups into the tree map, because a group key has a data
+         * type that can not be hashed.
+         */
+        private void switchToTree() {
+            groupByData = new TreeMap<>(session.getDatabase().getCompareMode());
+            for (int i = 0, l = hashKeys.size(); i < l; i++) {
+                groupByData.put(hashKeys.get(i), hashData.get(i));
+            }
+            hashTable = null;
+            hashKeys = null;
+            hashData = null;
+        }
+
         @Override
         void updateCurrentGroupExprData() {
             // this can be null in lazy mode
             if (currentGroupsKey != null) {
                 // since we changed the size of the array, update the object in
                 // the groups map
-                groupByData.put(currentGroupsKey, currentGroupByExprData);
+                if (hashTable != null) {
+                    hashData.set(currentGroupIndex, currentGroupByExprData);
+                } else {
+                    groupByData.put(currentGroupsKey, currentGroupByExprData);
+                }
             }
         }
 
         @Override
         public void done() {
             super.done();
+            if (hashTable != null) {
+                if (groupIndex == null && hashKeys.isEmpty()) {
+                    hashKeys.add(ValueRow.getEmpty());
+                    hashData.add(createRow());
+                }
+                hashCursor = 0;
+                return;
+            }
             if (groupIndex == null && groupByData.size() == 0) {
                 groupByData.put(ValueRow.getEmpty(), createRow());
             }
@@ -121,6 +277,19 @@ public abstract class SelectGroups {
 
         @Override
         public ValueRow next() {
+            if (hashTable != null) {
+                for (int l = hashKeys.size(); hashCursor < l;) {
+                    int index = hashCursor++;
+                    Object[] values = hashData.get(index);
+                    // null if removed
+                    if (values != null) {
+                        currentGroupByExprData = values;
+                        currentGroupRowId++;
+                        return hashKeys.get(index);
+                    }
+                }
+                return null;
+            }
             if (cursor.hasNext()) {
                 Map.Entry<ValueRow, Object[]> entry = cursor.next();
                 currentGroupByExprData = entry.getValue();
@@ -132,7 +301,11 @@ public abstract class SelectGroups {
 
         @Override
         public void remove() {
-            cursor.remove();
+            if (hashTable != null) {
+                hashData.set(hashCursor - 1, null);
+            } else {
+                cursor.remove();
+            }
             currentGroupByExprData = null;
             currentGroupRowId--;
         }
@@ -194,6 +367,77 @@ public abstract class SelectGroups {
         }
     }
 
+    /**
+     * The partitions of a partitioned window expression. They are kept in a
+     * hash map while all values of the partition keys have the same data
+     * types, and these types have hash codes that are consistent with the
+     * comparison of the database. Otherwise they are kept in a tree map.
+     */
+    private static final class WindowPartitions {
+
+        private final CompareMode compareMode;
+
+        /**
+         * The value types of the keys, or null if the partitions are kept in
+         * a tree map. Value.NULL is used while only NULL values were seen.
+         */
+        private int[] hashTypes;
+
+        private Map<Value, PartitionData> map;
+
+        WindowPartitions(CompareMode compareMode, Value key) {
+            this.compareMode = compareMode;
+            hashTypes = new int[key instanceof ValueRow ? ((ValueRow) key).getList().length : 1];
+            map = new HashMap<>();
+        }
+
+        PartitionData get(Value key) {
+            return getMap(key).get(key);
+        }
+
+        void put(Value key, PartitionData data) {
+            getMap(key).put(key, data);
+        }
+
+        private Map<Value, PartitionData> getMap(Value key) {
+            if (hashTypes != null && !isHashable(key)) {
+                TreeMap<Value, PartitionData> tree = new TreeMap<>(compareMode);
+                tree.putAll(map);
+                map = tree;
+                hashTypes = null;
+            }
+            return map;
+        }
+
+        private boolean isHashable(Value key) {
+            if (key instanceof ValueRow) {
+                Value[] list = ((ValueRow) key).getList();
+                if (list.length != hashTypes.length) {
+                    return false;
+                }
+                for (int i = 0; i < list.length; i++) {
+                    if (!isHashable(list[i], i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return hashTypes.length == 1 && isHashable(key, 0);
+        }
+
+        private boolean isHashable(Value v, int i) {
+            int type = v.getValueType();
+            if (type == Value.NULL || type == hashTypes[i]) {
+                return true;
+            }
+            if (hashTypes[i] == Value.NULL && DataType.hasConsistentHashCode(type, compareMode)) {
+                hashTypes[i] = type;
+                return true;
+            }
+            return false;
+        }
+    }
+
     /**
      * The database session.
      */
@@ -223,7 +467,7 @@ public abstract class SelectGroups {
     /**
      * Maps an partitioned window expression object to its data.
      */
-    private final HashMap<DataAnalysisOperation, TreeMap<Value, PartitionData>> windowPartitionData = new HashMap<>();
+    private final HashMap<DataAnalysisOperation, WindowPartitions> windowPartitionData = new HashMap<>();
 
     /**
      * The id of the current group.
@@ -324,8 +568,8 @@ public abstract class SelectGroups {
         if (partitionKey == null) {
             return windowData.get(expr);
         } else {
-            TreeMap<Value, PartitionData> map = windowPartitionData.get(expr);
-            return map != null ? map.get(partitionKey) : null;
+            WindowPartitions partitions = windowPartitionData.get(expr);
+            return partitions != null ? partitions.get(partitionKey) : null;
         }
     }
 
@@ -344,12 +588,12 @@ public abstract class SelectGroups {
             Object old = windowData.put(expr, obj);
             assert old == null;
         } else {
-            TreeMap<Value, PartitionData> map = windowPartitionData.get(expr);
-            if (map == null) {
-                map = new TreeMap<>(session.getDatabase().getCompareMode());
-                windowPartitionData.put(expr, map);
+            WindowPartitions partitions = windowPartitionData.get(expr);
+            if (partitions == null) {
+                partitions = new WindowPartitions(session.getDatabase().getCompareMode(), partitionKey);
+                windowPartitionData.put(expr, partitions);
             }
-            map.put(partitionKey, obj);
+            partitions.put(partitionKey, obj);
         }
     }
 
@@ -175,6 +175,9 @@ public class SelectUnion extends Query {
         default:
             DbException.throwInternalError("type=" + unionType);
         }
+        if (sort != null) {
+            setTopN(result, offset, fetch, fetchPercent);
+        }
         ResultInterface l = left.query(0);
         ResultInterface r = right.query(0);
         l.reset();
@@ -376,6 +379,18 @@ public class SelectUnion extends Query {
         return left.isEverything(visitor) && right.isEverything(visitor);
     }
 
+    @Override
+    public boolean isShareable() {
+        return left.isShareable() && right.isShareable();
+    }
+
+    @Override
+    public void setSession(Session currentSession) {
+        super.setSession(currentSession);
+        left.setSession(currentSession);
+        right.setSession(currentSession);
+    }
+
     @Override
     public void updateAggregate(Session s, int stage) {
         left.updateAggregate(s, stage);
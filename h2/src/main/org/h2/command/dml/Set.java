@@ -67,6 +67,7 @@ public class Set extends Prepared {
         case SetTypes.CATALOG:
         case SetTypes.RETENTION_TIME:
         case SetTypes.LAZY_QUERY_EXECUTION:
+        case SetTypes.PARALLEL_AGGREGATE:
             return true;
         default:
         }
@@ -595,6 +596,15 @@ public class Set extends Prepared {
             session.setLazyQueryExecution(value == 1);
             break;
         }
+        case SetTypes.PARALLEL_AGGREGATE: {
+            int value = getIntValue();
+            if (value < 0) {
+                throw DbException.getInvalidValueException("PARALLEL_AGGREGATE",
+                        value);
+            }
+            session.setParallelAggregate(value);
+            break;
+        }
         case SetTypes.BUILTIN_ALIAS_OVERRIDE: {
             session.getUser().checkAdmin();
             int value = getIntValue();
@@ -267,7 +267,12 @@ public class SetTypes {
      */
     public static final int CATALOG = IGNORE_CATALOGS + 1;
 
-    private static final int COUNT = CATALOG + 1;
+    /**
+     * The type of a SET PARALLEL_AGGREGATE statement.
+     */
+    public static final int PARALLEL_AGGREGATE = CATALOG + 1;
+
+    private static final int COUNT = PARALLEL_AGGREGATE + 1;
 
     private static final ArrayList<String> TYPES;
 
@@ -329,6 +334,7 @@ public class SetTypes {
         list.add(UUID_COLLATION, "UUID_COLLATION");
         list.add(IGNORE_CATALOGS, "IGNORE_CATALOGS");
         list.add(CATALOG, "CATALOG");
+        list.add(PARALLEL_AGGREGATE, "PARALLEL_AGGREGATE");
         TYPES = list;
     }
 
@@ -14,6 +14,7 @@ import org.h2.api.ErrorCode;
 import org.h2.api.Trigger;
 import org.h2.command.CommandInterface;
 import org.h2.command.Prepared;
+import org.h2.command.SharedPlanCache;
 import org.h2.engine.DbObject;
 import org.h2.engine.Right;
 import org.h2.engine.Session;
@@ -316,6 +317,17 @@ public class Update extends Prepared implements DataChangeStatement {
         return true;
     }
 
+    @Override
+    public boolean isShareable() {
+        return sourceTableFilter == null && SharedPlanCache.isRegularTable(targetTableFilter.getTable());
+    }
+
+    @Override
+    public void setSession(Session currentSession) {
+        super.setSession(currentSession);
+        targetTableFilter.setSession(currentSession);
+    }
+
     public TableFilter getSourceTableFilter() {
         return sourceTableFilter;
     }
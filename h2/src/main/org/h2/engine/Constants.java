@@ -111,6 +111,12 @@ public class Constants {
      */
     public static final int TCP_PROTOCOL_VERSION_19 = 19;
 
+    /**
+     * The TCP protocol version number 20.
+     * @since 1.4.201
+     */
+    public static final int TCP_PROTOCOL_VERSION_20 = 20;
+
     /**
      * Minimum supported version of TCP protocol.
      */
@@ -119,7 +125,7 @@ public class Constants {
     /**
      * Maximum supported version of TCP protocol.
      */
-    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_19;
+    public static final int TCP_PROTOCOL_VERSION_MAX_SUPPORTED = TCP_PROTOCOL_VERSION_20;
 
     /**
      * The major version of this database.
@@ -495,6 +501,11 @@ public class Constants {
      */
     public static final String SUFFIX_MV_FILE = ".mv.db";
 
+    /**
+     * The file name suffix of the redo log of a MVStore file.
+     */
+    public static final String SUFFIX_MV_REDO_FILE = ".redo.db";
+
     /**
      * The file name suffix of a new MVStore file, used when compacting a store.
      */
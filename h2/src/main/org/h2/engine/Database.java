@@ -30,6 +30,7 @@ import org.h2.api.ErrorCode;
 import org.h2.api.JavaObjectSerializer;
 import org.h2.api.TableEngine;
 import org.h2.command.CommandInterface;
+import org.h2.command.SharedPlanCache;
 import org.h2.command.ddl.CreateTableData;
 import org.h2.command.dml.SetTypes;
 import org.h2.constraint.Constraint;
@@ -226,6 +227,7 @@ public class Database implements DataHandler, CastDataProvider {
     private boolean queryStatistics;
     private int queryStatisticsMaxEntries = Constants.QUERY_STATISTICS_MAX_ENTRIES;
     private QueryStatisticsData queryStatisticsData;
+    private final SharedPlanCache sharedPlanCache;
     private RowFactory rowFactory = RowFactory.DEFAULT;
     private LocalResultFactory resultFactory = LocalResultFactory.DEFAULT;
     private boolean ignoreCatalogs;
@@ -298,6 +300,8 @@ public class Database implements DataHandler, CastDataProvider {
                 ci.removeProperty("CACHE_TYPE", Constants.CACHE_TYPE_DEFAULT));
         this.ignoreCatalogs = ci.getProperty("IGNORE_CATALOGS",
                 dbSettings.ignoreCatalogs);
+        this.sharedPlanCache = dbSettings.sharedPlanCacheSize > 0 ?
+                new SharedPlanCache(this, dbSettings.sharedPlanCacheSize) : null;
         openDatabase(traceLevelFile, traceLevelSystemOut, closeAtVmShutdown, ci);
     }
 
@@ -2503,6 +2507,15 @@ public class Database implements DataHandler, CastDataProvider {
         return queryStatisticsData;
     }
 
+    /**
+     * Get the plan cache shared by all sessions.
+     *
+     * @return the shared plan cache, or null if disabled
+     */
+    public SharedPlanCache getSharedPlanCache() {
+        return sharedPlanCache;
+    }
+
     /**
      * Check if the database is currently opening. This is true until all stored
      * SQL statements have been executed.
@@ -62,6 +62,15 @@ public class DbSettings extends SettingsBase {
      */
     public final int analyzeSample = get("ANALYZE_SAMPLE", 10_000);
 
+    /**
+     * Database setting <code>BATCH_SCAN_SIZE</code> (default: 0).<br />
+     * If set, queries over a single table that is read with a table scan or
+     * the primary key read this many rows at once, and comparisons of columns
+     * with constants in the WHERE clause are evaluated over all rows of the
+     * batch. Set to 0 to read the rows one at a time.
+     */
+    public final int batchScanSize = get("BATCH_SCAN_SIZE", 0);
+
     /**
      * Database setting <code>DATABASE_TO_LOWER</code> (default: false).<br />
      * When set to true unquoted identifiers and short name of database are
@@ -150,6 +159,14 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean functionsInSchema = get("FUNCTIONS_IN_SCHEMA", true);
 
+    /**
+     * Database setting <code>HASH_JOIN</code> (default: true).<br />
+     * Look up the rows of the inner table of a join with a hash table that
+     * is built when the query is executed, if the join condition is an
+     * equality and the table has no usable index.
+     */
+    public final boolean hashJoin = get("HASH_JOIN", true);
+
     /**
      * Database setting <code>LOB_TIMEOUT</code> (default: 300000,
      * which means 5 minutes).<br />
@@ -305,6 +322,18 @@ public class DbSettings extends SettingsBase {
     public final boolean shareLinkedConnections = get(
             "SHARE_LINKED_CONNECTIONS", true);
 
+    /**
+     * Database setting <code>SHARED_PLAN_CACHE_SIZE</code> (default: 0).<br />
+     * The number of distinct SQL statements kept in the plan cache that is
+     * shared by all sessions of the database. Parsed and optimized SELECT,
+     * INSERT, UPDATE, and DELETE statements on regular tables are returned to
+     * this cache when the statement is closed, so that other sessions
+     * preparing the same SQL statement can skip parsing and optimization. The
+     * cache is cleared when the database meta data is modified. Use 0 to
+     * disable the shared cache.
+     */
+    public final int sharedPlanCacheSize = get("SHARED_PLAN_CACHE_SIZE", 0);
+
     /**
      * Database setting <code>DEFAULT_TABLE_ENGINE</code>
      * (default: null).<br />
@@ -326,6 +355,59 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean compressData = get("COMPRESS", false);
 
+    /**
+     * Database setting <code>STORE_SERIALIZATION_THREADS</code>
+     * (default: 0).<br />
+     * The number of threads the MVStore uses to serialize and compress pages
+     * when storing changes. 0 means pages are serialized by the storing
+     * thread.
+     */
+    public final int storeSerializationThreads = get("STORE_SERIALIZATION_THREADS", 0);
+
+    /**
+     * Database setting <code>STORE_MEMORY_MAPPED</code>
+     * (default: false).<br />
+     * Read the pages of the MVStore from memory mapped segments of the
+     * database file. Writes are not affected.
+     */
+    public final boolean storeMemoryMapped = get("STORE_MEMORY_MAPPED", false);
+
+    /**
+     * Database setting <code>STORE_OFF_HEAP_CACHE_SIZE</code>
+     * (default: 0).<br />
+     * The size of the off-heap page cache of the MVStore in MB. Pages that are
+     * not in the regular cache are read from this cache before they are read
+     * from the file. 0 means no off-heap cache is used.
+     */
+    public final int storeOffHeapCacheSize = get("STORE_OFF_HEAP_CACHE_SIZE", 0);
+
+    /**
+     * Database setting <code>STORE_CACHE_READ_BUFFERS</code>
+     * (default: false).<br />
+     * Record reads of the MVStore page cache in read buffers, so that reads
+     * do not lock a cache segment. This may help if many threads read
+     * concurrently on a machine with many cores.
+     */
+    public final boolean storeCacheReadBuffers = get("STORE_CACHE_READ_BUFFERS", false);
+
+    /**
+     * Database setting <code>STORE_SYNC_COMMIT</code>
+     * (default: false).<br />
+     * Each commit that changed data waits until the changes are written and
+     * synced to the MVStore file. Concurrent commits are written and synced
+     * together.
+     */
+    public final boolean storeSyncCommit = get("STORE_SYNC_COMMIT", false);
+
+    /**
+     * Database setting <code>STORE_REDO_LOG</code>
+     * (default: false).<br />
+     * Each commit appends the changed rows to a redo log file and syncs it,
+     * instead of writing a chunk to the MVStore file. The MVStore file is
+     * written at checkpoints. Read-only databases do not use the redo log.
+     */
+    public final boolean storeRedoLog = get("STORE_REDO_LOG", false);
+
     /**
      * Database setting <code>IGNORE_CATALOGS</code>
      * (default: false).<br />
@@ -24,6 +24,7 @@ import org.h2.command.Command;
 import org.h2.command.CommandInterface;
 import org.h2.command.Parser;
 import org.h2.command.Prepared;
+import org.h2.command.SharedPlanCache;
 import org.h2.command.ddl.Analyze;
 import org.h2.command.dml.Query;
 import org.h2.command.dml.SetTypes;
@@ -148,6 +149,7 @@ public class Session extends SessionWithState implements TransactionStore.Rollba
     private boolean joinBatchEnabled;
     private boolean forceJoinOrder;
     private boolean lazyQueryExecution;
+    private int parallelAggregate;
     private ColumnNamerConfiguration columnNamerConfiguration;
     /**
      * Tables marked for ANALYZE after the current transaction is committed.
@@ -217,6 +219,21 @@ public class Session extends SessionWithState implements TransactionStore.Rollba
         return lazyQueryExecution;
     }
 
+    public void setParallelAggregate(int parallelAggregate) {
+        this.parallelAggregate = parallelAggregate;
+    }
+
+    /**
+     * Get the maximum number of threads used to compute the aggregates of a
+     * query in parallel.
+     *
+     * @return the number of threads, 0 or 1 if parallel aggregation is
+     *         disabled
+     */
+    public int getParallelAggregate() {
+        return parallelAggregate;
+    }
+
     public void setForceJoinOrder(boolean forceJoinOrder) {
         this.forceJoinOrder = forceJoinOrder;
     }
@@ -652,6 +669,19 @@ public class Session extends SessionWithState implements TransactionStore.Rollba
                 }
             }
         }
+        SharedPlanCache sharedPlanCache = database.getSharedPlanCache();
+        if (sharedPlanCache != null && (lazyQueryExecution || joinBatchEnabled ||
+                localTempTables != null && !localTempTables.isEmpty())) {
+            // lazy results and join batches keep the statement busy after
+            // execution, and local temporary tables may hide shared tables
+            sharedPlanCache = null;
+        }
+        if (sharedPlanCache != null) {
+            command = sharedPlanCache.get(this, sql);
+            if (command != null) {
+                return command;
+            }
+        }
         Parser parser = new Parser(this);
         try {
             command = parser.prepareCommand(sql);
@@ -660,6 +690,9 @@ public class Session extends SessionWithState implements TransactionStore.Rollba
             subQueryIndexCache = null;
         }
         command.prepareJoinBatch();
+        if (sharedPlanCache != null && sharedPlanCache.register(this, sql, command)) {
+            return command;
+        }
         if (queryCache != null) {
             if (command.isCacheable()) {
                 queryCache.put(sql, command);
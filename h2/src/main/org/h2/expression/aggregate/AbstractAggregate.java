@@ -19,6 +19,8 @@ import org.h2.expression.analysis.WindowFrameBound;
 import org.h2.expression.analysis.WindowFrameBoundType;
 import org.h2.expression.analysis.WindowFrameExclusion;
 import org.h2.expression.analysis.WindowFrameUnits;
+import org.h2.message.DbException;
+import org.h2.result.SortOrder;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.TypeInfo;
@@ -29,6 +31,12 @@ import org.h2.value.Value;
  */
 public abstract class AbstractAggregate extends DataAnalysisOperation {
 
+    /**
+     * The minimum number of rows in a window frame to compute the aggregate
+     * from the nodes of a segment tree instead of from the rows of the frame.
+     */
+    private static final int MIN_SEGMENT_TREE_FRAME = 16;
+
     /**
      * is this a DISTINCT aggregate
      */
@@ -146,6 +154,10 @@ public abstract class AbstractAggregate extends DataAnalysisOperation {
                 return;
             }
         }
+        if (frame.getExclusion() == WindowFrameExclusion.EXCLUDE_NO_OTHERS && isMergeable() && isMergeExact()) {
+            aggregateWithSegmentTree(session, result, ordered, rowIdColumn, grouped);
+            return;
+        }
         // All other types of frames (slow)
         int size = ordered.size();
         for (int i = 0; i < size;) {
@@ -184,6 +196,65 @@ public abstract class AbstractAggregate extends DataAnalysisOperation {
         return false;
     }
 
+    /**
+     * Aggregate frames with arbitrary bounds. Large frames are aggregated from
+     * the nodes of a segment tree over the rows of the partition, so that
+     * each frame needs O(log n) merges instead of one update per row.
+     */
+    private void aggregateWithSegmentTree(Session session, HashMap<Integer, Value> result,
+            ArrayList<Value[]> ordered, int rowIdColumn, boolean grouped) {
+        WindowFrame frame = over.getWindowFrame();
+        SortOrder sortOrder = getOverOrderBySort();
+        int size = ordered.size();
+        Object[] tree = null;
+        for (int i = 0; i < size;) {
+            int start = frame.getStartIndex(session, ordered, sortOrder, i);
+            int end = WindowFrame.getEndIndex(over, session, ordered, sortOrder, i);
+            Object aggregateData = createAggregateData();
+            if (end - start >= MIN_SEGMENT_TREE_FRAME) {
+                if (tree == null) {
+                    tree = createSegmentTree(session, ordered);
+                }
+                for (int l = start + size, r = end + size + 1; l < r; l >>>= 1, r >>>= 1) {
+                    if ((l & 1) != 0) {
+                        mergePartialData(session, aggregateData, tree[l++]);
+                    }
+                    if ((r & 1) != 0) {
+                        mergePartialData(session, aggregateData, tree[--r]);
+                    }
+                }
+            } else {
+                for (int j = start; j <= end; j++) {
+                    updateFromExpressions(session, aggregateData, ordered.get(j));
+                }
+            }
+            Value r = getAggregatedValue(session, aggregateData);
+            i = processGroup(session, result, r, ordered, rowIdColumn, i, size, aggregateData, grouped);
+        }
+    }
+
+    /**
+     * Create a segment tree over the rows. The leaves are stored at the
+     * indexes size to 2 * size - 1, and the node at the index i is the
+     * merged data of the nodes 2 * i and 2 * i + 1.
+     */
+    private Object[] createSegmentTree(Session session, ArrayList<Value[]> ordered) {
+        int size = ordered.size();
+        Object[] tree = new Object[size << 1];
+        for (int i = 0; i < size; i++) {
+            Object data = createAggregateData();
+            updateFromExpressions(session, data, ordered.get(i));
+            tree[size + i] = data;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            Object data = createAggregateData();
+            mergePartialData(session, data, tree[i << 1]);
+            mergePartialData(session, data, tree[(i << 1) + 1]);
+            tree[i] = data;
+        }
+        return tree;
+    }
+
     private void aggregateFastPartition(Session session, HashMap<Integer, Value> result, ArrayList<Value[]> ordered,
             int rowIdColumn, boolean grouped) {
         Object aggregateData = createAggregateData();
@@ -255,6 +326,39 @@ public abstract class AbstractAggregate extends DataAnalysisOperation {
         }
     }
 
+    /**
+     * Check whether aggregate data of this aggregate can be merged with
+     * {@link #mergePartialData(Session, Object, Object)}.
+     *
+     * @return true if the aggregate data can be merged
+     */
+    protected boolean isMergeable() {
+        return false;
+    }
+
+    /**
+     * Check whether merged aggregate data has exactly the same result as
+     * aggregate data that was updated with the same rows in order. This is
+     * not the case if the result is computed with floating point arithmetic,
+     * because merging changes the order of the additions.
+     *
+     * @return true if merging does not change the result
+     */
+    protected boolean isMergeExact() {
+        return false;
+    }
+
+    /**
+     * Merge a partial result of a mergeable aggregate into another one.
+     *
+     * @param session the session
+     * @param aggregateData the partial result to merge into
+     * @param other the other partial result
+     */
+    public void mergePartialData(Session session, Object aggregateData, Object other) {
+        throw DbException.throwInternalError("merge");
+    }
+
     /**
      * Updates the provided aggregate data from the remembered expressions.
      *
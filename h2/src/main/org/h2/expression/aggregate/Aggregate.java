@@ -31,6 +31,7 @@ import org.h2.index.Cursor;
 import org.h2.index.Index;
 import org.h2.message.DbException;
 import org.h2.mvstore.db.MVSpatialIndex;
+import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
 import org.h2.table.Column;
@@ -65,6 +66,12 @@ public class Aggregate extends AbstractAggregate implements ExpressionWithFlags
 
     private int flags;
 
+    /**
+     * The data type of the argument, used to choose the aggregate data, or
+     * {@link Value#UNKNOWN}.
+     */
+    private int argType = Value.UNKNOWN;
+
     /**
      * Create a new aggregate object.
      *
@@ -185,6 +192,100 @@ public class Aggregate extends AbstractAggregate implements ExpressionWithFlags
         return flags;
     }
 
+    /**
+     * Check whether this aggregate can be computed over separate parts of the
+     * rows of the given table filter, with the partial results merged
+     * afterwards. This is the case for plain aggregates of a column or
+     * COUNT(*) that do not need to see all values at once.
+     *
+     * @param filter the table filter
+     * @return true if partial results of this aggregate can be merged
+     */
+    public boolean isMergeable(TableFilter filter) {
+        if (filterCondition != null || over != null || !isMergeable()) {
+            return false;
+        }
+        if (aggregateType == AggregateType.COUNT_ALL) {
+            return true;
+        }
+        if (!(args[0] instanceof ExpressionColumn)) {
+            return false;
+        }
+        ExpressionColumn col = (ExpressionColumn) args[0];
+        return col.getTableFilter() == filter && col.getColumn().getColumnId() >= 0;
+    }
+
+    @Override
+    protected boolean isMergeable() {
+        if (distinct) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+        case COUNT:
+        case SUM:
+        case AVG:
+        case MIN:
+        case MAX:
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP:
+        case BIT_AND:
+        case BIT_OR:
+        case EVERY:
+        case ANY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    @Override
+    protected boolean isMergeExact() {
+        switch (aggregateType) {
+        case SUM:
+        case AVG:
+            return argType != Value.DOUBLE && argType != Value.FLOAT;
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Create the data of a partial result of a mergeable aggregate.
+     *
+     * @return the aggregate data
+     */
+    public Object createPartialData() {
+        return createAggregateData();
+    }
+
+    /**
+     * Add a row to the partial result of a mergeable aggregate. This method
+     * does not access the current row of the table filter and may be called
+     * concurrently for different partial results.
+     *
+     * @param session the session
+     * @param aggregateData the partial result
+     * @param row the row
+     */
+    public void addPartialRow(Session session, Object aggregateData, Row row) {
+        Value v = args.length == 0 ? null
+                : row.getValue(((ExpressionColumn) args[0]).getColumn().getColumnId());
+        ((AggregateData) aggregateData).add(session.getDatabase(), v);
+    }
+
+    @Override
+    public void mergePartialData(Session session, Object aggregateData, Object other) {
+        ((AggregateData) aggregateData).merge(session.getDatabase(), (AggregateData) other);
+    }
+
     private void sortWithOrderBy(Value[] array) {
         final SortOrder sortOrder = orderBySort;
         if (sortOrder != null) {
@@ -345,7 +446,7 @@ public class Aggregate extends AbstractAggregate implements ExpressionWithFlags
 
     @Override
     protected Object createAggregateData() {
-        return AggregateData.create(aggregateType, distinct, type.getValueType());
+        return AggregateData.create(aggregateType, distinct, type.getValueType(), argType);
     }
 
     @Override
@@ -705,6 +806,7 @@ public class Aggregate extends AbstractAggregate implements ExpressionWithFlags
         super.optimize(session);
         if (args.length == 1) {
             type = args[0].getType();
+            argType = type.getValueType();
         }
         if (orderByList != null) {
             for (SelectOrderBy o : orderByList) {
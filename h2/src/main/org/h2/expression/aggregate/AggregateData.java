@@ -21,9 +21,11 @@ abstract class AggregateData {
      * @param aggregateType the type of the aggregate operation
      * @param distinct if the calculation should be distinct
      * @param dataType the data type of the computed result
+     * @param argType the data type of the argument, or
+     *            {@link Value#UNKNOWN}
      * @return the aggregate data object of the specified type
      */
-    static AggregateData create(AggregateType aggregateType, boolean distinct, int dataType) {
+    static AggregateData create(AggregateType aggregateType, boolean distinct, int dataType, int argType) {
         switch (aggregateType) {
         case COUNT_ALL:
             return new AggregateDataCount(true);
@@ -46,6 +48,7 @@ abstract class AggregateData {
             break;
         case MIN:
         case MAX:
+            return createNumeric(aggregateType, dataType, argType);
         case BIT_OR:
         case BIT_AND:
         case ANY:
@@ -53,6 +56,10 @@ abstract class AggregateData {
             return new AggregateDataDefault(aggregateType, dataType);
         case SUM:
         case AVG:
+            if (!distinct) {
+                return createNumeric(aggregateType, dataType, argType);
+            }
+            break;
         case STDDEV_POP:
         case STDDEV_SAMP:
         case VAR_POP:
@@ -75,6 +82,21 @@ abstract class AggregateData {
         return new AggregateDataCollecting(distinct);
     }
 
+    private static AggregateData createNumeric(AggregateType aggregateType, int dataType, int argType) {
+        switch (argType) {
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+            return new AggregateDataLong(aggregateType, dataType);
+        case Value.FLOAT:
+        case Value.DOUBLE:
+            return new AggregateDataDouble(aggregateType, dataType);
+        default:
+            return new AggregateDataDefault(aggregateType, dataType);
+        }
+    }
+
     /**
      * Add a value to this aggregate.
      *
@@ -83,6 +105,17 @@ abstract class AggregateData {
      */
     abstract void add(Database database, Value v);
 
+    /**
+     * Add the values of an aggregate computed over other rows to this
+     * aggregate.
+     *
+     * @param database the database
+     * @param other the other aggregate data of the same type
+     */
+    void merge(Database database, AggregateData other) {
+        throw DbException.throwInternalError(getClass().getName());
+    }
+
     /**
      * Get the aggregate result.
      *
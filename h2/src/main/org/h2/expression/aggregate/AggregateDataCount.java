@@ -30,6 +30,11 @@ class AggregateDataCount extends AggregateData {
         }
     }
 
+    @Override
+    void merge(Database database, AggregateData other) {
+        count += ((AggregateDataCount) other).count;
+    }
+
     @Override
     Value getValue(Database database, int dataType) {
         return ValueLong.get(count).convertTo(dataType);
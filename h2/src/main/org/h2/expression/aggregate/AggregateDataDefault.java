@@ -34,6 +34,22 @@ class AggregateDataDefault extends AggregateData {
         this.dataType = dataType;
     }
 
+    /**
+     * Create the aggregate data with the result of the given number of
+     * values. This is used to continue an aggregate that was computed with
+     * primitive values so far.
+     *
+     * @param aggregateType the type of the aggregate operation
+     * @param dataType the data type of the computed result
+     * @param value the sum, minimum, or maximum of the values
+     * @param count the number of values
+     */
+    AggregateDataDefault(AggregateType aggregateType, int dataType, Value value, long count) {
+        this(aggregateType, dataType);
+        this.value = value;
+        this.count = count;
+    }
+
     @Override
     void add(Database database, Value v) {
         if (v == ValueNull.INSTANCE) {
@@ -120,6 +136,36 @@ class AggregateDataDefault extends AggregateData {
         }
     }
 
+    @Override
+    void merge(Database database, AggregateData other) {
+        AggregateDataDefault o = (AggregateDataDefault) other;
+        if (o.count == 0) {
+            return;
+        }
+        switch (aggregateType) {
+        case STDDEV_POP:
+        case STDDEV_SAMP:
+        case VAR_POP:
+        case VAR_SAMP: {
+            // Chan's formula to combine the results of Welford's method
+            long n = count + o.count;
+            double delta = o.mean - mean;
+            mean += delta * o.count / n;
+            m2 += o.m2 + delta * delta * count * o.count / n;
+            count = n;
+            break;
+        }
+        default:
+            if (o.value != null) {
+                // the partial result is added as a single value
+                add(database, o.value);
+                count += o.count - 1;
+            } else {
+                count += o.count;
+            }
+        }
+    }
+
     @Override
     Value getValue(Database database, int dataType) {
         Value v = null;
@@ -172,7 +218,14 @@ class AggregateDataDefault extends AggregateData {
         return v == null ? ValueNull.INSTANCE : v.convertTo(dataType);
     }
 
-    private static Value divide(Value a, long by) {
+    /**
+     * Divide the sum of values by the number of values.
+     *
+     * @param a the sum
+     * @param by the number of values
+     * @return the average, or NULL if there are no values
+     */
+    static Value divide(Value a, long by) {
         if (by == 0) {
             return ValueNull.INSTANCE;
         }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.aggregate;
+
+import org.h2.engine.Database;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueNull;
+
+/**
+ * Data stored while calculating a SUM, AVG, MIN, or MAX aggregate of floating
+ * point values. The state is kept in primitive fields, so that adding a value
+ * does not create new objects. The values are added in the same order as by
+ * {@link AggregateDataDefault}, so the results are the same.
+ */
+final class AggregateDataDouble extends AggregateData {
+
+    private final AggregateType aggregateType;
+    private final int dataType;
+    private long count;
+
+    /**
+     * The sum, or the minimum or maximum.
+     */
+    private double value;
+
+    /**
+     * The minimum or maximum value.
+     */
+    private Value minMax;
+
+    /**
+     * The aggregate data used after a value of another type was added, or
+     * null.
+     */
+    private AggregateDataDefault fallback;
+
+    /**
+     * @param aggregateType the type of the aggregate operation
+     * @param dataType the data type of the computed result
+     */
+    AggregateDataDouble(AggregateType aggregateType, int dataType) {
+        this.aggregateType = aggregateType;
+        this.dataType = dataType;
+    }
+
+    @Override
+    void add(Database database, Value v) {
+        if (fallback != null) {
+            fallback.add(database, v);
+            return;
+        }
+        switch (v.getValueType()) {
+        case Value.NULL:
+            return;
+        case Value.FLOAT:
+        case Value.DOUBLE:
+            break;
+        default:
+            toDefault().add(database, v);
+            return;
+        }
+        double x = v.getDouble();
+        switch (aggregateType) {
+        case MIN:
+            if (count == 0 || Double.compare(x, value) < 0) {
+                value = x;
+                minMax = v;
+            }
+            break;
+        case MAX:
+            if (count == 0 || Double.compare(x, value) > 0) {
+                value = x;
+                minMax = v;
+            }
+            break;
+        default:
+            // the first value is not added to 0, to keep -0.0
+            value = count == 0 ? x : value + x;
+        }
+        count++;
+    }
+
+    @Override
+    void merge(Database database, AggregateData other) {
+        AggregateDataDouble o = (AggregateDataDouble) other;
+        if (fallback != null || o.fallback != null) {
+            toDefault().merge(database, o.toDefault());
+            return;
+        }
+        if (o.count == 0) {
+            return;
+        }
+        switch (aggregateType) {
+        case MIN:
+            if (count == 0 || Double.compare(o.value, value) < 0) {
+                value = o.value;
+                minMax = o.minMax;
+            }
+            break;
+        case MAX:
+            if (count == 0 || Double.compare(o.value, value) > 0) {
+                value = o.value;
+                minMax = o.minMax;
+            }
+            break;
+        default:
+            value = count == 0 ? o.value : value + o.value;
+        }
+        count += o.count;
+    }
+
+    @Override
+    Value getValue(Database database, int dataType) {
+        if (fallback != null) {
+            return fallback.getValue(database, dataType);
+        }
+        if (count == 0) {
+            return ValueNull.INSTANCE;
+        }
+        Value v = getAggregate();
+        if (aggregateType == AggregateType.AVG) {
+            v = AggregateDataDefault.divide(v, count);
+        }
+        return v.convertTo(dataType);
+    }
+
+    /**
+     * Get the minimum or maximum, or the sum as it would be computed by
+     * {@link AggregateDataDefault}.
+     */
+    private Value getAggregate() {
+        if (aggregateType == AggregateType.MIN || aggregateType == AggregateType.MAX) {
+            return minMax;
+        }
+        Value sum = ValueDouble.get(value);
+        return sum.convertTo(aggregateType == AggregateType.AVG ? DataType.getAddProofType(dataType) : dataType);
+    }
+
+    private AggregateDataDefault toDefault() {
+        if (fallback == null) {
+            fallback = new AggregateDataDefault(aggregateType, dataType, count == 0 ? null : getAggregate(), count);
+        }
+        return fallback;
+    }
+
+}
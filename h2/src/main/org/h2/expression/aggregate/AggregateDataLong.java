@@ -0,0 +1,177 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.aggregate;
+
+import java.math.BigDecimal;
+
+import org.h2.engine.Database;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueDecimal;
+import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
+
+/**
+ * Data stored while calculating a SUM, AVG, MIN, or MAX aggregate of integer
+ * values. The state is kept in primitive fields, so that adding a value does
+ * not create new objects. A sum that does not fit into a long is continued
+ * as a BigDecimal.
+ */
+final class AggregateDataLong extends AggregateData {
+
+    private final AggregateType aggregateType;
+    private final int dataType;
+    private long count;
+
+    /**
+     * The sum, or the minimum or maximum.
+     */
+    private long value;
+
+    /**
+     * The sum if it does not fit into a long, or null.
+     */
+    private BigDecimal bigSum;
+
+    /**
+     * The minimum or maximum value.
+     */
+    private Value minMax;
+
+    /**
+     * The aggregate data used after a value of another type was added, or
+     * null.
+     */
+    private AggregateDataDefault fallback;
+
+    /**
+     * @param aggregateType the type of the aggregate operation
+     * @param dataType the data type of the computed result
+     */
+    AggregateDataLong(AggregateType aggregateType, int dataType) {
+        this.aggregateType = aggregateType;
+        this.dataType = dataType;
+    }
+
+    @Override
+    void add(Database database, Value v) {
+        if (fallback != null) {
+            fallback.add(database, v);
+            return;
+        }
+        switch (v.getValueType()) {
+        case Value.NULL:
+            return;
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+            break;
+        default:
+            toDefault().add(database, v);
+            return;
+        }
+        long x = v.getLong();
+        switch (aggregateType) {
+        case MIN:
+            if (count == 0 || x < value) {
+                value = x;
+                minMax = v;
+            }
+            break;
+        case MAX:
+            if (count == 0 || x > value) {
+                value = x;
+                minMax = v;
+            }
+            break;
+        default:
+            addToSum(x);
+        }
+        count++;
+    }
+
+    private void addToSum(long x) {
+        if (bigSum != null) {
+            bigSum = bigSum.add(BigDecimal.valueOf(x));
+            return;
+        }
+        long result = value + x;
+        if (((value ^ result) & (x ^ result)) < 0) {
+            bigSum = BigDecimal.valueOf(value).add(BigDecimal.valueOf(x));
+        } else {
+            value = result;
+        }
+    }
+
+    @Override
+    void merge(Database database, AggregateData other) {
+        AggregateDataLong o = (AggregateDataLong) other;
+        if (fallback != null || o.fallback != null) {
+            toDefault().merge(database, o.toDefault());
+            return;
+        }
+        if (o.count == 0) {
+            return;
+        }
+        switch (aggregateType) {
+        case MIN:
+            if (count == 0 || o.value < value) {
+                value = o.value;
+                minMax = o.minMax;
+            }
+            break;
+        case MAX:
+            if (count == 0 || o.value > value) {
+                value = o.value;
+                minMax = o.minMax;
+            }
+            break;
+        default:
+            if (o.bigSum != null) {
+                bigSum = (bigSum != null ? bigSum : BigDecimal.valueOf(value)).add(o.bigSum);
+            } else {
+                addToSum(o.value);
+            }
+        }
+        count += o.count;
+    }
+
+    @Override
+    Value getValue(Database database, int dataType) {
+        if (fallback != null) {
+            return fallback.getValue(database, dataType);
+        }
+        if (count == 0) {
+            return ValueNull.INSTANCE;
+        }
+        Value v = getAggregate();
+        if (aggregateType == AggregateType.AVG) {
+            v = AggregateDataDefault.divide(v, count);
+        }
+        return v.convertTo(dataType);
+    }
+
+    /**
+     * Get the minimum or maximum, or the sum as it would be computed by
+     * {@link AggregateDataDefault}.
+     */
+    private Value getAggregate() {
+        if (aggregateType == AggregateType.MIN || aggregateType == AggregateType.MAX) {
+            return minMax;
+        }
+        Value sum = bigSum != null ? ValueDecimal.get(bigSum) : ValueLong.get(value);
+        return sum.convertTo(aggregateType == AggregateType.AVG ? DataType.getAddProofType(dataType) : dataType);
+    }
+
+    private AggregateDataDefault toDefault() {
+        if (fallback == null) {
+            fallback = new AggregateDataDefault(aggregateType, dataType, count == 0 ? null : getAggregate(), count);
+        }
+        return fallback;
+    }
+
+}
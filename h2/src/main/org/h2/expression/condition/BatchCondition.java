@@ -0,0 +1,229 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.expression.condition;
+
+import java.util.ArrayList;
+
+import org.h2.engine.Database;
+import org.h2.engine.Session;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueInt;
+import org.h2.value.ValueLong;
+import org.h2.value.ValueNull;
+
+/**
+ * The comparisons of columns with constants of a WHERE condition, evaluated
+ * over a batch of rows of a table scan. Each comparison checks one column of
+ * all selected rows of the batch in one loop and removes the rows that do not
+ * match from the selection, so the expression tree is not evaluated for each
+ * row. Integer columns are compared as long values.
+ */
+public final class BatchCondition {
+
+    private final Database database;
+
+    private final int[] columnIds;
+
+    private final int[] compareTypes;
+
+    private final Value[] constants;
+
+    /**
+     * The value type of the column if it is compared as long value, or -1.
+     */
+    private final int[] longTypes;
+
+    private final long[] longConstants;
+
+    /**
+     * The part of the condition that needs to be evaluated for each row, or
+     * null.
+     */
+    private final Expression remaining;
+
+    private BatchCondition(Session session, ArrayList<Comparison> comparisons, Expression remaining) {
+        database = session.getDatabase();
+        int count = comparisons.size();
+        columnIds = new int[count];
+        compareTypes = new int[count];
+        constants = new Value[count];
+        longTypes = new int[count];
+        longConstants = new long[count];
+        for (int i = 0; i < count; i++) {
+            Comparison comparison = comparisons.get(i);
+            Column column = ((ExpressionColumn) comparison.getSubexpression(0)).getColumn();
+            Value constant = comparison.getSubexpression(1).getValue(session);
+            columnIds[i] = column.getColumnId();
+            compareTypes[i] = comparison.getCompareType();
+            constants[i] = constant;
+            int type = constant.getValueType();
+            switch (type) {
+            case Value.BYTE:
+            case Value.SHORT:
+            case Value.INT:
+            case Value.LONG:
+                longTypes[i] = type;
+                longConstants[i] = constant.getLong();
+                break;
+            default:
+                longTypes[i] = -1;
+            }
+        }
+        this.remaining = remaining;
+    }
+
+    /**
+     * Split the condition into comparisons that can be evaluated over a batch
+     * of rows of the given table filter, and the remaining condition.
+     *
+     * @param session the session
+     * @param filter the table filter
+     * @param condition the condition
+     * @return the batch condition, or null if the condition has no such
+     *         comparisons
+     */
+    public static BatchCondition create(Session session, TableFilter filter, Expression condition) {
+        ArrayList<Comparison> comparisons = new ArrayList<>();
+        Expression remaining = split(session, filter, condition, comparisons);
+        if (comparisons.isEmpty()) {
+            return null;
+        }
+        return new BatchCondition(session, comparisons, remaining);
+    }
+
+    private static Expression split(Session session, TableFilter filter, Expression condition,
+            ArrayList<Comparison> comparisons) {
+        if (condition instanceof ConditionAndOr && ((ConditionAndOr) condition).getAndOrType() == ConditionAndOr.AND) {
+            Expression left = condition.getSubexpression(0), right = condition.getSubexpression(1);
+            Expression l = split(session, filter, left, comparisons);
+            Expression r = split(session, filter, right, comparisons);
+            if (l == null) {
+                return r;
+            } else if (r == null) {
+                return l;
+            } else if (l == left && r == right) {
+                return condition;
+            }
+            return new ConditionAndOr(ConditionAndOr.AND, l, r);
+        }
+        if (isColumnComparison(session, filter, condition)) {
+            comparisons.add((Comparison) condition);
+            return null;
+        }
+        return condition;
+    }
+
+    private static boolean isColumnComparison(Session session, TableFilter filter, Expression condition) {
+        if (!(condition instanceof Comparison)) {
+            return false;
+        }
+        Comparison comparison = (Comparison) condition;
+        switch (comparison.getCompareType()) {
+        case Comparison.EQUAL:
+        case Comparison.EQUAL_NULL_SAFE:
+        case Comparison.BIGGER_EQUAL:
+        case Comparison.BIGGER:
+        case Comparison.SMALLER_EQUAL:
+        case Comparison.SMALLER:
+        case Comparison.NOT_EQUAL:
+        case Comparison.NOT_EQUAL_NULL_SAFE:
+            break;
+        default:
+            return false;
+        }
+        Expression left = comparison.getSubexpression(0), right = comparison.getSubexpression(1);
+        if (!(left instanceof ExpressionColumn) || !right.isConstant()) {
+            return false;
+        }
+        ExpressionColumn expressionColumn = (ExpressionColumn) left;
+        Column column = expressionColumn.getColumn();
+        if (expressionColumn.getTableFilter() != filter || column.getColumnId() < 0) {
+            return false;
+        }
+        // only constants of the same type, so that the values of the column
+        // do not need to be converted
+        Value constant = right.getValue(session);
+        return constant != ValueNull.INSTANCE && constant.getValueType() == column.getType().getValueType();
+    }
+
+    /**
+     * Get the part of the condition that needs to be evaluated for each row.
+     *
+     * @return the remaining condition, or null
+     */
+    public Expression getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Remove the rows that do not match from the selection.
+     *
+     * @param rows the rows of the batch
+     * @param selection the indexes of the selected rows
+     * @param count the number of selected rows
+     * @return the new number of selected rows
+     */
+    public int filter(Row[] rows, int[] selection, int count) {
+        for (int i = 0, l = columnIds.length; i < l && count > 0; i++) {
+            count = filter(i, rows, selection, count);
+        }
+        return count;
+    }
+
+    private int filter(int index, Row[] rows, int[] selection, int count) {
+        int columnId = columnIds[index], compareType = compareTypes[index], longType = longTypes[index];
+        Value constant = constants[index];
+        long longConstant = longConstants[index];
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            int r = selection[i];
+            Value v = rows[r].getValue(columnId);
+            boolean result;
+            if (v instanceof ValueInt && longType == Value.INT) {
+                result = test(Long.compare(((ValueInt) v).getInt(), longConstant), compareType);
+            } else if (v instanceof ValueLong && longType == Value.LONG) {
+                result = test(Long.compare(((ValueLong) v).getLong(), longConstant), compareType);
+            } else if (v.getValueType() == longType) {
+                result = test(Long.compare(v.getLong(), longConstant), compareType);
+            } else if (v == ValueNull.INSTANCE) {
+                // the constant is never NULL
+                result = compareType == Comparison.NOT_EQUAL_NULL_SAFE;
+            } else {
+                boolean forEquality = compareType == Comparison.EQUAL || compareType == Comparison.NOT_EQUAL
+                        || (compareType & Comparison.NULL_SAFE) != 0;
+                result = test(database.compareWithNull(v, constant, forEquality), compareType);
+            }
+            if (result) {
+                selection[selected++] = r;
+            }
+        }
+        return selected;
+    }
+
+    private static boolean test(int cmp, int compareType) {
+        switch (compareType) {
+        case Comparison.EQUAL:
+        case Comparison.EQUAL_NULL_SAFE:
+            return cmp == 0;
+        case Comparison.BIGGER_EQUAL:
+            return cmp >= 0;
+        case Comparison.BIGGER:
+            return cmp > 0;
+        case Comparison.SMALLER_EQUAL:
+            return cmp <= 0;
+        case Comparison.SMALLER:
+            return cmp < 0;
+        default:
+            return cmp != 0;
+        }
+    }
+
+}
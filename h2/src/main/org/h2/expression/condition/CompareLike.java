@@ -5,6 +5,7 @@
  */
 package org.h2.expression.condition;
 
+import java.util.Objects;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import org.h2.api.ErrorCode;
@@ -21,6 +22,7 @@ import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
 import org.h2.value.CompareMode;
 import org.h2.value.DataType;
+import org.h2.value.TypeInfo;
 import org.h2.value.Value;
 import org.h2.value.ValueBoolean;
 import org.h2.value.ValueNull;
@@ -59,6 +61,18 @@ public class CompareLike extends Condition {
     private boolean shortcutToEndsWith;
     /** indicates that we can shortcut the comparison and use contains */
     private boolean shortcutToContains;
+    /** indicates that we can shortcut the comparison and use equals */
+    private boolean shortcutToEquals;
+    /** the string to search for if shortcutToContains is set */
+    private String containsString;
+
+    /**
+     * The pattern and the escape character the fields above were computed
+     * for, so that a pattern that is not a constant is only compiled again if
+     * it has changed.
+     */
+    private String lastPattern;
+    private Character lastEscape;
 
     public CompareLike(Database db, Expression left, Expression right,
             Expression escape, boolean regexp) {
@@ -104,7 +118,7 @@ public class CompareLike extends Condition {
         if (left.getType().getValueType() == Value.STRING_IGNORECASE) {
             ignoreCase = true;
         }
-        if (left.isValueSet()) {
+        if (left.isConstant()) {
             Value l = left.getValue(session);
             if (l == ValueNull.INSTANCE) {
                 // NULL LIKE something > NULL
@@ -114,8 +128,10 @@ public class CompareLike extends Condition {
         if (escape != null) {
             escape = escape.optimize(session);
         }
-        if (right.isValueSet() && (escape == null || escape.isValueSet())) {
-            if (left.isValueSet()) {
+        // parameters are not constant, so that the statement does not need to
+        // be prepared again when their values change
+        if (right.isConstant() && (escape == null || escape.isConstant())) {
+            if (left.isConstant()) {
                 return ValueExpression.getBoolean(getValue(session));
             }
             Value r = right.getValue(session);
@@ -178,71 +194,115 @@ public class CompareLike extends Condition {
         if (filter != l.getTableFilter()) {
             return;
         }
-        // parameters are always evaluatable, but
-        // we need to check if the value is set
-        // (at prepare time)
-        // otherwise we would need to prepare at execute time,
-        // which may be slower (possibly not in this case)
-        if (!right.isEverything(ExpressionVisitor.INDEPENDENT_VISITOR)) {
-            return;
-        }
-        if (escape != null &&
-                !escape.isEverything(ExpressionVisitor.INDEPENDENT_VISITOR)) {
+        if (!DataType.isStringType(l.getColumn().getType().getValueType())) {
+            // column is not a varchar - can't use the index
             return;
         }
-        String p = right.getValue(session).getString();
         if (!isInit) {
-            Value e = escape == null ? null : escape.getValue(session);
-            if (e == ValueNull.INSTANCE) {
-                // should already be optimized
-                DbException.throwInternalError();
+            // the pattern is only known at execution time, so the range is
+            // computed for each lookup
+            ExpressionVisitor visitor = ExpressionVisitor.getNotFromResolverVisitor(filter);
+            if (!right.isEverything(visitor) || escape != null && !escape.isEverything(visitor)) {
+                return;
             }
-            initPattern(p, getEscapeChar(e));
-        }
-        if (invalidPattern) {
+            filter.addIndexCondition(IndexCondition.get(Comparison.BIGGER_EQUAL, l, new PrefixBound(false)));
+            filter.addIndexCondition(IndexCondition.get(Comparison.SMALLER, l, new PrefixBound(true)));
             return;
         }
-        if (patternLength <= 0 || patternTypes[0] != MATCH) {
-            // can't use an index
-            return;
-        }
-        if (!DataType.isStringType(l.getColumn().getType().getValueType())) {
-            // column is not a varchar - can't use the index
+        if (invalidPattern) {
             return;
         }
         // Get the MATCH prefix and see if we can create an index condition from
         // that.
-        int maxMatch = 0;
-        StringBuilder buff = new StringBuilder();
-        while (maxMatch < patternLength && patternTypes[maxMatch] == MATCH) {
-            buff.append(patternChars[maxMatch++]);
+        String begin = getPrefix();
+        if (begin.isEmpty()) {
+            // can't use an index
+            return;
         }
-        String begin = buff.toString();
-        if (maxMatch == patternLength) {
+        if (begin.length() == patternLength) {
             filter.addIndexCondition(IndexCondition.get(Comparison.EQUAL, l,
                     ValueExpression.get(ValueString.get(begin))));
         } else {
-            // TODO check if this is correct according to Unicode rules
-            // (code points)
-            String end;
-            if (begin.length() > 0) {
+            filter.addIndexCondition(IndexCondition.get(
+                    Comparison.BIGGER_EQUAL, l,
+                    ValueExpression.get(ValueString.get(begin))));
+            String end = getPrefixEnd(begin);
+            if (end != null) {
                 filter.addIndexCondition(IndexCondition.get(
-                        Comparison.BIGGER_EQUAL, l,
-                        ValueExpression.get(ValueString.get(begin))));
-                char next = begin.charAt(begin.length() - 1);
-                // search the 'next' unicode character (or at least a character
-                // that is higher)
-                for (int i = 1; i < 2000; i++) {
-                    end = begin.substring(0, begin.length() - 1) + (char) (next + i);
-                    if (compareMode.compareString(begin, end, ignoreCase) == -1) {
-                        filter.addIndexCondition(IndexCondition.get(
-                                Comparison.SMALLER, l,
-                                ValueExpression.get(ValueString.get(end))));
-                        break;
-                    }
-                }
+                        Comparison.SMALLER, l,
+                        ValueExpression.get(ValueString.get(end))));
+            }
+        }
+    }
+
+    /**
+     * Get the characters at the start of the pattern that need to match
+     * exactly.
+     *
+     * @return the prefix
+     */
+    private String getPrefix() {
+        int maxMatch = 0;
+        while (maxMatch < patternLength && patternTypes[maxMatch] == MATCH) {
+            maxMatch++;
+        }
+        return new String(patternChars, 0, maxMatch);
+    }
+
+    /**
+     * Get a string that is larger than all strings that start with the given
+     * prefix.
+     *
+     * @param begin the prefix
+     * @return the string, or null if none was found
+     */
+    private String getPrefixEnd(String begin) {
+        // TODO check if this is correct according to Unicode rules
+        // (code points)
+        char next = begin.charAt(begin.length() - 1);
+        // search the 'next' unicode character (or at least a character
+        // that is higher)
+        for (int i = 1; i < 2000; i++) {
+            String end = begin.substring(0, begin.length() - 1) + (char) (next + i);
+            if (compareMode.compareString(begin, end, ignoreCase) == -1) {
+                return end;
             }
         }
+        return null;
+    }
+
+    /**
+     * Get the lower or upper bound of the values that can match the current
+     * value of the pattern.
+     *
+     * @param session the session
+     * @param upper whether the upper bound (exclusive) is requested
+     * @return the bound, or null if the values are not limited
+     */
+    Value getPrefixBound(Session session, boolean upper) {
+        Value r = right.getValue(session);
+        if (r == ValueNull.INSTANCE) {
+            return null;
+        }
+        Value e = escape == null ? null : escape.getValue(session);
+        if (e == ValueNull.INSTANCE) {
+            return null;
+        }
+        initPattern(r.getString(), getEscapeChar(e));
+        if (invalidPattern) {
+            return null;
+        }
+        String begin = getPrefix();
+        if (begin.isEmpty()) {
+            return null;
+        }
+        if (upper) {
+            begin = getPrefixEnd(begin);
+            if (begin == null) {
+                return null;
+            }
+        }
+        return ValueString.get(begin);
     }
 
     @Override
@@ -276,12 +336,15 @@ public class CompareLike extends Condition {
             result = value.regionMatches(ignoreCase, value.length() -
                     patternLength + 1, patternString, 1, patternLength - 1);
         } else if (shortcutToContains) {
-            String p = patternString.substring(1, patternString.length() - 1);
             if (ignoreCase) {
-                result = containsIgnoreCase(value, p);
+                result = containsIgnoreCase(value, containsString);
             } else {
-                result = value.contains(p);
+                // String.indexOf is an intrinsic of most virtual machines
+                result = value.indexOf(containsString) >= 0;
             }
+        } else if (shortcutToEquals) {
+            result = value.length() == patternLength
+                    && value.regionMatches(ignoreCase, 0, patternString, 0, patternLength);
         } else {
             result = compareAt(value, 0, 0, value.length(), patternChars, patternTypes);
         }
@@ -368,6 +431,18 @@ public class CompareLike extends Condition {
     }
 
     private void initPattern(String p, Character escapeChar) {
+        if (p != null && p.equals(lastPattern) && Objects.equals(escapeChar, lastEscape)) {
+            // compiled already
+            return;
+        }
+        lastPattern = null;
+        compilePattern(p, escapeChar);
+        lastPattern = p;
+        lastEscape = escapeChar;
+    }
+
+    private void compilePattern(String p, Character escapeChar) {
+        invalidPattern = false;
         if (compareMode.getName().equals(CompareMode.OFF) && !ignoreCase) {
             fastCompare = true;
         }
@@ -385,6 +460,11 @@ public class CompareLike extends Condition {
             return;
         }
         patternLength = 0;
+        shortcutToStartsWith = false;
+        shortcutToEndsWith = false;
+        shortcutToContains = false;
+        shortcutToEquals = false;
+        containsString = null;
         if (p == null) {
             patternTypes = null;
             patternChars = null;
@@ -428,17 +508,18 @@ public class CompareLike extends Condition {
         }
         patternString = new String(patternChars, 0, patternLength);
 
-        // Clear optimizations
-        shortcutToStartsWith = false;
-        shortcutToEndsWith = false;
-        shortcutToContains = false;
-
         // optimizes the common case of LIKE 'foo%'
         if (compareMode.getName().equals(CompareMode.OFF) && patternLength > 1) {
             int maxMatch = 0;
             while (maxMatch < patternLength && patternTypes[maxMatch] == MATCH) {
                 maxMatch++;
             }
+            if (maxMatch == patternLength) {
+                // a pattern without wildcards, which is only possible here
+                // if it is not a constant
+                shortcutToEquals = true;
+                return;
+            }
             if (maxMatch == patternLength - 1 && patternTypes[patternLength - 1] == ANY) {
                 shortcutToStartsWith = true;
                 return;
@@ -466,6 +547,7 @@ public class CompareLike extends Condition {
                 }
                 if (maxMatch == patternLength - 1 && patternTypes[patternLength - 1] == ANY) {
                     shortcutToContains = true;
+                    containsString = patternString.substring(1, patternLength - 1);
                 }
             }
         }
@@ -475,8 +557,8 @@ public class CompareLike extends Condition {
         if (patternTypes == null) {
             return false;
         }
-        for (int type : patternTypes) {
-            if (type != MATCH) {
+        for (int i = 0; i < patternLength; i++) {
+            if (patternTypes[i] != MATCH) {
                 return false;
             }
         }
@@ -543,4 +625,70 @@ public class CompareLike extends Condition {
         }
     }
 
+    /**
+     * The lower or upper bound of an index lookup for a pattern that is only
+     * known at execution time. The bound is computed from the prefix of the
+     * current value of the pattern.
+     */
+    private final class PrefixBound extends Expression {
+
+        private final boolean upper;
+
+        PrefixBound(boolean upper) {
+            this.upper = upper;
+        }
+
+        @Override
+        public Value getValue(Session session) {
+            return getPrefixBound(session, upper);
+        }
+
+        @Override
+        public TypeInfo getType() {
+            return left.getType();
+        }
+
+        @Override
+        public void mapColumns(ColumnResolver resolver, int level, int state) {
+            // mapped by the condition
+        }
+
+        @Override
+        public Expression optimize(Session session) {
+            return this;
+        }
+
+        @Override
+        public void setEvaluatable(TableFilter tableFilter, boolean b) {
+            // set by the condition
+        }
+
+        @Override
+        public StringBuilder getSQL(StringBuilder builder, boolean alwaysQuote) {
+            builder.append(upper ? "PREFIX_END(" : "PREFIX(");
+            right.getSQL(builder, alwaysQuote);
+            if (escape != null) {
+                builder.append(" ESCAPE ");
+                escape.getSQL(builder, alwaysQuote);
+            }
+            return builder.append(')');
+        }
+
+        @Override
+        public void updateAggregate(Session session, int stage) {
+            // updated by the condition
+        }
+
+        @Override
+        public boolean isEverything(ExpressionVisitor visitor) {
+            return right.isEverything(visitor) && (escape == null || escape.isEverything(visitor));
+        }
+
+        @Override
+        public int getCost() {
+            return right.getCost() + 1;
+        }
+
+    }
+
 }
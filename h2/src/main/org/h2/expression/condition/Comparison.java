@@ -607,6 +607,15 @@ public class Comparison extends Condition {
         return new ConditionIn(session.getDatabase(), left, right);
     }
 
+    /**
+     * Get the comparison type.
+     *
+     * @return the comparison type
+     */
+    int getCompareType() {
+        return compareType;
+    }
+
     @Override
     public int getSubexpressionCount() {
         return 2;
@@ -283,6 +283,15 @@ public class ConditionAndOr extends Condition {
         return left.getCost() + right.getCost();
     }
 
+    /**
+     * Get the type of this condition.
+     *
+     * @return {@link #AND} or {@link #OR}
+     */
+    int getAndOrType() {
+        return andOrType;
+    }
+
     @Override
     public int getSubexpressionCount() {
         return 2;
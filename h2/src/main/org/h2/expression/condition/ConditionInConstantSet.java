@@ -6,6 +6,7 @@
 package org.h2.expression.condition;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.TreeSet;
 
 import org.h2.engine.Database;
@@ -17,6 +18,8 @@ import org.h2.index.IndexCondition;
 import org.h2.message.DbException;
 import org.h2.table.ColumnResolver;
 import org.h2.table.TableFilter;
+import org.h2.util.LongHashSet;
+import org.h2.value.DataType;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
 import org.h2.value.ValueBoolean;
@@ -30,11 +33,27 @@ public class ConditionInConstantSet extends Condition {
 
     private Expression left;
     private final ArrayList<Expression> valueList;
-    // HashSet cannot be used here, because we need to compare values of
-    // different type or scale properly.
-    private final TreeSet<Value> valueSet;
     private boolean hasNull;
     private final TypeInfo type;
+    private final int valueType;
+
+    /**
+     * The constants if the left expression has an integer type, or null.
+     */
+    private LongHashSet longSet;
+
+    /**
+     * The constants if the left expression has a type with hash codes that
+     * are consistent with comparison, or null.
+     */
+    private HashSet<Value> hashSet;
+
+    /**
+     * The constants in a sorted set. Used if the constants can not be hashed,
+     * or to compare values of a different type or scale than the left
+     * expression. Created lazily if one of the hash sets is used.
+     */
+    private TreeSet<Value> valueSet;
 
     /**
      * Create a new IN(..) condition.
@@ -50,8 +69,22 @@ public class ConditionInConstantSet extends Condition {
         this.left = left;
         this.valueList = valueList;
         Database database = session.getDatabase();
-        this.valueSet = new TreeSet<>(database.getCompareMode());
         type = left.getType();
+        valueType = type.getValueType();
+        switch (valueType) {
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+            longSet = new LongHashSet();
+            break;
+        default:
+            if (DataType.hasConsistentHashCode(valueType, database.getCompareMode())) {
+                hashSet = new HashSet<>();
+            } else {
+                valueSet = new TreeSet<>(database.getCompareMode());
+            }
+        }
         for (Expression expression : valueList) {
             add(expression.getValue(session).convertTo(type, database, true, null));
         }
@@ -60,18 +93,50 @@ public class ConditionInConstantSet extends Condition {
     private void add(Value v) {
         if (v.containsNull()) {
             hasNull = true;
-        } else {
+            return;
+        }
+        if (longSet != null) {
+            longSet.add(v.getLong());
+        } else if (hashSet != null) {
+            hashSet.add(v);
+        }
+        if (valueSet != null) {
             valueSet.add(v);
         }
     }
 
+    private TreeSet<Value> getValueSet(Session session) {
+        TreeSet<Value> set = valueSet;
+        if (set == null) {
+            Database database = session.getDatabase();
+            set = new TreeSet<>(database.getCompareMode());
+            for (Expression expression : valueList) {
+                Value v = expression.getValue(session).convertTo(type, database, true, null);
+                if (!v.containsNull()) {
+                    set.add(v);
+                }
+            }
+            valueSet = set;
+        }
+        return set;
+    }
+
     @Override
     public Value getValue(Session session) {
         Value x = left.getValue(session);
         if (x.containsNull()) {
             return x;
         }
-        boolean result = valueSet.contains(x);
+        boolean result;
+        if (x.getValueType() != valueType) {
+            result = getValueSet(session).contains(x);
+        } else if (longSet != null) {
+            result = longSet.contains(x.getLong());
+        } else if (hashSet != null) {
+            result = hashSet.contains(x);
+        } else {
+            result = valueSet.contains(x);
+        }
         if (!result && hasNull) {
             return ValueNull.INSTANCE;
         }
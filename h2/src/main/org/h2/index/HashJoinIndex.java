@@ -0,0 +1,237 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.h2.command.dml.AllColumnsForPlan;
+import org.h2.engine.Session;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.table.TableType;
+import org.h2.value.DataType;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * A hash table over the rows of the inner table of a join, used to look up
+ * the rows that match an equality join condition if the table has no usable
+ * index. The hash table is built with one table scan on the first lookup of
+ * a query execution (build phase), each row of the outer table then only
+ * needs one hash lookup (probe phase) instead of a scan.
+ * <p>
+ * This index is not part of the schema; it only exists in the plan of a
+ * query. If the table has more than MAX_MEMORY_ROWS rows, or the lookup is
+ * not a simple equality, the table is scanned as it would be without this
+ * index.
+ * </p>
+ */
+public class HashJoinIndex extends BaseIndex {
+
+    private final int columnId;
+
+    private final int valueType;
+
+    /**
+     * The session the hash table was built for, or null.
+     */
+    private Session buildSession;
+
+    /**
+     * Map of column value to a row or an ArrayList of rows, or null if the
+     * table has too many rows.
+     */
+    private HashMap<Value, Object> rows;
+
+    private HashJoinIndex(Table table, Column column) {
+        super(table, 0, "HASH_JOIN", IndexColumn.wrap(new Column[] { column }),
+                IndexType.createNonUnique(false, true, false));
+        columnId = column.getColumnId();
+        valueType = column.getType().getValueType();
+    }
+
+    /**
+     * Create a hash join index for the given table if it has no usable index
+     * and the join condition is an equality with a column that can be hashed.
+     *
+     * @param session the session
+     * @param table the table
+     * @param masks per-column comparison bit masks
+     * @return the index, or null if a hash join can not be used
+     */
+    public static HashJoinIndex create(Session session, Table table, int[] masks) {
+        if (table.getTableType() != TableType.TABLE
+                || table.getRowCountApproximation() > session.getDatabase().getMaxMemoryRows()) {
+            return null;
+        }
+        Column[] columns = table.getColumns();
+        for (int i = 0; i < masks.length; i++) {
+            if ((masks[i] & IndexCondition.EQUALITY) == IndexCondition.EQUALITY) {
+                Column column = columns[i];
+                if (DataType.hasConsistentHashCode(column.getType().getValueType(),
+                        session.getDatabase().getCompareMode())) {
+                    return new HashJoinIndex(table, column);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Cursor find(Session session, SearchRow first, SearchRow last) {
+        Value v = first != null && last != null ? first.getValue(columnId) : null;
+        if (v == null || v.getValueType() != valueType || !v.equals(last.getValue(columnId))) {
+            // not an equality condition, or a NULL or a value that needs to be
+            // converted before it can be compared
+            return scan(session);
+        }
+        if (buildSession != session) {
+            build(session);
+        }
+        if (rows == null) {
+            return scan(session);
+        }
+        Object o = rows.get(v);
+        if (o instanceof Row || o == null) {
+            return new SingleRowCursor((Row) o);
+        }
+        @SuppressWarnings("unchecked")
+        ArrayList<Row> list = (ArrayList<Row>) o;
+        return new MetaCursor(list);
+    }
+
+    private Cursor scan(Session session) {
+        return table.getScanIndex(session).find(session, null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void build(Session session) {
+        buildSession = session;
+        rows = null;
+        int maxMemoryRows = session.getDatabase().getMaxMemoryRows();
+        HashMap<Value, Object> map = new HashMap<>();
+        Cursor cursor = scan(session);
+        int count = 0;
+        while (cursor.next()) {
+            if (++count > maxMemoryRows) {
+                return;
+            }
+            Row row = cursor.get();
+            Value v = row.getValue(columnId);
+            if (v == ValueNull.INSTANCE) {
+                continue;
+            }
+            Object old = map.get(v);
+            if (old == null) {
+                map.put(v, row);
+            } else if (old instanceof Row) {
+                ArrayList<Row> list = new ArrayList<>(4);
+                list.add((Row) old);
+                list.add(row);
+                map.put(v, list);
+            } else {
+                ((ArrayList<Row>) old).add(row);
+            }
+        }
+        rows = map;
+    }
+
+    /**
+     * Release the hash table. It is built again on the next lookup.
+     */
+    public void release() {
+        buildSession = null;
+        rows = null;
+    }
+
+    @Override
+    public double getCost(Session session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        long rowCount = table.getRowCountApproximation();
+        // the rows are not sorted; a lookup is assumed to cost as much as with
+        // a non-covering secondary index of the MVStore
+        long cost = 10 * getCostRangeIndex(masks, rowCount, filters, filter, null, false, null);
+        if (sortOrder != null) {
+            cost += 100 + rowCount / 10;
+        }
+        // building the hash table needs one table scan; to prefer real
+        // indexes, assume it is only shared by 10 lookups
+        return cost + table.getScanIndex(session).getCost(session, null, filters, filter, null, allColumnsSet) / 10;
+    }
+
+    @Override
+    public String getPlanSQL() {
+        StringBuilder builder = table.getSQL(new StringBuilder(), false).append(".hashJoin(");
+        return columns[0].getSQL(builder, false).append(')').toString();
+    }
+
+    @Override
+    public void close(Session session) {
+        release();
+    }
+
+    @Override
+    public void add(Session session, Row row) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public void remove(Session session, Row row) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public void remove(Session session) {
+        release();
+    }
+
+    @Override
+    public void truncate(Session session) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public boolean canGetFirstOrLast() {
+        return false;
+    }
+
+    @Override
+    public Cursor findFirstOrLast(Session session, boolean first) {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(Session session) {
+        return table.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation() {
+        return table.getRowCountApproximation();
+    }
+
+    @Override
+    public long getDiskSpaceUsed() {
+        return 0;
+    }
+
+    @Override
+    public void checkRename() {
+        throw DbException.getUnsupportedException("HASH JOIN");
+    }
+
+}
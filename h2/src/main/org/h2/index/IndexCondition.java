@@ -132,7 +132,8 @@ public class IndexCondition {
      * Get the current value of the expression.
      *
      * @param session the session
-     * @return the value
+     * @return the value, or null if the condition does not limit the range of
+     *         rows for the current values of the parameters
      */
     public Value getCurrentValue(Session session) {
         return expression.getValue(session);
@@ -106,6 +106,10 @@ public class IndexCursor implements Cursor {
                 }
             } else {
                 Value v = condition.getCurrentValue(s);
+                if (v == null) {
+                    // the condition does not limit the range this time
+                    continue;
+                }
                 boolean isStart = condition.isStart();
                 boolean isEnd = condition.isEnd();
                 boolean isIntersects = condition.isSpatialIntersects();
@@ -203,6 +203,18 @@ public class JdbcPreparedStatement extends JdbcStatement implements
         return updateCount;
     }
 
+    private int[] executeBatchUpdateInternal(DbException[] exceptions) throws SQLException {
+        closeOldResultSet();
+        synchronized (session) {
+            try {
+                setExecutingStatement(command);
+                return command.executeBatchUpdate(batchParameters, exceptions);
+            } finally {
+                setExecutingStatement(null);
+            }
+        }
+    }
+
     /**
      * Executes an arbitrary statement. If another result set exists for this
      * statement, this will be closed (even if this statement fails). If auto
@@ -1202,10 +1214,31 @@ public class JdbcPreparedStatement extends JdbcStatement implements
             }
             batchIdentities = new MergedResult();
             int size = batchParameters.size();
-            int[] result = new int[size];
             SQLException first = null;
             SQLException last = null;
             checkClosedForWrite();
+            if (size > 1 && (generatedKeysRequest == null || Boolean.FALSE.equals(generatedKeysRequest))) {
+                DbException[] exceptions = new DbException[size];
+                int[] result = executeBatchUpdateInternal(exceptions);
+                if (result != null) {
+                    for (DbException exception : exceptions) {
+                        if (exception != null) {
+                            SQLException e = logAndConvert(exception);
+                            if (last == null) {
+                                first = last = e;
+                            } else {
+                                last.setNextException(e);
+                            }
+                        }
+                    }
+                    batchParameters = null;
+                    if (first != null) {
+                        throw new JdbcBatchUpdateException(first, result);
+                    }
+                    return result;
+                }
+            }
+            int[] result = new int[size];
             for (int i = 0; i < size; i++) {
                 Value[] set = batchParameters.get(i);
                 ArrayList<? extends ParameterInterface> parameters =
@@ -101,6 +101,22 @@ public class FileStore {
         return dst;
     }
 
+    /**
+     * Start a read. The buffers returned by readFully until the matching call
+     * to endRead may be used until then, but not afterwards. Reads must be
+     * ended in a finally block.
+     */
+    public void beginRead() {
+        // buffers are not shared
+    }
+
+    /**
+     * End a read that was started with beginRead.
+     */
+    public void endRead() {
+        // buffers are not shared
+    }
+
     /**
      * Write to the file.
      *
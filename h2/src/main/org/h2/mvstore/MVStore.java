@@ -24,7 +24,12 @@ import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -35,6 +40,7 @@ import org.h2.compress.CompressDeflate;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
 import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
 import org.h2.util.MathUtils;
 import org.h2.util.Utils;
 
@@ -151,6 +157,11 @@ public class MVStore implements AutoCloseable
     private static final int FORMAT_WRITE = 1;
     private static final int FORMAT_READ = 1;
 
+    /**
+     * The minimum number of leaf pages per serialization task.
+     */
+    private static final int PARALLEL_SERIALIZATION_MIN_PAGES = 32;
+
     /**
      * Store is open.
      */
@@ -181,6 +192,27 @@ public class MVStore implements AutoCloseable
      */
     private final ReentrantLock storeLock = new ReentrantLock(true);
 
+    /**
+     * The monitor of the group commit, see commitAndSync().
+     */
+    private final Object groupCommitSync = new Object();
+
+    /**
+     * The number of calls to commitAndSync() so far.
+     */
+    private long groupCommitRequested;
+
+    /**
+     * The number of calls to commitAndSync() whose changes are stored and
+     * synced.
+     */
+    private long groupCommitDone;
+
+    /**
+     * Whether a thread is currently storing and syncing for the group commit.
+     */
+    private boolean groupCommitRunning;
+
     /**
      * Reference to a background thread, which is expected to be running, if any.
      */
@@ -205,6 +237,19 @@ public class MVStore implements AutoCloseable
      */
     private final CacheLongKeyLIRS<Page> cache;
 
+    /**
+     * The second level page cache, which keeps the serialized pages in
+     * off-heap memory, or null if not used. Pages that are not in the page
+     * cache are read from this cache before they are read from the file.
+     */
+    private final CacheLongKeyOffHeap offHeapCache;
+
+    /**
+     * The redo log, or null if not used. If used, chunks are only written
+     * while holding its checkpoint lock, and the log is cleared afterwards.
+     */
+    private final RedoLog redoLog;
+
     /**
      * The newest chunk. If nothing was stored yet, this field is not set.
      */
@@ -247,6 +292,17 @@ public class MVStore implements AutoCloseable
 
     private Compressor compressorHigh;
 
+    /**
+     * The number of threads used to serialize and compress leaf pages when
+     * storing a chunk, or 0 to do that on the storing thread.
+     */
+    private final int serializationThreads;
+
+    /**
+     * The pool of serialization threads, created when first needed.
+     */
+    private ExecutorService serializationExecutor;
+
     private final boolean recoveryMode;
 
     private final UncaughtExceptionHandler backgroundExceptionHandler;
@@ -333,21 +389,25 @@ public class MVStore implements AutoCloseable
         FileStore fileStore = (FileStore) config.get("fileStore");
         fileStoreIsProvided = fileStore != null;
         if(fileStore == null && fileName != null) {
-            fileStore = new FileStore();
+            fileStore = config.containsKey("memoryMapped") ? new MappedFileStore() : new FileStore();
         }
         this.fileStore = fileStore;
 
         int pgSplitSize = 48; // for "mem:" case it is # of keys
         CacheLongKeyLIRS.Config cc = null;
+        CacheLongKeyOffHeap offHeap = null;
         if (this.fileStore != null) {
             int mb = DataUtils.getConfigParam(config, "cacheSize", 16);
+            int concurrency = DataUtils.getConfigParam(config, "cacheConcurrency", 16);
             if (mb > 0) {
                 cc = new CacheLongKeyLIRS.Config();
                 cc.maxMemory = mb * 1024L * 1024L;
-                Object o = config.get("cacheConcurrency");
-                if (o != null) {
-                    cc.segmentCount = (Integer)o;
-                }
+                cc.segmentCount = concurrency;
+                cc.readBuffers = config.containsKey("cacheReadBuffers");
+            }
+            mb = DataUtils.getConfigParam(config, "offHeapCacheSize", 0);
+            if (mb > 0) {
+                offHeap = new CacheLongKeyOffHeap(mb * 1024L * 1024L, concurrency);
             }
             pgSplitSize = 16 * 1024;
         }
@@ -356,6 +416,7 @@ public class MVStore implements AutoCloseable
         } else {
             cache = null;
         }
+        offHeapCache = offHeap;
 
         pgSplitSize = DataUtils.getConfigParam(config, "pageSplitSize", pgSplitSize);
         // Make sure pages will fit into cache
@@ -364,6 +425,7 @@ public class MVStore implements AutoCloseable
         }
         pageSplitSize = pgSplitSize;
         keysPerPage = DataUtils.getConfigParam(config, "keysPerPage", 48);
+        serializationThreads = DataUtils.getConfigParam(config, "serializationThreads", 0);
         backgroundExceptionHandler =
                 (UncaughtExceptionHandler)config.get("backgroundExceptionHandler");
         meta = new MVMap<>(this);
@@ -375,6 +437,7 @@ public class MVStore implements AutoCloseable
             autoCommitMemory = kb * 1024;
             autoCompactFillRate = DataUtils.getConfigParam(config, "autoCompactFillRate", 90);
             char[] encryptionKey = (char[]) config.get("encryptionKey");
+            RedoLog log = null;
             try {
                 if (!fileStoreIsProvided) {
                     boolean readOnly = config.containsKey("readOnly");
@@ -398,6 +461,10 @@ public class MVStore implements AutoCloseable
                         storeLock.unlock();
                     }
                 }
+                String redoLogName = (String) config.get("redoLog");
+                if (redoLogName != null && !this.fileStore.isReadOnly()) {
+                    log = new RedoLog(redoLogName, creationTime, lastChunk == null ? 0 : lastChunk.version);
+                }
             } catch (IllegalStateException e) {
                 panic(e);
             } finally {
@@ -405,6 +472,7 @@ public class MVStore implements AutoCloseable
                     Arrays.fill(encryptionKey, (char) 0);
                 }
             }
+            redoLog = log;
             lastCommitTime = getTimeSinceCreation();
 
             scrubMetaMap();
@@ -416,6 +484,7 @@ public class MVStore implements AutoCloseable
         } else {
             autoCommitMemory = 0;
             autoCompactFillRate = 0;
+            redoLog = null;
         }
     }
 
@@ -547,7 +616,7 @@ public class MVStore implements AutoCloseable
             meta.put(MVMap.getMapKey(id), map.asString(name));
             meta.put(DataUtils.META_NAME + name, x);
             map.setRootPos(0, lastStoredVersion);
-            markMetaChanged();
+            markMapsChanged();
             @SuppressWarnings("unchecked")
             M existingMap = (M) maps.putIfAbsent(id, map);
             if (existingMap != null) {
@@ -687,6 +756,15 @@ public class MVStore implements AutoCloseable
         metaChanged = true;
     }
 
+    private void markMapsChanged() {
+        markMetaChanged();
+        if (redoLog != null) {
+            // the redo log only contains changes of the map contents, so a
+            // commit after maps were added or removed needs a new chunk
+            redoLog.setUnloggedChanges();
+        }
+    }
+
     private void readStoreHeader() {
         Chunk newest = null;
         boolean assumeCleanShutdown = true;
@@ -1189,9 +1267,16 @@ public class MVStore implements AutoCloseable
                             chunks.clear();
                             maps.clear();
                         } finally {
+                            if (serializationExecutor != null) {
+                                serializationExecutor.shutdown();
+                                serializationExecutor = null;
+                            }
                             if (fileStore != null && !fileStoreIsProvided) {
                                 fileStore.close();
                             }
+                            if (redoLog != null) {
+                                redoLog.close();
+                            }
                         }
                     } finally {
                         state = STATE_CLOSED;
@@ -1211,7 +1296,17 @@ public class MVStore implements AutoCloseable
      * @return ByteBuffer containing page data.
      */
     private ByteBuffer readBufferForPage(long pos, int expectedMapId) {
-        return getChunk(pos).readBufferForPage(fileStore, pos, expectedMapId);
+        if (offHeapCache == null) {
+            return getChunk(pos).readBufferForPage(fileStore, pos, expectedMapId);
+        }
+        // the cached data starts after the page header, which was verified
+        // when the page was read from the file
+        ByteBuffer buff = offHeapCache.get(pos);
+        if (buff == null) {
+            buff = getChunk(pos).readBufferForPage(fileStore, pos, expectedMapId);
+            offHeapCache.put(pos, buff);
+        }
+        return buff;
     }
 
     /**
@@ -1267,7 +1362,7 @@ public class MVStore implements AutoCloseable
         // because meta map is modified within storeNow() and that
         // causes beforeWrite() call with possibility of going back here
         if ((!storeLock.isHeldByCurrentThread() || currentStoreVersion < 0) &&
-                storeLock.tryLock()) {
+                !isCommitting() && storeLock.tryLock()) {
             try {
                 store();
             } finally {
@@ -1297,7 +1392,7 @@ public class MVStore implements AutoCloseable
         // we need to prevent re-entrance, which may be possible,
         // because meta map is modified within storeNow() and that
         // causes beforeWrite() call with possibility of going back here
-        if(!storeLock.isHeldByCurrentThread() || currentStoreVersion < 0) {
+        if ((!storeLock.isHeldByCurrentThread() || currentStoreVersion < 0) && !isCommitting()) {
             storeLock.lock();
             try {
                 store();
@@ -1308,6 +1403,72 @@ public class MVStore implements AutoCloseable
         return currentVersion;
     }
 
+    /**
+     * Check whether the current thread holds the commit lock of the redo log.
+     * Such a thread can not write a chunk, because writing a chunk waits for
+     * the lock to be released.
+     *
+     * @return true if it holds the lock
+     */
+    private boolean isCommitting() {
+        return redoLog != null && redoLog.isCommitLockHeld();
+    }
+
+    /**
+     * Commit the changes, and sync them to the storage. When this method
+     * returns, the changes that were made before it was called are durable.
+     * <p>
+     * Concurrent calls are grouped: while one thread stores and syncs, the
+     * other threads wait, and then one of them stores and syncs the changes
+     * of all waiting threads at once. This way, concurrent commits need only
+     * one store operation and one sync.
+     *
+     * @return the new version (incremented if there were changes)
+     */
+    public long commitAndSync() {
+        if (storeLock.isHeldByCurrentThread() && currentStoreVersion >= 0) {
+            // called while storing, see commit()
+            return currentVersion;
+        }
+        long target;
+        synchronized (groupCommitSync) {
+            long request = ++groupCommitRequested;
+            boolean interrupted = false;
+            while (groupCommitRunning && groupCommitDone < request) {
+                try {
+                    groupCommitSync.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (groupCommitDone >= request) {
+                // stored and synced by another thread
+                return currentVersion;
+            }
+            groupCommitRunning = true;
+            // the changes of all threads that are waiting now are stored
+            target = groupCommitRequested;
+        }
+        boolean success = false;
+        try {
+            commit();
+            sync();
+            success = true;
+        } finally {
+            synchronized (groupCommitSync) {
+                groupCommitRunning = false;
+                if (success) {
+                    groupCommitDone = target;
+                }
+                groupCommitSync.notifyAll();
+            }
+        }
+        return currentVersion;
+    }
+
     private void store() {
         store(0, reuseSpace ? 0 : getAfterLastBlock());
     }
@@ -1316,6 +1477,15 @@ public class MVStore implements AutoCloseable
         assert storeLock.isHeldByCurrentThread();
         if (isOpenOrStopping()) {
             if (hasUnsavedChanges()) {
+                if (redoLog != null) {
+                    redoLog.lockCheckpoint();
+                    try {
+                        storeAndCheckpoint(reservedLow, reservedHigh);
+                    } finally {
+                        redoLog.unlockCheckpoint();
+                    }
+                    return;
+                }
                 dropUnusedChunks();
                 try {
                     currentStoreVersion = currentVersion;
@@ -1348,6 +1518,39 @@ public class MVStore implements AutoCloseable
         }
     }
 
+    /**
+     * Store the changes, sync the file, and replace the redo log. The
+     * checkpoint lock of the redo log is held, so that no commit is in
+     * progress.
+     *
+     * @param reservedLow the start of the reserved area
+     * @param reservedHigh the end of the reserved area
+     */
+    private void storeAndCheckpoint(long reservedLow, long reservedHigh) {
+        dropUnusedChunks();
+        try {
+            currentStoreVersion = currentVersion;
+            if (fileStore.isReadOnly()) {
+                throw DataUtils.newIllegalStateException(
+                        DataUtils.ERROR_WRITING_FAILED, "This store is read-only");
+            }
+            try {
+                // storeNow increments the version
+                redoLog.prepareCheckpoint(currentVersion + 1);
+                storeNow(reservedLow, reservedHigh);
+                fileStore.sync();
+                redoLog.checkpoint(lastChunk.version);
+            } catch (IllegalStateException e) {
+                panic(e);
+            } catch (Throwable e) {
+                panic(DataUtils.newIllegalStateException(DataUtils.ERROR_INTERNAL, "{0}", e.toString(),
+                        e));
+            }
+        } finally {
+            currentStoreVersion = -1;
+        }
+    }
+
     private void storeNow(long reservedLow, long reservedHigh) {
         long time = getTimeSinceCreation();
         int currentUnsavedPageCount = unsavedMemory;
@@ -1414,6 +1617,9 @@ public class MVStore implements AutoCloseable
                 }
             }
         }
+        if (serializationThreads > 0) {
+            serializeLeavesInParallel(changed);
+        }
         WriteBuffer buff = getWriteBuffer();
         // need to patch the header later
         c.writeChunkHeader(buff, 0);
@@ -1537,6 +1743,117 @@ public class MVStore implements AutoCloseable
         lastStoredVersion = storeVersion;
     }
 
+    /**
+     * Serialize and compress the unsaved leaf pages of the changed maps using
+     * the serialization threads. The position of a page in the chunk is only
+     * known when it is written, so the pages are still written (and the node
+     * pages serialized) sequentially afterwards, but writing a leaf then only
+     * copies its serialized body.
+     *
+     * @param changed the root pages of the changed maps
+     */
+    private void serializeLeavesInParallel(ArrayList<Page> changed) {
+        final ArrayList<Page.Leaf> leaves = new ArrayList<>();
+        for (Page p : changed) {
+            if (p.getTotalCount() != 0) {
+                p.collectUnsavedLeaves(leaves);
+            }
+        }
+        int count = leaves.size();
+        int taskCount = Math.min(serializationThreads + 1,
+                count / PARALLEL_SERIALIZATION_MIN_PAGES);
+        if (taskCount < 2) {
+            return;
+        }
+        ExecutorService executor = getSerializationExecutor();
+        ArrayList<Future<?>> futures = new ArrayList<>(taskCount - 1);
+        RuntimeException exception = null;
+        try {
+            for (int i = 1; i < taskCount; i++) {
+                final int from = (int) ((long) count * i / taskCount);
+                final int to = (int) ((long) count * (i + 1) / taskCount);
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        serializeLeaves(leaves, from, to);
+                    }
+                }));
+            }
+            // the storing thread takes the first part
+            serializeLeaves(leaves, 0, count / taskCount);
+        } catch (RuntimeException e) {
+            exception = e;
+        }
+        // all tasks need to complete before the pages are written
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (exception == null) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        exception = cause instanceof RuntimeException ? (RuntimeException) cause
+                                : DataUtils.newIllegalStateException(DataUtils.ERROR_INTERNAL,
+                                        "Page serialization failed", cause);
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Serialize a range of leaf pages, using a buffer and a compressor that
+     * are owned by the calling thread.
+     *
+     * @param leaves the leaf pages
+     * @param from the index of the first page
+     * @param to the index after the last page
+     */
+    void serializeLeaves(ArrayList<Page.Leaf> leaves, int from, int to) {
+        Compressor compressor = null;
+        if (compressionLevel == 1) {
+            compressor = new CompressLZF();
+        } else if (compressionLevel > 1) {
+            compressor = new CompressDeflate();
+        }
+        WriteBuffer buff = new WriteBuffer();
+        for (int i = from; i < to; i++) {
+            leaves.get(i).serializeBody(buff, compressor, compressionLevel);
+        }
+    }
+
+    private ExecutorService getSerializationExecutor() {
+        if (serializationExecutor == null) {
+            serializationExecutor = Executors.newFixedThreadPool(serializationThreads,
+                    new ThreadFactory() {
+                        private final AtomicInteger counter = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "MVStore serialization " +
+                                    counter.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return serializationExecutor;
+    }
+
     /**
      * Get a buffer for writing. This caller must synchronize on the store
      * before calling the method and until after using the buffer.
@@ -2206,12 +2523,19 @@ public class MVStore implements AutoCloseable
             }
             Page p = cache == null ? null : cache.get(pos);
             if (p == null) {
-                ByteBuffer buff = readBufferForPage(pos, map.getId());
+                // the buffer may be shared with the file store, and must not
+                // be used after the read ended
+                fileStore.beginRead();
                 try {
-                    p = Page.read(buff, pos, map);
-                } catch (Exception e) {
-                    throw DataUtils.newIllegalStateException(DataUtils.ERROR_FILE_CORRUPT,
-                            "Unable to read the page at position {0}", pos, e);
+                    ByteBuffer buff = readBufferForPage(pos, map.getId());
+                    try {
+                        p = Page.read(buff, pos, map);
+                    } catch (Exception e) {
+                        throw DataUtils.newIllegalStateException(DataUtils.ERROR_FILE_CORRUPT,
+                                "Unable to read the page at position {0}", pos, e);
+                    }
+                } finally {
+                    fileStore.endRead();
                 }
                 cachePage(p);
             }
@@ -2615,6 +2939,9 @@ public class MVStore implements AutoCloseable
         if (cache != null) {
             cache.clear();
         }
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
     }
 
     private static long getRootPos(MVMap<String, String> map, int mapId) {
@@ -2683,7 +3010,7 @@ public class MVStore implements AutoCloseable
             meta.put(MVMap.getMapKey(id), map.asString(newName));
             // get rid of the old name completely
             meta.remove(DataUtils.META_NAME + oldName);
-            markMetaChanged();
+            markMapsChanged();
         }
     }
 
@@ -2707,10 +3034,10 @@ public class MVStore implements AutoCloseable
             int id = map.getId();
             String name = getMapName(id);
             if (meta.remove(MVMap.getMapKey(id)) != null) {
-                markMetaChanged();
+                markMapsChanged();
             }
             if (meta.remove(DataUtils.META_NAME + name) != null) {
-                markMetaChanged();
+                markMapsChanged();
             }
         } finally {
             storeLock.unlock();
@@ -3078,6 +3405,62 @@ public class MVStore implements AutoCloseable
         return (int) (100 * hits / (hits + cache.getMisses() + 1));
     }
 
+    /**
+     * Get the amount of off-heap memory used for caching, in MB.
+     *
+     * @return the amount of memory used for caching
+     */
+    public int getOffHeapCacheSizeUsed() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return (int) (offHeapCache.getUsedMemory() >> 20);
+    }
+
+    /**
+     * Get the maximum off-heap cache size, in MB.
+     *
+     * @return the cache size, or 0 if no off-heap cache is used
+     */
+    public int getOffHeapCacheSize() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        return (int) (offHeapCache.getMaxMemory() >> 20);
+    }
+
+    /**
+     * Get the redo log.
+     *
+     * @return the redo log, or null if not used
+     */
+    public RedoLog getRedoLog() {
+        return redoLog;
+    }
+
+    /**
+     * Get the off-heap cache.
+     *
+     * @return the cache, or null if not used
+     */
+    public CacheLongKeyOffHeap getOffHeapCache() {
+        return offHeapCache;
+    }
+
+    /**
+     * Get the percentage of the page cache misses that were served from the
+     * off-heap cache.
+     *
+     * @return the hit ratio in percent
+     */
+    public int getOffHeapCacheHitRatio() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        long hits = offHeapCache.getHits();
+        return (int) (100 * hits / (hits + offHeapCache.getMisses() + 1));
+    }
+
     public double getUpdateFailureRatio() {
         long updateCounter = this.updateCounter;
         long updateAttemptCounter = this.updateAttemptCounter;
@@ -3486,6 +3869,19 @@ public class MVStore implements AutoCloseable
             return set("cacheSize", mb);
         }
 
+        /**
+         * Set the size of the off-heap cache in MB. Pages that are not in the
+         * read cache are read from this cache, which keeps the serialized
+         * pages in direct memory, before they are read from the file. The
+         * default is 0, meaning no off-heap cache is used.
+         *
+         * @param mb the cache size in megabytes
+         * @return this
+         */
+        public Builder offHeapCacheSize(int mb) {
+            return set("offHeapCacheSize", mb);
+        }
+
         /**
          * Set the read cache concurrency. The default is 16, meaning 16
          * segments are used.
@@ -3497,6 +3893,17 @@ public class MVStore implements AutoCloseable
             return set("cacheConcurrency", concurrency);
         }
 
+        /**
+         * Record reads of the read cache in read buffers, so that reading
+         * does not lock a cache segment. This is only faster if many threads
+         * read from the same segments at the same time.
+         *
+         * @return this
+         */
+        public Builder cacheReadBuffers() {
+            return set("cacheReadBuffers", 1);
+        }
+
         /**
          * Compress data before writing using the LZF algorithm. This will save
          * about 50% of the disk space, but will slow down read and write
@@ -3541,6 +3948,49 @@ public class MVStore implements AutoCloseable
             return set("pageSplitSize", pageSplitSize);
         }
 
+        /**
+         * Set the number of threads used to serialize and compress pages when
+         * storing changes. The default is 0, meaning pages are serialized by
+         * the thread that stores the changes. Using multiple threads mainly
+         * helps if compression is enabled and many pages are changed between
+         * commits.
+         *
+         * @param threads the number of threads
+         * @return this
+         */
+        public Builder serializationThreads(int threads) {
+            return set("serializationThreads", threads);
+        }
+
+        /**
+         * Read the pages from memory mapped segments of the file, instead of
+         * copying them into a new buffer for each read. This has no effect if
+         * the file is encrypted, or if a file store is provided.
+         *
+         * @return this
+         */
+        public Builder memoryMapped() {
+            return set("memoryMapped", 1);
+        }
+
+        /**
+         * Use a redo log with the given file name. A transaction store that
+         * uses this store then appends the changes of each commit to the log,
+         * and syncs it, instead of writing a chunk. Chunks are written at
+         * checkpoints (by the background thread, when there are many unsaved
+         * changes, or when calling commit), and the log is cleared afterwards.
+         * The log is not used if the store is read-only.
+         * <p>
+         * After the process was stopped, the store must be opened with the
+         * same redo log, so that the changes are not lost.
+         *
+         * @param fileName the file name of the log
+         * @return this
+         */
+        public Builder redoLog(String fileName) {
+            return set("redoLog", fileName);
+        }
+
         /**
          * Set the listener to be used for exceptions that occur when writing in
          * the background thread.
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.h2.store.fs.FilePath;
+import org.h2.store.fs.FilePathDisk;
+import org.h2.store.fs.FilePathNio;
+import org.h2.util.MemoryUnmapper;
+
+/**
+ * A file store that reads from memory mapped segments of the file. Chunks are
+ * not changed after they are written, so pages are decoded directly from the
+ * mapped memory instead of being copied into a new buffer for each read.
+ * Writes go through the file channel, as with the default file store.
+ * <p>
+ * Only files of the default file system are mapped. Encrypted files, reads
+ * that span two segments, and reads outside of beginRead and endRead use the
+ * regular read path. Segments are only unmapped while no read is in progress.
+ */
+public class MappedFileStore extends FileStore {
+
+    /**
+     * The number of bits of a position within a segment.
+     */
+    private static final int SEGMENT_SHIFT = 26;
+
+    /**
+     * The maximum size of a mapped segment (64 MB).
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /**
+     * The file used for the mappings, or null if the file is not mapped.
+     */
+    private FileChannel mappedFile;
+
+    /**
+     * The mapped segments, or null entries for segments that are not mapped
+     * yet. A segment is mapped up to the file size at the time it was mapped,
+     * and is mapped again if a read goes beyond its end. The array is
+     * replaced, not changed, so that it can be read without locking.
+     */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * The read lock is held by readers that may use the mapped segments, and
+     * the write lock while segments are unmapped.
+     */
+    private final ReentrantReadWriteLock unmapLock = new ReentrantReadWriteLock();
+
+    @Override
+    public void open(String fileName, boolean readOnly, char[] encryptionKey) {
+        if (getFile() != null) {
+            return;
+        }
+        super.open(fileName, readOnly, encryptionKey);
+        if (encryptionKey != null) {
+            return;
+        }
+        FilePath f = FilePath.get(getFileName());
+        if (f instanceof FilePathNio) {
+            f = ((FilePathNio) f).unwrap();
+        }
+        if (!(f instanceof FilePathDisk)) {
+            return;
+        }
+        try {
+            mappedFile = new RandomAccessFile(f.toString(), "r").getChannel();
+        } catch (IOException e) {
+            try { close(); } catch (Exception ignore) {}
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_READING_FAILED,
+                    "Could not open file {0}", fileName, e);
+        }
+    }
+
+    @Override
+    public void beginRead() {
+        unmapLock.readLock().lock();
+    }
+
+    @Override
+    public void endRead() {
+        unmapLock.readLock().unlock();
+    }
+
+    @Override
+    public ByteBuffer readFully(long pos, int len) {
+        // the returned slice is only safe to use while the segment can not
+        // be unmapped
+        if (mappedFile != null && unmapLock.getReadHoldCount() > 0) {
+            int index = (int) (pos >>> SEGMENT_SHIFT);
+            int offset = (int) (pos & (SEGMENT_SIZE - 1));
+            if (offset + (long) len <= SEGMENT_SIZE) {
+                MappedByteBuffer segment = getSegment(index, offset + len);
+                if (segment != null) {
+                    // the shared buffer is never changed, only its copies
+                    ByteBuffer buff = segment.duplicate();
+                    buff.position(offset);
+                    buff.limit(offset + len);
+                    readCount.incrementAndGet();
+                    readBytes.addAndGet(len);
+                    return buff.slice();
+                }
+            }
+        }
+        return super.readFully(pos, len);
+    }
+
+    /**
+     * Get a segment that is mapped at least up to the given end.
+     *
+     * @param index the index of the segment
+     * @param end the end position within the segment
+     * @return the segment, or null if the file is smaller
+     */
+    private MappedByteBuffer getSegment(int index, int end) {
+        MappedByteBuffer[] s = segments;
+        if (index < s.length) {
+            MappedByteBuffer segment = s[index];
+            if (segment != null && segment.capacity() >= end) {
+                return segment;
+            }
+        }
+        return mapSegment(index, end);
+    }
+
+    private synchronized MappedByteBuffer mapSegment(int index, int end) {
+        MappedByteBuffer[] s = segments;
+        if (index < s.length) {
+            MappedByteBuffer segment = s[index];
+            if (segment != null && segment.capacity() >= end) {
+                // mapped by another thread
+                return segment;
+            }
+        }
+        if (mappedFile == null) {
+            return null;
+        }
+        long start = (long) index << SEGMENT_SHIFT;
+        MappedByteBuffer segment;
+        try {
+            long length = Math.min(SEGMENT_SIZE, mappedFile.size() - start);
+            if (length < end) {
+                return null;
+            }
+            segment = mappedFile.map(MapMode.READ_ONLY, start, length);
+        } catch (IOException e) {
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_READING_FAILED,
+                    "Could not map file {0} at {1}", getFileName(), start, e);
+        }
+        s = Arrays.copyOf(s, Math.max(s.length, index + 1));
+        // a replaced segment may still be in use by other threads, so it is
+        // left to the garbage collector
+        s[index] = segment;
+        segments = s;
+        return segment;
+    }
+
+    @Override
+    public void truncate(long size) {
+        unmapLock.writeLock().lock();
+        try {
+            dropSegments(size);
+            super.truncate(size);
+        } finally {
+            unmapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Unmap the segments that reach beyond the given file size. They are
+     * mapped again when needed. The caller must hold the write lock.
+     *
+     * @param size the new file size
+     */
+    private synchronized void dropSegments(long size) {
+        MappedByteBuffer[] s = segments;
+        int keep = (int) (size >>> SEGMENT_SHIFT);
+        if (keep >= s.length) {
+            return;
+        }
+        MappedByteBuffer[] kept = Arrays.copyOf(s, keep);
+        MappedByteBuffer last = s[keep];
+        if (last != null && ((long) keep << SEGMENT_SHIFT) + last.capacity() <= size) {
+            kept = Arrays.copyOf(s, keep + 1);
+        }
+        segments = kept;
+        unmap(s, kept.length);
+    }
+
+    /**
+     * Unmap the given segments. If that is not possible, the mapping is
+     * released when the segment is garbage collected; truncating the file
+     * retries after a garbage collection until that happened.
+     *
+     * @param s the segments
+     * @param start the index of the first segment to unmap
+     */
+    private static void unmap(MappedByteBuffer[] s, int start) {
+        for (int i = start; i < s.length; i++) {
+            if (s[i] != null) {
+                MemoryUnmapper.unmap(s[i]);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        unmapLock.writeLock().lock();
+        try {
+            super.close();
+        } finally {
+            try {
+                closeMappedFile();
+            } finally {
+                unmapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private synchronized void closeMappedFile() {
+        MappedByteBuffer[] s = segments;
+        segments = new MappedByteBuffer[0];
+        unmap(s, 0);
+        if (mappedFile != null) {
+            try {
+                mappedFile.close();
+            } catch (IOException e) {
+                throw DataUtils.newIllegalStateException(
+                        DataUtils.ERROR_WRITING_FAILED,
+                        "Closing failed for file {0}", getFileName(), e);
+            } finally {
+                mappedFile = null;
+            }
+        }
+    }
+
+}
@@ -11,6 +11,7 @@ import static org.h2.engine.Constants.MEMORY_POINTER;
 import static org.h2.mvstore.DataUtils.PAGE_TYPE_LEAF;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.h2.compress.Compressor;
 import org.h2.mvstore.type.DataType;
@@ -656,45 +657,25 @@ public abstract class Page implements Cloneable
      */
     protected final int write(Chunk chunk, WriteBuffer buff) {
         int start = buff.position();
-        int len = getKeyCount();
         int type = isLeaf() ? PAGE_TYPE_LEAF : DataUtils.PAGE_TYPE_NODE;
         buff.putInt(0).
-            putShort((byte) 0).
-            putVarInt(map.getId()).
-            putVarInt(len);
-        int typePos = buff.position();
-        buff.put((byte) type);
-        writeChildren(buff, true);
-        int compressStart = buff.position();
-        map.getKeyType().write(buff, keys, len, true);
-        writeValues(buff);
+            putShort((byte) 0);
         MVStore store = map.getStore();
-        int expLen = buff.position() - compressStart;
-        if (expLen > 16) {
+        int typePos;
+        byte[] body = removeSerializedBody();
+        if (body != null) {
+            typePos = buff.position() + DataUtils.getVarIntLen(map.getId()) +
+                    DataUtils.getVarIntLen(getKeyCount());
+            buff.put(body);
+        } else {
+            Compressor compressor = null;
             int compressionLevel = store.getCompressionLevel();
-            if (compressionLevel > 0) {
-                Compressor compressor;
-                int compressType;
-                if (compressionLevel == 1) {
-                    compressor = map.getStore().getCompressorFast();
-                    compressType = DataUtils.PAGE_COMPRESSED;
-                } else {
-                    compressor = map.getStore().getCompressorHigh();
-                    compressType = DataUtils.PAGE_COMPRESSED_HIGH;
-                }
-                byte[] exp = new byte[expLen];
-                buff.position(compressStart).get(exp);
-                byte[] comp = new byte[expLen * 2];
-                int compLen = compressor.compress(exp, expLen, comp, 0);
-                int plus = DataUtils.getVarIntLen(compLen - expLen);
-                if (compLen + plus < expLen) {
-                    buff.position(typePos).
-                        put((byte) (type + compressType));
-                    buff.position(compressStart).
-                        putVarInt(expLen - compLen).
-                        put(comp, 0, compLen);
-                }
+            if (compressionLevel == 1) {
+                compressor = store.getCompressorFast();
+            } else if (compressionLevel > 1) {
+                compressor = store.getCompressorHigh();
             }
+            typePos = writeBody(buff, compressor, compressionLevel);
         }
         int pageLength = buff.position() - start;
         int chunkId = chunk.id;
@@ -728,6 +709,65 @@ public abstract class Page implements Cloneable
         return typePos + 1;
     }
 
+    /**
+     * Write the part of the page that does not depend on its position in the
+     * chunk: the map id, the keys, the values, and (for nodes) the children.
+     *
+     * @param buff the target buffer
+     * @param compressor the compressor to use, or null
+     * @param compressionLevel the compression level of the store
+     * @return the position of the page type in the buffer
+     */
+    final int writeBody(WriteBuffer buff, Compressor compressor, int compressionLevel) {
+        int len = getKeyCount();
+        int type = isLeaf() ? PAGE_TYPE_LEAF : DataUtils.PAGE_TYPE_NODE;
+        buff.putVarInt(map.getId()).
+            putVarInt(len);
+        int typePos = buff.position();
+        buff.put((byte) type);
+        writeChildren(buff, true);
+        int compressStart = buff.position();
+        map.getKeyType().write(buff, keys, len, true);
+        writeValues(buff);
+        int expLen = buff.position() - compressStart;
+        if (expLen > 16 && compressor != null) {
+            int compressType = compressionLevel == 1 ?
+                    DataUtils.PAGE_COMPRESSED : DataUtils.PAGE_COMPRESSED_HIGH;
+            byte[] exp = new byte[expLen];
+            buff.position(compressStart).get(exp);
+            byte[] comp = new byte[expLen * 2];
+            int compLen = compressor.compress(exp, expLen, comp, 0);
+            int plus = DataUtils.getVarIntLen(compLen - expLen);
+            if (compLen + plus < expLen) {
+                buff.position(typePos).
+                    put((byte) (type + compressType));
+                buff.position(compressStart).
+                    putVarInt(expLen - compLen).
+                    put(comp, 0, compLen);
+            }
+        }
+        return typePos;
+    }
+
+    /**
+     * Remove and return the body that was serialized ahead of the chunk write.
+     * Only leaf pages are serialized ahead, as the body of a node contains the
+     * positions of its children.
+     *
+     * @return the serialized body, or null
+     */
+    byte[] removeSerializedBody() {
+        return null;
+    }
+
+    /**
+     * Collect the unsaved leaf pages of this subtree, in the order they are
+     * written by writeUnsavedRecursive.
+     *
+     * @param leaves the target list
+     */
+    abstract void collectUnsavedLeaves(List<Leaf> leaves);
+
     /**
      * Write values that the buffer contains to the buff.
      *
@@ -1247,6 +1287,19 @@ public abstract class Page implements Cloneable
             }
         }
 
+        @Override
+        void collectUnsavedLeaves(List<Leaf> leaves) {
+            if (!isSaved()) {
+                int len = getRawChildPageCount();
+                for (int i = 0; i < len; i++) {
+                    Page p = children[i].getPage();
+                    if (p != null) {
+                        p.collectUnsavedLeaves(leaves);
+                    }
+                }
+            }
+        }
+
         void writeChildrenRecursive(Chunk chunk, WriteBuffer buff) {
             int len = getRawChildPageCount();
             for (int i = 0; i < len; i++) {
@@ -1339,13 +1392,18 @@ public abstract class Page implements Cloneable
     }
 
 
-    private static class Leaf extends Page
+    static class Leaf extends Page
     {
         /**
          * The storage for values.
          */
         private Object[] values;
 
+        /**
+         * The body of this page serialized ahead of the chunk write, or null.
+         */
+        private byte[] serializedBody;
+
         Leaf(MVMap<?, ?> map) {
             super(map);
         }
@@ -1526,6 +1584,38 @@ public abstract class Page implements Cloneable
             }
         }
 
+        @Override
+        void collectUnsavedLeaves(List<Leaf> leaves) {
+            if (!isSaved()) {
+                leaves.add(this);
+            }
+        }
+
+        /**
+         * Serialize the body of this leaf ahead of the chunk write, so that it
+         * can be done by another thread. The chunk write then only copies the
+         * result.
+         *
+         * @param buff the scratch buffer to use (is cleared)
+         * @param compressor the compressor to use (owned by the calling
+         *            thread), or null
+         * @param compressionLevel the compression level of the store
+         */
+        void serializeBody(WriteBuffer buff, Compressor compressor, int compressionLevel) {
+            buff.clear();
+            writeBody(buff, compressor, compressionLevel);
+            byte[] body = new byte[buff.position()];
+            buff.position(0).get(body);
+            serializedBody = body;
+        }
+
+        @Override
+        byte[] removeSerializedBody() {
+            byte[] body = serializedBody;
+            serializedBody = null;
+            return body;
+        }
+
         @Override
         void writeEnd() {}
 
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.h2.store.fs.FilePath;
+import org.h2.store.fs.FileUtils;
+
+/**
+ * An append-only log of records that are synced when a transaction commits,
+ * so that small commits don't need to write a new chunk of the store. The
+ * content of the records is defined by the user of the log (the transaction
+ * store); the store only writes chunks at checkpoints.
+ * <p>
+ * The log starts with a header that contains the creation time of the store
+ * and the version of the last chunk; the records are only valid for this
+ * chunk. A record is appended while the commit lock is held, and a chunk is
+ * only written while the checkpoint lock is held, so that a chunk contains
+ * either all or none of the changes of a record.
+ * <p>
+ * Records that were read when opening the store are pending until the user of
+ * the log replaces them. At a checkpoint, the new log, with the version of the
+ * new chunk and the pending records, is written to a temporary file before the
+ * chunk is written, and replaces the log afterwards. If the process is stopped
+ * in between, the temporary file is used when opening the store.
+ */
+public final class RedoLog {
+
+    /**
+     * The length of the header: magic, format, creation time, and version.
+     */
+    private static final int HEADER_LENGTH = 24;
+
+    private static final int MAGIC = 0x48325244;
+
+    private static final int FORMAT = 1;
+
+    private final String fileName;
+
+    private final String tempFileName;
+
+    private final long creationTime;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+    private FileChannel file;
+
+    /**
+     * The position in the file where the next record is written.
+     */
+    private long filePos;
+
+    /**
+     * The number of bytes appended since the log was opened. Unlike the file
+     * position, it is not reset by a checkpoint.
+     */
+    private long writePos;
+
+    private List<ByteBuffer> pendingRecords;
+
+    /**
+     * Whether the temporary file was written for the current checkpoint.
+     */
+    private boolean tempFileWritten;
+
+    /**
+     * The monitor of the group sync, see sync(long).
+     */
+    private final Object syncSync = new Object();
+
+    /**
+     * The number of appended bytes that are known to be durable.
+     */
+    private long syncPos;
+
+    /**
+     * Whether a thread is currently syncing the file.
+     */
+    private boolean syncing;
+
+    /**
+     * Whether maps whose changes are not in the log were changed since the
+     * last checkpoint started.
+     */
+    private final AtomicBoolean unloggedChanges = new AtomicBoolean();
+
+    /**
+     * Open the log. If the log belongs to the given chunk, the records are
+     * read and become the pending records, otherwise the log is cleared.
+     *
+     * @param fileName the file name
+     * @param creationTime the creation time of the store
+     * @param version the version of the last chunk, or 0 if there is none
+     */
+    RedoLog(String fileName, long creationTime, long version) {
+        this.fileName = fileName;
+        this.creationTime = creationTime;
+        tempFileName = fileName + ".tempFile";
+        try {
+            file = FilePath.get(fileName).open("rw");
+            if (FileUtils.exists(tempFileName)) {
+                boolean valid;
+                try (FileChannel f = FilePath.get(tempFileName).open("r")) {
+                    valid = read(f, version) != null;
+                }
+                if (valid && read(file, version) == null) {
+                    // the process was stopped after the chunk was written,
+                    // but before the log was replaced
+                    file.close();
+                    FileUtils.moveAtomicReplace(tempFileName, fileName);
+                    file = FilePath.get(fileName).open("rw");
+                } else {
+                    FileUtils.delete(tempFileName);
+                }
+            }
+            pendingRecords = read(file, version);
+            if (pendingRecords == null) {
+                pendingRecords = Collections.emptyList();
+                clear(version);
+            } else {
+                // remove a partially written record, if any
+                file.truncate(filePos);
+            }
+        } catch (IOException e) {
+            close();
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_READING_FAILED,
+                    "Could not open redo log {0}", fileName, e);
+        }
+    }
+
+    /**
+     * Read the records, and set the file position to the end of the last
+     * complete record.
+     *
+     * @param f the file
+     * @param version the version of the last chunk
+     * @return the records, or null if the log does not belong to the chunk
+     */
+    private List<ByteBuffer> read(FileChannel f, long version) throws IOException {
+        long size = f.size();
+        if (size < HEADER_LENGTH) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        DataUtils.readFully(f, 0, header);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT ||
+                header.getLong() != creationTime || header.getLong() != version) {
+            return null;
+        }
+        ArrayList<ByteBuffer> list = new ArrayList<>();
+        long pos = HEADER_LENGTH;
+        ByteBuffer head = ByteBuffer.allocate(8);
+        while (pos + 8 <= size) {
+            head.clear();
+            DataUtils.readFully(f, pos, head);
+            int len = head.getInt();
+            int check = head.getInt();
+            if (len < 0 || pos + 8 + len > size) {
+                break;
+            }
+            ByteBuffer buff = ByteBuffer.allocate(len);
+            DataUtils.readFully(f, pos + 8, buff);
+            if (DataUtils.getFletcher32(buff.array(), 0, len) != check) {
+                break;
+            }
+            list.add(buff);
+            pos += 8 + len;
+        }
+        filePos = pos;
+        return list;
+    }
+
+    /**
+     * Lock the log for appending a record and applying its changes. A
+     * checkpoint waits until the lock is released.
+     */
+    public void lockCommit() {
+        lock.readLock().lock();
+    }
+
+    /**
+     * Release the commit lock.
+     */
+    public void unlockCommit() {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Check whether the current thread holds the commit lock. Such a thread
+     * may not write a chunk.
+     *
+     * @return true if it holds the lock
+     */
+    boolean isCommitLockHeld() {
+        return lock.getReadHoldCount() > 0;
+    }
+
+    /**
+     * Lock the log for writing a chunk.
+     */
+    void lockCheckpoint() {
+        lock.writeLock().lock();
+    }
+
+    /**
+     * Release the checkpoint lock.
+     */
+    void unlockCheckpoint() {
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * Append a record. The caller must hold the commit lock.
+     *
+     * @param record the record
+     * @return the position to sync, see sync(long)
+     */
+    public long append(ByteBuffer record) {
+        ByteBuffer buff = frame(record);
+        int len = buff.remaining();
+        synchronized (this) {
+            DataUtils.writeFully(file, filePos, buff);
+            filePos += len;
+            writePos += len;
+            return writePos;
+        }
+    }
+
+    /**
+     * Add the length and the checksum to a record.
+     *
+     * @param record the record
+     * @return the buffer to write
+     */
+    private static ByteBuffer frame(ByteBuffer record) {
+        int len = record.remaining();
+        ByteBuffer buff = ByteBuffer.allocate(8 + len);
+        buff.putInt(len);
+        buff.putInt(0);
+        buff.put(record.duplicate());
+        buff.putInt(4, DataUtils.getFletcher32(buff.array(), 8, len));
+        buff.flip();
+        return buff;
+    }
+
+    /**
+     * Sync the log up to the given position. Concurrent calls are grouped:
+     * while one thread syncs, the other threads wait, and then one of them
+     * syncs the records of all waiting threads at once.
+     *
+     * @param pos the position returned by append(ByteBuffer)
+     */
+    public void sync(long pos) {
+        synchronized (syncSync) {
+            boolean interrupted = false;
+            while (syncing && syncPos < pos) {
+                try {
+                    syncSync.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (syncPos >= pos) {
+                return;
+            }
+            syncing = true;
+        }
+        long target = -1;
+        try {
+            synchronized (this) {
+                target = writePos;
+                force();
+            }
+        } finally {
+            synchronized (syncSync) {
+                syncing = false;
+                syncPos = Math.max(syncPos, target);
+                syncSync.notifyAll();
+            }
+        }
+    }
+
+    private void force() {
+        try {
+            file.force(false);
+        } catch (IOException e) {
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Could not sync redo log {0}", fileName, e);
+        }
+    }
+
+    /**
+     * Get the records that are not applied yet.
+     *
+     * @return the records
+     */
+    public synchronized List<ByteBuffer> getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * Replace the pending records. The caller must hold the commit lock.
+     *
+     * @param records the new pending records
+     */
+    public synchronized void setPendingRecords(List<ByteBuffer> records) {
+        pendingRecords = records;
+    }
+
+    /**
+     * Remember that a map whose changes are not in the log was changed, or
+     * that a map was added, renamed, or removed. This must be called after the
+     * change.
+     */
+    public void setUnloggedChanges() {
+        unloggedChanges.set(true);
+    }
+
+    /**
+     * Check whether maps whose changes are not in the log were changed since
+     * the last checkpoint started. If yes, a record that refers to such
+     * changes may only be appended after the next chunk was written.
+     *
+     * @return true if there are such changes
+     */
+    public boolean hasUnloggedChanges() {
+        return unloggedChanges.get();
+    }
+
+    /**
+     * Write the new log to the temporary file, if there are pending records.
+     * This is called before a chunk is written. The caller must hold the
+     * checkpoint lock.
+     *
+     * @param version the version of the new chunk
+     */
+    synchronized void prepareCheckpoint(long version) {
+        // the chunk contains all changes that were made before
+        unloggedChanges.set(false);
+        tempFileWritten = false;
+        if (pendingRecords.isEmpty()) {
+            return;
+        }
+        try (FileChannel f = FilePath.get(tempFileName).open("rw")) {
+            f.truncate(0);
+            DataUtils.writeFully(f, 0, header(version));
+            long pos = HEADER_LENGTH;
+            for (ByteBuffer r : pendingRecords) {
+                ByteBuffer buff = frame(r);
+                int len = buff.remaining();
+                DataUtils.writeFully(f, pos, buff);
+                pos += len;
+            }
+            f.force(false);
+        } catch (IOException e) {
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Could not write redo log {0}", tempFileName, e);
+        }
+        tempFileWritten = true;
+    }
+
+    /**
+     * Replace the log after a chunk was written and synced. The caller must
+     * hold the checkpoint lock.
+     *
+     * @param version the version of the chunk
+     */
+    synchronized void checkpoint(long version) {
+        if (tempFileWritten) {
+            tempFileWritten = false;
+            try {
+                file.close();
+                FileUtils.moveAtomicReplace(tempFileName, fileName);
+                file = FilePath.get(fileName).open("rw");
+                filePos = file.size();
+            } catch (IOException e) {
+                throw DataUtils.newIllegalStateException(
+                        DataUtils.ERROR_WRITING_FAILED,
+                        "Could not replace redo log {0}", fileName, e);
+            }
+        } else {
+            clear(version);
+        }
+        synchronized (syncSync) {
+            // the changes of all records are in the chunk now
+            syncPos = writePos;
+        }
+    }
+
+    private void clear(long version) {
+        try {
+            file.truncate(0);
+        } catch (IOException e) {
+            throw DataUtils.newIllegalStateException(
+                    DataUtils.ERROR_WRITING_FAILED,
+                    "Could not truncate redo log {0}", fileName, e);
+        }
+        DataUtils.writeFully(file, 0, header(version));
+        filePos = HEADER_LENGTH;
+        force();
+    }
+
+    private ByteBuffer header(long version) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(FORMAT).putLong(creationTime).putLong(version);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Close the file.
+     */
+    synchronized void close() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw DataUtils.newIllegalStateException(
+                        DataUtils.ERROR_WRITING_FAILED,
+                        "Closing failed for redo log {0}", fileName, e);
+            } finally {
+                file = null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return fileName;
+    }
+
+}
@@ -12,6 +12,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 import org.h2.mvstore.DataUtils;
 
 /**
@@ -38,13 +42,35 @@ import org.h2.mvstore.DataUtils;
  * Accessed entries are only moved to the top of the stack if at least a number
  * of other entries have been moved to the front (8 per segment by default).
  * Write access and moving entries to the top of the stack is synchronized per
- * segment.
+ * segment. Optionally, reading does not lock: the accessed entries are recorded
+ * in striped read buffers, and the changes of the stack and queues are applied
+ * in batches by the thread that fills a buffer, if the segment is not locked,
+ * or by the next writer. If a buffer is full, accesses are not recorded.
  *
  * @author Thomas Mueller
  * @param <V> the value type
  */
 public class CacheLongKeyLIRS<V> {
 
+    /**
+     * The number of read buffers per segment (a power of 2). Threads with
+     * different ids use different buffers, so that they do not compete for
+     * the same counter.
+     */
+    static final int READ_BUFFER_STRIPES = Math.min(16,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    /**
+     * The size of a read buffer (a power of 2).
+     */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /**
+     * The number of recorded reads of a buffer after which the reading thread
+     * tries to apply them.
+     */
+    static final int READ_BUFFER_DRAIN = READ_BUFFER_SIZE / 2;
+
     /**
      * The maximum memory this cache should use.
      */
@@ -58,6 +84,7 @@ public class CacheLongKeyLIRS<V> {
     private final int stackMoveDistance;
     private final int nonResidentQueueSize;
     private final int nonResidentQueueSizeHigh;
+    private final boolean readBuffers;
 
     /**
      * Create a new cache with the given memory size.
@@ -75,6 +102,7 @@ public class CacheLongKeyLIRS<V> {
         this.segmentCount = config.segmentCount;
         this.segmentMask = segmentCount - 1;
         this.stackMoveDistance = config.stackMoveDistance;
+        this.readBuffers = config.readBuffers;
         segments = new Segment[segmentCount];
         clear();
         // use the high bits for the segment
@@ -88,7 +116,7 @@ public class CacheLongKeyLIRS<V> {
         long max = getMaxItemSize();
         for (int i = 0; i < segmentCount; i++) {
             segments[i] = new Segment<>(max, stackMoveDistance, 8, nonResidentQueueSize,
-                                        nonResidentQueueSizeHigh);
+                                        nonResidentQueueSizeHigh, readBuffers);
         }
     }
 
@@ -158,12 +186,14 @@ public class CacheLongKeyLIRS<V> {
         int hash = getHash(key);
         int segmentIndex = getSegmentIndex(hash);
         Segment<V> s = segments[segmentIndex];
-        // check whether resize is required: synchronize on s, to avoid
+        // check whether resize is required: lock s, to avoid
         // concurrent resizes (concurrent reads read
         // from the old segment)
-        synchronized (s) {
-            s = resizeIfNeeded(s, segmentIndex);
-            return s.put(key, hash, value, memory);
+        s.lock.lock();
+        try {
+            return resizeIfNeeded(s, segmentIndex).put(key, hash, value, memory);
+        } finally {
+            s.lock.unlock();
         }
     }
 
@@ -205,12 +235,14 @@ public class CacheLongKeyLIRS<V> {
         int hash = getHash(key);
         int segmentIndex = getSegmentIndex(hash);
         Segment<V> s = segments[segmentIndex];
-        // check whether resize is required: synchronize on s, to avoid
+        // check whether resize is required: lock s, to avoid
         // concurrent resizes (concurrent reads read
         // from the old segment)
-        synchronized (s) {
-            s = resizeIfNeeded(s, segmentIndex);
-            return s.remove(key, hash);
+        s.lock.lock();
+        try {
+            return resizeIfNeeded(s, segmentIndex).remove(key, hash);
+        } finally {
+            s.lock.unlock();
         }
     }
 
@@ -273,6 +305,7 @@ public class CacheLongKeyLIRS<V> {
     public long getUsedMemory() {
         long x = 0;
         for (Segment<V> s : segments) {
+            s.applyPendingReads();
             x += s.usedMemory;
         }
         return x;
@@ -307,6 +340,15 @@ public class CacheLongKeyLIRS<V> {
         return maxMemory;
     }
 
+    /**
+     * Check whether reads are recorded in read buffers.
+     *
+     * @return true if read buffers are used
+     */
+    public boolean isReadBuffers() {
+        return readBuffers;
+    }
+
     /**
      * Get the entry set for all resident entries.
      *
@@ -344,6 +386,7 @@ public class CacheLongKeyLIRS<V> {
     public int sizeNonResident() {
         int x = 0;
         for (Segment<V> s : segments) {
+            s.applyPendingReads();
             x += s.queue2Size;
         }
         return x;
@@ -370,6 +413,7 @@ public class CacheLongKeyLIRS<V> {
     public int sizeHot() {
         int x = 0;
         for (Segment<V> s : segments) {
+            s.applyPendingReads();
             x += s.mapSize - s.queueSize - s.queue2Size;
         }
         return x;
@@ -383,7 +427,7 @@ public class CacheLongKeyLIRS<V> {
     public long getHits() {
         long x = 0;
         for (Segment<V> s : segments) {
-            x += s.hits;
+            x += s.getHits();
         }
         return x;
     }
@@ -396,7 +440,7 @@ public class CacheLongKeyLIRS<V> {
     public long getMisses() {
         int x = 0;
         for (Segment<V> s : segments) {
-            x += s.misses;
+            x += s.misses.get();
         }
         return x;
     }
@@ -409,6 +453,7 @@ public class CacheLongKeyLIRS<V> {
     public int size() {
         int x = 0;
         for (Segment<V> s : segments) {
+            s.applyPendingReads();
             x += s.mapSize - s.queue2Size;
         }
         return x;
@@ -498,8 +543,12 @@ public class CacheLongKeyLIRS<V> {
      */
     public void trimNonResidentQueue() {
         for (Segment<V> s : segments) {
-            synchronized (s) {
+            s.lock.lock();
+            try {
+                s.applyReads();
                 s.trimNonResidentQueue();
+            } finally {
+                s.lock.unlock();
             }
         }
     }
@@ -527,14 +576,27 @@ public class CacheLongKeyLIRS<V> {
         int queue2Size;
 
         /**
-         * The number of cache hits.
+         * The number of cache hits that are not counted by the read buffers
+         * of this segment.
          */
         long hits;
 
         /**
          * The number of cache misses.
          */
-        long misses;
+        final AtomicLong misses = new AtomicLong();
+
+        /**
+         * The lock for changes of the segment. Readers only take it to apply
+         * the recorded reads, and only if it is not held by another thread.
+         */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The buffers of recently read entries, one is used per thread. The
+         * array is empty if reads lock the segment.
+         */
+        private final ReadBuffer<V>[] readBuffers;
 
         /**
          * The map array. The size is always a power of 2.
@@ -617,9 +679,10 @@ public class CacheLongKeyLIRS<V> {
          * @param len the number of hash table buckets (must be a power of 2)
          * @param nonResidentQueueSize the non-resident queue size low watermark factor
          * @param nonResidentQueueSizeHigh  the non-resident queue size high watermark factor
+         * @param readBuffers whether reads are recorded in read buffers
          */
         Segment(long maxMemory, int stackMoveDistance, int len,
-                int nonResidentQueueSize, int nonResidentQueueSizeHigh) {
+                int nonResidentQueueSize, int nonResidentQueueSizeHigh, boolean readBuffers) {
             setMaxMemory(maxMemory);
             this.stackMoveDistance = stackMoveDistance;
             this.nonResidentQueueSize = nonResidentQueueSize;
@@ -639,11 +702,18 @@ public class CacheLongKeyLIRS<V> {
             @SuppressWarnings("unchecked")
             Entry<V>[] e = new Entry[len];
             entries = e;
+
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            ReadBuffer<V>[] b = new ReadBuffer[readBuffers ? READ_BUFFER_STRIPES : 0];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = new ReadBuffer<>();
+            }
+            this.readBuffers = b;
         }
 
         /**
          * Create a new cache segment from an existing one.
-         * The caller must synchronize on the old segment, to avoid
+         * The caller must hold the lock of the old segment, to avoid
          * concurrent modifications.
          *
          * @param old the old segment
@@ -651,9 +721,10 @@ public class CacheLongKeyLIRS<V> {
          */
         Segment(Segment<V> old, int len) {
             this(old.maxMemory, old.stackMoveDistance, len,
-                    old.nonResidentQueueSize, old.nonResidentQueueSizeHigh);
-            hits = old.hits;
-            misses = old.misses;
+                    old.nonResidentQueueSize, old.nonResidentQueueSizeHigh, old.readBuffers.length > 0);
+            old.applyReads();
+            hits = old.getHits();
+            misses.set(old.misses.get());
             Entry<V> s = old.stack.stackPrev;
             while (s != old.stack) {
                 Entry<V> e = new Entry<>(s);
@@ -717,19 +788,74 @@ public class CacheLongKeyLIRS<V> {
          * @param e the entry
          * @return the value, or null if there is no resident entry
          */
-        synchronized V get(Entry<V> e) {
+        V get(Entry<V> e) {
             V value = e == null ? null : e.getValue();
             if (value == null) {
                 // the entry was not found
                 // or it was a non-resident entry
-                misses++;
+                misses.incrementAndGet();
+            } else if (readBuffers.length == 0) {
+                lock.lock();
+                try {
+                    access(e);
+                    hits++;
+                } finally {
+                    lock.unlock();
+                }
             } else {
-                access(e);
-                hits++;
+                ReadBuffer<V> b = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+                if (b.offer(e) >= READ_BUFFER_DRAIN && lock.tryLock()) {
+                    try {
+                        applyReads();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
             }
             return value;
         }
 
+        /**
+         * Get the number of cache hits, including the reads that were not
+         * applied yet.
+         *
+         * @return the cache hits
+         */
+        long getHits() {
+            long x = hits;
+            for (ReadBuffer<V> b : readBuffers) {
+                x += b.getReadCount();
+            }
+            return x;
+        }
+
+        /**
+         * Apply the recorded reads, if there are any. This method waits for
+         * the lock of the segment.
+         */
+        void applyPendingReads() {
+            for (ReadBuffer<V> b : readBuffers) {
+                if (b.hasPending()) {
+                    lock.lock();
+                    try {
+                        applyReads();
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Apply the recorded reads. The caller must hold the lock.
+         */
+        void applyReads() {
+            for (ReadBuffer<V> b : readBuffers) {
+                b.drain(this);
+            }
+        }
+
         /**
          * Access an item, moving the entry to the top of the stack or front of
          * the queue if found.
@@ -794,13 +920,23 @@ public class CacheLongKeyLIRS<V> {
          * @param memory the memory used for the given entry
          * @return the old value, or null if there was no resident entry
          */
-        synchronized V put(long key, int hash, V value, int memory) {
+        V put(long key, int hash, V value, int memory) {
+            lock.lock();
+            try {
+                applyReads();
+                return putEntry(key, hash, value, memory);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private V putEntry(long key, int hash, V value, int memory) {
             Entry<V> e = find(key, hash);
             boolean existed = e != null;
             V old = null;
             if (existed) {
                 old = e.getValue();
-                remove(key, hash);
+                removeEntry(key, hash);
             }
             if (memory > maxMemory) {
                 // the new entry is too big to fit
@@ -839,7 +975,17 @@ public class CacheLongKeyLIRS<V> {
          * @param hash the hash
          * @return the old value, or null if there was no resident entry
          */
-        synchronized V remove(long key, int hash) {
+        V remove(long key, int hash) {
+            lock.lock();
+            try {
+                applyReads();
+                return removeEntry(key, hash);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private V removeEntry(long key, int hash) {
             int index = hash & mask;
             Entry<V> e = entries[index];
             if (e == null) {
@@ -925,7 +1071,7 @@ public class CacheLongKeyLIRS<V> {
                     }
                 }
                 int hash = getHash(e.key);
-                remove(e.key, hash);
+                removeEntry(e.key, hash);
             }
         }
 
@@ -1038,7 +1184,17 @@ public class CacheLongKeyLIRS<V> {
          * @param nonResident true for non-resident entries
          * @return the key list
          */
-        synchronized List<Long> keys(boolean cold, boolean nonResident) {
+        List<Long> keys(boolean cold, boolean nonResident) {
+            lock.lock();
+            try {
+                applyReads();
+                return getKeys(cold, nonResident);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private List<Long> getKeys(boolean cold, boolean nonResident) {
             ArrayList<Long> keys = new ArrayList<>();
             if (cold) {
                 Entry<V> start = nonResident ? queue2 : queue;
@@ -1060,7 +1216,17 @@ public class CacheLongKeyLIRS<V> {
          *
          * @return the set of keys
          */
-        synchronized Set<Long> keySet() {
+        Set<Long> keySet() {
+            lock.lock();
+            try {
+                applyReads();
+                return getKeySet();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Set<Long> getKeySet() {
             HashSet<Long> set = new HashSet<>();
             for (Entry<V> e = stack.stackNext; e != stack; e = e.stackNext) {
                 set.add(e.key);
@@ -1084,6 +1250,111 @@ public class CacheLongKeyLIRS<V> {
 
     }
 
+    /**
+     * A bounded buffer of the entries that were read. Entries are added by
+     * concurrent readers without locking, and removed by the thread that holds
+     * the lock of the segment. If the buffer is full, or if another thread is
+     * adding an entry at the same time, the entry is not added.
+     *
+     * @param <V> the value type
+     */
+    static final class ReadBuffer<V> {
+
+        private final AtomicReferenceArray<Entry<V>> buffer =
+                new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<ReadBuffer> WRITE_COUNT =
+                AtomicLongFieldUpdater.newUpdater(ReadBuffer.class, "writeCount");
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<ReadBuffer> DROP_COUNT =
+                AtomicLongFieldUpdater.newUpdater(ReadBuffer.class, "dropCount");
+
+        /**
+         * The number of entries that were added.
+         */
+        private volatile long writeCount;
+
+        /**
+         * The number of entries that were not added.
+         */
+        private volatile long dropCount;
+
+        /**
+         * The number of entries that were removed. Only changed by the thread
+         * that holds the lock of the segment.
+         */
+        private volatile long readCount;
+
+        /**
+         * Add an entry.
+         *
+         * @param e the entry
+         * @return the number of entries in the buffer, or the buffer size if
+         *         the entry was not added
+         */
+        int offer(Entry<V> e) {
+            long head = readCount;
+            long tail = writeCount;
+            if (tail - head >= READ_BUFFER_SIZE || !WRITE_COUNT.compareAndSet(this, tail, tail + 1)) {
+                DROP_COUNT.incrementAndGet(this);
+                return READ_BUFFER_SIZE;
+            }
+            buffer.lazySet((int) tail & (READ_BUFFER_SIZE - 1), e);
+            return (int) (tail + 1 - head);
+        }
+
+        /**
+         * Remove the entries and apply the reads to the segment, in the order
+         * they were added. The caller must hold the lock of the segment.
+         *
+         * @param segment the segment
+         */
+        void drain(Segment<V> segment) {
+            long head = readCount;
+            long tail = writeCount;
+            if (head == tail) {
+                return;
+            }
+            for (; head < tail; head++) {
+                int index = (int) head & (READ_BUFFER_SIZE - 1);
+                Entry<V> e = buffer.get(index);
+                if (e == null) {
+                    // not visible yet
+                    break;
+                }
+                buffer.lazySet(index, null);
+                // the entry may have been evicted or removed since, in which
+                // case it is not moved
+                if (e.getValue() != null) {
+                    segment.access(e);
+                }
+            }
+            readCount = head;
+        }
+
+        /**
+         * Check whether there are entries in the buffer.
+         *
+         * @return true if there are
+         */
+        boolean hasPending() {
+            return readCount != writeCount;
+        }
+
+        /**
+         * Get the number of reads that were recorded, including the reads that
+         * were not added.
+         *
+         * @return the number of reads
+         */
+        long getReadCount() {
+            return writeCount + dropCount;
+        }
+
+    }
+
     /**
      * A cache entry. Each entry is either hot (low inter-reference recency;
      * LIR), cold (high inter-reference recency; HIR), or non-resident-cold. Hot
@@ -1103,12 +1374,12 @@ public class CacheLongKeyLIRS<V> {
         /**
          * The value. Set to null for non-resident-cold entries.
          */
-        V value;
+        volatile V value;
 
         /**
          * Weak reference to the value. Set to null for resident entries.
          */
-        WeakReference<V> reference;
+        volatile WeakReference<V> reference;
 
         /**
          * The estimated memory used.
@@ -1172,8 +1443,21 @@ public class CacheLongKeyLIRS<V> {
             return queueNext == null;
         }
 
+        /**
+         * Get the value. This method may be called without holding the lock
+         * of the segment.
+         *
+         * @return the value, or null if there is none
+         */
         V getValue() {
-            return value == null ? reference.get() : value;
+            V v = value;
+            if (v == null) {
+                WeakReference<V> ref = reference;
+                if (ref != null) {
+                    v = ref.get();
+                }
+            }
+            return v;
         }
 
         int getMemory() {
@@ -1196,6 +1480,14 @@ public class CacheLongKeyLIRS<V> {
          */
         public int segmentCount = 16;
 
+        /**
+         * Whether reads are recorded in read buffers and applied in batches.
+         * If disabled, each read that moves an entry locks the segment. Read
+         * buffers are disabled by default, because they are only faster if
+         * there is a lot of contention on the segment locks.
+         */
+        public boolean readBuffers;
+
         /**
          * How many other item are to be moved to the top of the stack before
          * the current item is moved.
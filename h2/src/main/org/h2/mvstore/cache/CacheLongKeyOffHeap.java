@@ -0,0 +1,414 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.h2.mvstore.DataUtils;
+import org.h2.util.MemoryUnmapper;
+
+/**
+ * A cache of byte buffers that keeps the data in direct (off-heap) memory, so
+ * that the size of the cache does not add to the work of the garbage
+ * collector.
+ * <p>
+ * Each segment of the cache writes the entries one after another into blocks
+ * of direct memory, like a ring buffer. When all blocks are full, the oldest
+ * block is overwritten, and the entries that were stored in it are removed.
+ * The memory is allocated when it is first used, and released when the cache
+ * is cleared.
+ * <p>
+ * The data of an entry is copied into a new heap buffer when reading, so it
+ * may still be used after the entry was overwritten. Access is synchronized
+ * per segment. The key 0 is not supported; such entries are never stored.
+ */
+public class CacheLongKeyOffHeap {
+
+    /**
+     * The minimum number of blocks of a segment.
+     */
+    private static final int MIN_BLOCK_COUNT = 16;
+
+    /**
+     * The maximum size of a block.
+     */
+    private static final int MAX_BLOCK_SIZE = 1 << 30;
+
+    /**
+     * The minimum memory of a segment.
+     */
+    private static final int MIN_SEGMENT_MEMORY = 64 * 1024;
+
+    private final long maxMemory;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+    private final int segmentMask;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxMemory the maximum memory to use, in bytes
+     * @param segmentCount the number of segments (must be a power of 2)
+     */
+    public CacheLongKeyOffHeap(long maxMemory, int segmentCount) {
+        DataUtils.checkArgument(
+                Integer.bitCount(segmentCount) == 1,
+                "The segment count must be a power of 2, is {0}", segmentCount);
+        long segmentMemory = Math.max(maxMemory / segmentCount, MIN_SEGMENT_MEMORY);
+        int blockSize = (int) Math.min(segmentMemory / MIN_BLOCK_COUNT, MAX_BLOCK_SIZE);
+        int blockCount = (int) (segmentMemory / blockSize);
+        this.maxMemory = (long) blockSize * blockCount * segmentCount;
+        segmentMask = segmentCount - 1;
+        // use the high bits for the segment, like CacheLongKeyLIRS
+        segmentShift = 32 - Integer.bitCount(segmentMask);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(blockSize, blockCount);
+        }
+    }
+
+    /**
+     * Get a copy of the data stored for the given key.
+     *
+     * @param key the key
+     * @return a new heap buffer with the data, or null if there is no entry
+     */
+    public ByteBuffer get(long key) {
+        if (key == 0) {
+            return null;
+        }
+        int hash = CacheLongKeyLIRS.getHash(key);
+        return getSegment(hash).get(key, hash);
+    }
+
+    /**
+     * Store a copy of the remaining bytes of the given buffer, if there is no
+     * entry for the key yet. The position of the buffer is not changed.
+     * Buffers that are larger than the maximum item size are not stored.
+     *
+     * @param key the key (may not be 0)
+     * @param buff the data
+     */
+    public void put(long key, ByteBuffer buff) {
+        if (key == 0) {
+            return;
+        }
+        int hash = CacheLongKeyLIRS.getHash(key);
+        getSegment(hash).put(key, hash, buff);
+    }
+
+    private Segment getSegment(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * Remove all entries, and release the memory.
+     */
+    public void clear() {
+        for (Segment s : segments) {
+            s.clear();
+        }
+    }
+
+    /**
+     * Get the maximum size of the data of an entry.
+     *
+     * @return the maximum size in bytes
+     */
+    public long getMaxItemSize() {
+        return segments[0].blockSize - 4;
+    }
+
+    /**
+     * Get the maximum memory to use.
+     *
+     * @return the maximum memory in bytes
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Get the memory that is currently allocated.
+     *
+     * @return the memory in bytes
+     */
+    public long getUsedMemory() {
+        long x = 0;
+        for (Segment s : segments) {
+            x += s.getUsedMemory();
+        }
+        return x;
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the cache hits
+     */
+    public long getHits() {
+        long x = 0;
+        for (Segment s : segments) {
+            x += s.hits;
+        }
+        return x;
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the cache misses
+     */
+    public long getMisses() {
+        long x = 0;
+        for (Segment s : segments) {
+            x += s.misses;
+        }
+        return x;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        int x = 0;
+        for (Segment s : segments) {
+            x += s.size;
+        }
+        return x;
+    }
+
+    /**
+     * A cache segment.
+     */
+    private static final class Segment {
+
+        /**
+         * The size of a block.
+         */
+        final int blockSize;
+
+        /**
+         * The blocks of direct memory, or null entries for blocks that were
+         * not used yet.
+         */
+        private final ByteBuffer[] blocks;
+
+        /**
+         * The keys of the entries stored in each block, used to remove the
+         * entries when the block is overwritten.
+         */
+        private final long[][] blockKeys;
+
+        private final int[] blockKeyCount;
+
+        /**
+         * The keys of the hash table (0 for empty slots).
+         */
+        private long[] keys;
+
+        /**
+         * The positions of the entries, in bytes written to this segment
+         * since it was cleared.
+         */
+        private long[] values;
+
+        private int mask;
+
+        /**
+         * The number of entries.
+         */
+        int size;
+
+        /**
+         * The position where the next entry is written.
+         */
+        private long writePos;
+
+        /**
+         * The number of cache hits.
+         */
+        long hits;
+
+        /**
+         * The number of cache misses.
+         */
+        long misses;
+
+        Segment(int blockSize, int blockCount) {
+            this.blockSize = blockSize;
+            blocks = new ByteBuffer[blockCount];
+            blockKeys = new long[blockCount][];
+            blockKeyCount = new int[blockCount];
+            clear();
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < blocks.length; i++) {
+                ByteBuffer block = blocks[i];
+                if (block != null) {
+                    blocks[i] = null;
+                    MemoryUnmapper.unmap(block);
+                }
+                blockKeys[i] = null;
+                blockKeyCount[i] = 0;
+            }
+            keys = new long[64];
+            values = new long[64];
+            mask = 63;
+            size = 0;
+            writePos = 0;
+        }
+
+        synchronized long getUsedMemory() {
+            long x = 0;
+            for (ByteBuffer block : blocks) {
+                if (block != null) {
+                    x += blockSize;
+                }
+            }
+            return x;
+        }
+
+        synchronized ByteBuffer get(long key, int hash) {
+            int index = find(key, hash);
+            if (index < 0) {
+                misses++;
+                return null;
+            }
+            long pos = values[index];
+            ByteBuffer block = blocks[(int) (pos / blockSize % blocks.length)];
+            int offset = (int) (pos % blockSize);
+            int len = block.getInt(offset);
+            ByteBuffer src = block.duplicate();
+            src.position(offset + 4);
+            src.limit(offset + 4 + len);
+            ByteBuffer buff = ByteBuffer.allocate(len);
+            buff.put(src);
+            buff.flip();
+            hits++;
+            return buff;
+        }
+
+        synchronized void put(long key, int hash, ByteBuffer buff) {
+            int len = buff.remaining();
+            if (len > blockSize - 4 || find(key, hash) >= 0) {
+                return;
+            }
+            int offset = (int) (writePos % blockSize);
+            if (offset + 4 + len > blockSize) {
+                // start the next block
+                writePos += blockSize - offset;
+                offset = 0;
+            }
+            int b = (int) (writePos / blockSize % blocks.length);
+            if (offset == 0) {
+                evict(b);
+            }
+            ByteBuffer block = blocks[b];
+            if (block == null) {
+                blocks[b] = block = ByteBuffer.allocateDirect(blockSize);
+            }
+            block.putInt(offset, len);
+            ByteBuffer dst = block.duplicate();
+            dst.position(offset + 4);
+            dst.put(buff.duplicate());
+            insert(key, hash, writePos);
+            long[] k = blockKeys[b];
+            int count = blockKeyCount[b];
+            if (k == null) {
+                blockKeys[b] = k = new long[64];
+            } else if (count == k.length) {
+                blockKeys[b] = k = Arrays.copyOf(k, count * 2);
+            }
+            k[count] = key;
+            blockKeyCount[b] = count + 1;
+            writePos += 4 + len;
+        }
+
+        /**
+         * Remove the entries of a block that is about to be overwritten.
+         *
+         * @param b the block index
+         */
+        private void evict(int b) {
+            long[] k = blockKeys[b];
+            for (int i = 0, count = blockKeyCount[b]; i < count; i++) {
+                remove(k[i]);
+            }
+            blockKeyCount[b] = 0;
+        }
+
+        private int find(long key, int hash) {
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == key) {
+                    return i;
+                } else if (k == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private void insert(long key, int hash, long value) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int i = hash & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        private void rehash(int len) {
+            long[] oldKeys = keys, oldValues = values;
+            keys = new long[len];
+            values = new long[len];
+            mask = len - 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                long k = oldKeys[i];
+                if (k != 0) {
+                    insert(k, CacheLongKeyLIRS.getHash(k), oldValues[i]);
+                }
+            }
+        }
+
+        private void remove(long key) {
+            int i = find(key, CacheLongKeyLIRS.getHash(key));
+            if (i < 0) {
+                return;
+            }
+            // move the following entries of the same cluster back, so that
+            // no entry is behind an empty slot
+            for (int j = (i + 1) & mask;; j = (j + 1) & mask) {
+                long k = keys[j];
+                if (k == 0) {
+                    break;
+                }
+                int r = CacheLongKeyLIRS.getHash(k) & mask;
+                if (i <= j ? i < r && r <= j : i < r || r <= j) {
+                    // the entry can not be moved before its slot
+                    continue;
+                }
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+            keys[i] = 0;
+            size--;
+        }
+
+    }
+
+}
@@ -18,6 +18,7 @@ import org.h2.engine.Database;
 import org.h2.message.DbException;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.RedoLog;
 import org.h2.mvstore.StreamStore;
 import org.h2.mvstore.db.MVTableEngine.Store;
 import org.h2.store.CountingReaderInputStream;
@@ -66,6 +67,8 @@ public class LobStorageMap implements LobStorageInterface {
 
     private StreamStore streamStore;
 
+    private MVStore mvStore;
+
     public LobStorageMap(Database database) {
         this.database = database;
     }
@@ -77,7 +80,6 @@ public class LobStorageMap implements LobStorageInterface {
         }
         init = true;
         Store s = database.getStore();
-        MVStore mvStore;
         if (s == null) {
             // in-memory database
             mvStore = MVStore.open(null);
@@ -223,6 +225,7 @@ public class LobStorageMap implements LobStorageInterface {
         lobMap.put(lobId, value);
         Object[] key = { streamStoreId, lobId };
         refMap.put(key, Boolean.TRUE);
+        setUnloggedChanges();
         ValueLobDb lob = ValueLobDb.create(
                 type, database, tableId, lobId, null, length);
         if (TRACE) {
@@ -231,6 +234,22 @@ public class LobStorageMap implements LobStorageInterface {
         return lob;
     }
 
+    /**
+     * Tell the redo log, if the store uses one, that the lob maps were
+     * changed. They are not transactional, so their changes are not in the
+     * redo log. The next commit of a transaction with changes writes a chunk
+     * first, so that a committed row can not reference a lob that was lost,
+     * but lobs that are created for the same commit only write one chunk.
+     * Removed lobs are not included: if the removal is lost, the lob is only
+     * kept until it is removed again.
+     */
+    private void setUnloggedChanges() {
+        RedoLog redoLog = mvStore.getRedoLog();
+        if (redoLog != null) {
+            redoLog.setUnloggedChanges();
+        }
+    }
+
     private long generateLobId() {
         synchronized (nextLobIdSync) {
             if (nextLobId == 0) {
@@ -263,6 +282,7 @@ public class LobStorageMap implements LobStorageInterface {
         lobMap.put(lobId, value);
         Object[] key = { streamStoreId, lobId };
         refMap.put(key, Boolean.TRUE);
+        setUnloggedChanges();
         ValueLobDb lob = ValueLobDb.create(
                 type, database, tableId, lobId, null, length);
         if (TRACE) {
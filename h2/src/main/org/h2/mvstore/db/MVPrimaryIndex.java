@@ -403,7 +403,7 @@ public class MVPrimaryIndex extends BaseIndex implements MVIndex {
      * @param last the key of the last row
      * @return the cursor
      */
-    Cursor find(Session session, ValueLong first, ValueLong last) {
+    public Cursor find(Session session, ValueLong first, ValueLong last) {
         TransactionMap<Value, Value> map = getMap(session);
         return new MVStoreCursor(session, map.entryIterator(first, last));
     }
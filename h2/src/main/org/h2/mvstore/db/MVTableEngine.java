@@ -76,6 +76,9 @@ public class MVTableEngine implements TableEngine {
                 if (autoCompactFillRate <= 100) {
                     builder.autoCompactFillRate(autoCompactFillRate);
                 }
+                if (db.getSettings().storeRedoLog) {
+                    builder.redoLog(dbPath + Constants.SUFFIX_MV_REDO_FILE);
+                }
             }
             if (key != null) {
                 encrypted = true;
@@ -86,6 +89,14 @@ public class MVTableEngine implements TableEngine {
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            builder.serializationThreads(db.getSettings().storeSerializationThreads);
+            if (db.getSettings().storeMemoryMapped) {
+                builder.memoryMapped();
+            }
+            builder.offHeapCacheSize(db.getSettings().storeOffHeapCacheSize);
+            if (db.getSettings().storeCacheReadBuffers) {
+                builder.cacheReadBuffers();
+            }
             builder.backgroundExceptionHandler(new UncaughtExceptionHandler() {
 
                 @Override
@@ -178,6 +189,7 @@ public class MVTableEngine implements TableEngine {
                 mvStore.setVersionsToKeep(0);
                 this.transactionStore = new TransactionStore(mvStore,
                         new ValueDataType(db, null), db.getLockTimeout());
+                transactionStore.setSyncCommit(db.getSettings().storeSyncCommit);
             } catch (IllegalStateException e) {
                 throw convertIllegalStateException(e);
             }
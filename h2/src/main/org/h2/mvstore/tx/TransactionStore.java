@@ -8,14 +8,18 @@ package org.h2.mvstore.tx;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.h2.mvstore.Cursor;
 import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.RedoLog;
 import org.h2.mvstore.RootReference;
 import org.h2.mvstore.WriteBuffer;
 import org.h2.mvstore.type.DataType;
@@ -60,6 +64,25 @@ public class TransactionStore {
 
     private final MVMap.Builder<Object, VersionedValue> mapBuilder;
 
+    /**
+     * The data type of the keys and values of the redo log records.
+     */
+    private final DataType dataType;
+
+    /**
+     * The redo log of the store, or null if not used. If used, each commit
+     * appends the changed keys with their new values.
+     */
+    private final RedoLog redoLog;
+
+    /**
+     * The changes from the redo log that are not applied yet, as key and
+     * value pairs by map name. A null value means the key is removed.
+     */
+    private final HashMap<String, ArrayList<Object>> pendingChanges = new HashMap<>();
+
+    private volatile boolean hasPendingChanges;
+
     /**
      * This BitSet is used as vacancy indicator for transaction slots in transactions[].
      * It provides easy way to find first unoccupied slot, and also allows for copy-on-write
@@ -84,6 +107,12 @@ public class TransactionStore {
      */
     private int maxTransactionId = MAX_OPEN_TRANSACTIONS;
 
+    /**
+     * Whether ending a transaction with changes waits until the changes are
+     * stored and synced.
+     */
+    private volatile boolean syncCommit;
+
     /**
      * Array holding all open transaction objects.
      * Position in array is "transaction id".
@@ -142,7 +171,9 @@ public class TransactionStore {
      */
     public TransactionStore(MVStore store, DataType dataType, int timeoutMillis) {
         this.store = store;
+        this.dataType = dataType;
         this.timeoutMillis = timeoutMillis;
+        redoLog = store.getRedoLog();
         preparedTransactions = store.openMap("openTransactions",
                 new MVMap.Builder<Integer, Object[]>());
         DataType oldValueType = new VersionedValueType(dataType);
@@ -164,6 +195,9 @@ public class TransactionStore {
      */
     public void init() {
         if (!init) {
+            if (redoLog != null && !redoLog.getPendingRecords().isEmpty()) {
+                replayRedoLog();
+            }
             for (String mapName : store.getMapNames()) {
                 if (mapName.startsWith(UNDO_LOG_NAME_PREFIX)) {
                     // Unexpectedly short name may be encountered upon upgrade from older version
@@ -222,13 +256,235 @@ public class TransactionStore {
         }
     }
 
+    /**
+     * Read the changes of the transactions that ended after the last chunk
+     * was written, as recorded in the redo log. The transactions that were
+     * open when the chunk was written are rolled back first, except for
+     * prepared transactions that did not end afterwards. The changes are
+     * applied when the maps are opened, because only then the data types are
+     * known.
+     */
+    private void replayRedoLog() {
+        // open the undo logs before locking, because opening a map may need
+        // to wait for a checkpoint
+        HashMap<Integer, MVMap<Long, Object[]>> openUndoLogs = new HashMap<>();
+        for (String mapName : store.getMapNames()) {
+            int prefixLength = UNDO_LOG_NAME_PREFIX.length() + 1;
+            if (mapName.startsWith(UNDO_LOG_NAME_PREFIX) && mapName.length() > prefixLength &&
+                    mapName.charAt(prefixLength - 1) == UNDO_LOG_OPEN && store.hasData(mapName)) {
+                int transactionId = StringUtils.parseUInt31(mapName, prefixLength, mapName.length());
+                MVMap<Long, Object[]> undoLog = store.openMap(mapName, undoLogBuilder);
+                Long lastUndoKey = undoLog.lastKey();
+                if (lastUndoKey != null && getLogId(lastUndoKey) < LOG_ID_MASK) {
+                    // not committed
+                    openUndoLogs.put(transactionId, undoLog);
+                }
+            }
+        }
+        ArrayList<MVMap<Long, Object[]>> clearedUndoLogs = new ArrayList<>();
+        redoLog.lockCommit();
+        try {
+            synchronized (pendingChanges) {
+                Iterator<Map.Entry<Integer, MVMap<Long, Object[]>>> it = openUndoLogs.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, MVMap<Long, Object[]>> e = it.next();
+                    Object[] data = preparedTransactions.get(e.getKey());
+                    if (data == null || (Integer) data[0] != Transaction.STATUS_PREPARED) {
+                        addRollbackChanges(e.getValue());
+                        clearedUndoLogs.add(e.getValue());
+                        it.remove();
+                    }
+                }
+                for (ByteBuffer record : redoLog.getPendingRecords()) {
+                    ByteBuffer buff = record.duplicate();
+                    int transactionId = DataUtils.readVarInt(buff);
+                    // the transaction ids are unique until the transaction
+                    // ends, so only the first record can be the end of a
+                    // prepared transaction
+                    MVMap<Long, Object[]> undoLog = openUndoLogs.remove(transactionId);
+                    if (undoLog != null) {
+                        addRollbackChanges(undoLog);
+                        clearedUndoLogs.add(undoLog);
+                        preparedTransactions.remove(transactionId);
+                    }
+                    for (int mapCount = DataUtils.readVarInt(buff); mapCount > 0; mapCount--) {
+                        ArrayList<Object> list = getPendingChanges(DataUtils.readString(buff));
+                        for (int count = DataUtils.readVarInt(buff); count > 0; count--) {
+                            list.add(dataType.read(buff));
+                            list.add(buff.get() == 0 ? null : dataType.read(buff));
+                        }
+                    }
+                }
+                updatePendingRecords();
+            }
+        } finally {
+            redoLog.unlockCommit();
+        }
+        for (MVMap<Long, Object[]> undoLog : clearedUndoLogs) {
+            store.removeMap(undoLog);
+        }
+    }
+
+    /**
+     * Add the old values of the changes of a transaction to the pending
+     * changes, and clear its undo log.
+     *
+     * @param undoLog the undo log
+     */
+    private void addRollbackChanges(MVMap<Long, Object[]> undoLog) {
+        // backwards, so that the value before the first change is restored
+        for (Long undoKey = undoLog.lastKey(); undoKey != null; undoKey = undoLog.lowerKey(undoKey)) {
+            Object[] op = undoLog.get(undoKey);
+            String mapName = store.getMapName((Integer) op[0]);
+            if (mapName != null) {
+                VersionedValue oldValue = (VersionedValue) op[2];
+                ArrayList<Object> list = getPendingChanges(mapName);
+                list.add(op[1]);
+                list.add(oldValue == null ? null : oldValue.getCurrentValue());
+            }
+        }
+        undoLog.clear();
+    }
+
+    private ArrayList<Object> getPendingChanges(String mapName) {
+        ArrayList<Object> list = pendingChanges.get(mapName);
+        if (list == null) {
+            list = new ArrayList<>();
+            pendingChanges.put(mapName, list);
+        }
+        return list;
+    }
+
+    /**
+     * Replace the pending records of the redo log with one record that
+     * contains the pending changes.
+     */
+    private void updatePendingRecords() {
+        hasPendingChanges = !pendingChanges.isEmpty();
+        redoLog.setPendingRecords(hasPendingChanges ?
+                Collections.singletonList(createRedoRecord(0, pendingChanges)) :
+                Collections.<ByteBuffer>emptyList());
+    }
+
+    /**
+     * Apply the pending changes of the redo log to a map that was opened.
+     *
+     * @param map the map
+     */
+    private void applyPendingChanges(MVMap<?, VersionedValue> map) {
+        if (!hasPendingChanges) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        MVMap<Object, VersionedValue> m = (MVMap<Object, VersionedValue>) map;
+        redoLog.lockCommit();
+        try {
+            synchronized (pendingChanges) {
+                ArrayList<Object> list = pendingChanges.remove(m.getName());
+                if (list != null) {
+                    for (int i = 0; i < list.size(); i += 2) {
+                        Object key = list.get(i);
+                        Object value = list.get(i + 1);
+                        if (value == null) {
+                            m.remove(key);
+                        } else {
+                            m.put(key, VersionedValueCommitted.getInstance(value));
+                        }
+                    }
+                    updatePendingRecords();
+                }
+            }
+        } finally {
+            redoLog.unlockCommit();
+        }
+    }
+
+    /**
+     * Open the maps that are changed by a transaction.
+     *
+     * @param undoLog the undo log of the transaction
+     */
+    private void openUndoLogMaps(MVMap<Long, Object[]> undoLog) {
+        Cursor<Long, Object[]> cursor = undoLog.cursor(null);
+        while (cursor.hasNext()) {
+            cursor.next();
+            openMap((Integer) cursor.getValue()[0]);
+        }
+    }
+
+    /**
+     * Create the redo log record of a transaction that commits. It contains
+     * the new values of the changed keys.
+     *
+     * @param transactionId the transaction id
+     * @return the record
+     */
+    private ByteBuffer createCommitRecord(int transactionId) {
+        HashMap<String, ArrayList<Object>> changes = new HashMap<>();
+        MVMap<Object, VersionedValue> lastMap = null;
+        ArrayList<Object> list = null;
+        Cursor<Long, Object[]> cursor = undoLogs[transactionId].cursor(null);
+        while (cursor.hasNext()) {
+            cursor.next();
+            Object[] op = cursor.getValue();
+            MVMap<Object, VersionedValue> map = openMap((Integer) op[0]);
+            if (map != null) {
+                if (map != lastMap) {
+                    lastMap = map;
+                    list = changes.get(map.getName());
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        changes.put(map.getName(), list);
+                    }
+                }
+                Object key = op[1];
+                VersionedValue value = map.get(key);
+                list.add(key);
+                list.add(value == null ? null : value.getCurrentValue());
+            }
+        }
+        return createRedoRecord(transactionId, changes);
+    }
+
+    /**
+     * Create a redo log record.
+     *
+     * @param transactionId the id of the transaction that ended, or 0
+     * @param changes the keys and values by map name
+     * @return the record
+     */
+    private ByteBuffer createRedoRecord(int transactionId, Map<String, ArrayList<Object>> changes) {
+        WriteBuffer buff = new WriteBuffer();
+        buff.putVarInt(transactionId).putVarInt(changes.size());
+        for (Map.Entry<String, ArrayList<Object>> e : changes.entrySet()) {
+            String mapName = e.getKey();
+            ArrayList<Object> list = e.getValue();
+            buff.putVarInt(mapName.length()).putStringData(mapName, mapName.length());
+            buff.putVarInt(list.size() / 2);
+            for (int i = 0; i < list.size(); i += 2) {
+                dataType.write(buff, list.get(i));
+                Object value = list.get(i + 1);
+                if (value == null) {
+                    buff.put((byte) 0);
+                } else {
+                    buff.put((byte) 1);
+                    dataType.write(buff, value);
+                }
+            }
+        }
+        ByteBuffer record = buff.getBuffer();
+        record.flip();
+        return record;
+    }
+
     private void markUndoLogAsCommitted(int transactionId) {
         addUndoLogRecord(transactionId, LOG_ID_MASK, COMMIT_MARKER);
     }
 
     /**
      * Commit all transactions that are in the committed state, and
-     * rollback all open transactions.
+     * rollback all open transactions. The changes from the redo log for maps
+     * that were not opened yet are applied.
      */
     public void endLeftoverTransactions() {
         List<Transaction> list = getOpenTransactions();
@@ -240,6 +496,29 @@ public class TransactionStore {
                 t.rollback();
             }
         }
+        if (hasPendingChanges) {
+            // the maps were not opened yet
+            ArrayList<String> mapNames;
+            synchronized (pendingChanges) {
+                mapNames = new ArrayList<>(pendingChanges.keySet());
+            }
+            for (String mapName : mapNames) {
+                if (store.hasMap(mapName)) {
+                    applyPendingChanges(store.openMap(mapName, mapBuilder));
+                } else {
+                    // the map was removed
+                    redoLog.lockCommit();
+                    try {
+                        synchronized (pendingChanges) {
+                            pendingChanges.remove(mapName);
+                            updatePendingRecords();
+                        }
+                    } finally {
+                        redoLog.unlockCommit();
+                    }
+                }
+            }
+        }
     }
 
     /**
@@ -255,6 +534,17 @@ public class TransactionStore {
         this.maxTransactionId = max;
     }
 
+    /**
+     * Set whether ending a transaction with changes waits until the changes
+     * are stored and synced to the storage. Concurrent commits are grouped
+     * into one store operation and one sync, see MVStore.commitAndSync().
+     *
+     * @param syncCommit the new value
+     */
+    public void setSyncCommit(boolean syncCommit) {
+        this.syncCommit = syncCommit;
+    }
+
     /**
      * Check whether a given map exists.
      *
@@ -457,44 +747,73 @@ public class TransactionStore {
     void commit(Transaction t, boolean recovery) {
         if (!store.isClosed()) {
             int transactionId = t.transactionId;
-            // First, mark log as "committed".
-            // It does not change the way this transaction is treated by others,
-            // but preserves fact of commit in case of abrupt termination.
-            MVMap<Long, Object[]> undoLog = undoLogs[transactionId];
-            Cursor<Long, Object[]> cursor;
-            if(recovery) {
-                removeUndoLogRecord(transactionId);
-                cursor = undoLog.cursor(null);
-            } else {
-                cursor = undoLog.cursor(null);
-                markUndoLogAsCommitted(transactionId);
+            // recovery happens before the store is used, and is repeated if
+            // the process is stopped before the next chunk is written
+            ByteBuffer redoRecord = redoLog == null || recovery ? null : createCommitRecord(transactionId);
+            long redoPos = 0;
+            if (redoRecord != null) {
+                if (redoLog.hasUnloggedChanges()) {
+                    // the transaction may refer to changes that are not in
+                    // the log (new lobs, added or removed maps), so they are
+                    // written to a chunk first
+                    store.commit();
+                }
+                redoLog.lockCommit();
             }
-
-            // this is an atomic action that causes all changes
-            // made by this transaction, to be considered as "committed"
-            flipCommittingTransactionsBit(transactionId, true);
-
-            CommitDecisionMaker commitDecisionMaker = new CommitDecisionMaker();
             try {
-                while (cursor.hasNext()) {
-                    Long undoKey = cursor.next();
-                    Object[] op = cursor.getValue();
-                    int mapId = (Integer) op[0];
-                    MVMap<Object, VersionedValue> map = openMap(mapId);
-                    if (map != null) { // might be null if map was removed later
-                        Object key = op[1];
-                        commitDecisionMaker.setUndoKey(undoKey);
-                        // although second parameter (value) is not really
-                        // used by CommitDecisionMaker, MVRTreeMap has weird
-                        // traversal logic based on it, and any non-null
-                        // value will do, to signify update, not removal
-                        map.operate(key, VersionedValue.DUMMY, commitDecisionMaker);
-                    }
+                if (redoRecord != null) {
+                    redoPos = redoLog.append(redoRecord);
                 }
-                undoLog.clear();
+                commit(transactionId, recovery);
             } finally {
-                flipCommittingTransactionsBit(transactionId, false);
+                if (redoRecord != null) {
+                    redoLog.unlockCommit();
+                }
             }
+            if (redoRecord != null) {
+                redoLog.sync(redoPos);
+            }
+        }
+    }
+
+    private void commit(int transactionId, boolean recovery) {
+        // First, mark log as "committed".
+        // It does not change the way this transaction is treated by others,
+        // but preserves fact of commit in case of abrupt termination.
+        MVMap<Long, Object[]> undoLog = undoLogs[transactionId];
+        Cursor<Long, Object[]> cursor;
+        if(recovery) {
+            removeUndoLogRecord(transactionId);
+            cursor = undoLog.cursor(null);
+        } else {
+            cursor = undoLog.cursor(null);
+            markUndoLogAsCommitted(transactionId);
+        }
+
+        // this is an atomic action that causes all changes
+        // made by this transaction, to be considered as "committed"
+        flipCommittingTransactionsBit(transactionId, true);
+
+        CommitDecisionMaker commitDecisionMaker = new CommitDecisionMaker();
+        try {
+            while (cursor.hasNext()) {
+                Long undoKey = cursor.next();
+                Object[] op = cursor.getValue();
+                int mapId = (Integer) op[0];
+                MVMap<Object, VersionedValue> map = openMap(mapId);
+                if (map != null) { // might be null if map was removed later
+                    Object key = op[1];
+                    commitDecisionMaker.setUndoKey(undoKey);
+                    // although second parameter (value) is not really
+                    // used by CommitDecisionMaker, MVRTreeMap has weird
+                    // traversal logic based on it, and any non-null
+                    // value will do, to signify update, not removal
+                    map.operate(key, VersionedValue.DUMMY, commitDecisionMaker);
+                }
+            }
+            undoLog.clear();
+        } finally {
+            flipCommittingTransactionsBit(transactionId, false);
         }
     }
 
@@ -532,6 +851,7 @@ public class TransactionStore {
                 new MVMap.Builder<K, VersionedValue>().
                 keyType(keyType).valueType(vt);
         map = store.openMap(name, builder);
+        applyPendingChanges(map);
         return map;
     }
 
@@ -550,6 +870,7 @@ public class TransactionStore {
                 return null;
             }
             map = store.openMap(mapName, mapBuilder);
+            applyPendingChanges(map);
         }
         return map;
     }
@@ -557,7 +878,8 @@ public class TransactionStore {
     /**
      * End this transaction. Change status to CLOSED and vacate transaction slot.
      * Will try to commit MVStore if autocommitDelay is 0 or if database is idle
-     * and amount of unsaved changes is sizable.
+     * and amount of unsaved changes is sizable, or commit and sync it if sync
+     * commit is enabled. Does not commit MVStore if it uses a redo log.
      *
      * @param t the transaction
      * @param hasChanges true if transaction has done any updates
@@ -584,7 +906,14 @@ public class TransactionStore {
                 preparedTransactions.remove(txId);
             }
 
-            if (wasStored || store.getAutoCommitDelay() == 0) {
+            if (redoLog != null) {
+                // the changes are durable already, and chunks are written by
+                // the background thread, or when there are many changes
+                return;
+            }
+            if (syncCommit) {
+                store.commitAndSync();
+            } else if (wasStored || store.getAutoCommitDelay() == 0) {
                 store.tryCommit();
             } else {
                 if (isUndoEmpty()) {
@@ -673,11 +1002,29 @@ public class TransactionStore {
     void rollbackTo(Transaction t, long maxLogId, long toLogId) {
         int transactionId = t.getId();
         MVMap<Long, Object[]> undoLog = undoLogs[transactionId];
-        RollbackDecisionMaker decisionMaker = new RollbackDecisionMaker(this, transactionId, toLogId, t.listener);
-        for (long logId = maxLogId - 1; logId >= toLogId; logId--) {
-            Long undoKey = getOperationId(transactionId, logId);
-            undoLog.operate(undoKey, null, decisionMaker);
-            decisionMaker.reset();
+        // the rollback of a prepared transaction needs to be logged, because
+        // the changes of the transaction may be stored already
+        boolean logged = redoLog != null && toLogId == 0 && !preparedTransactions.isClosed() &&
+                preparedTransactions.containsKey(transactionId);
+        if (logged) {
+            openUndoLogMaps(undoLog);
+            redoLog.lockCommit();
+        }
+        try {
+            if (logged) {
+                redoLog.sync(redoLog.append(
+                        createRedoRecord(transactionId, Collections.<String, ArrayList<Object>>emptyMap())));
+            }
+            RollbackDecisionMaker decisionMaker = new RollbackDecisionMaker(this, transactionId, toLogId, t.listener);
+            for (long logId = maxLogId - 1; logId >= toLogId; logId--) {
+                Long undoKey = getOperationId(transactionId, logId);
+                undoLog.operate(undoKey, null, decisionMaker);
+                decisionMaker.reset();
+            }
+        } finally {
+            if (logged) {
+                redoLog.unlockCommit();
+            }
         }
     }
 
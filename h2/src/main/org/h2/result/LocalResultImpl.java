@@ -7,6 +7,8 @@ package org.h2.result;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TreeMap;
 import org.h2.engine.Database;
 import org.h2.engine.Session;
@@ -15,8 +17,11 @@ import org.h2.expression.Expression;
 import org.h2.message.DbException;
 import org.h2.mvstore.db.MVTempResult;
 import org.h2.util.Utils;
+import org.h2.value.CompareMode;
+import org.h2.value.DataType;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
 import org.h2.value.ValueRow;
 
 /**
@@ -27,6 +32,12 @@ import org.h2.value.ValueRow;
  */
 public class LocalResultImpl implements LocalResult {
 
+    /**
+     * The minimum number of rows before the rows of a result with ORDER BY and
+     * FETCH are trimmed.
+     */
+    private static final int MIN_TOP_N_TRIM_SIZE = 1_000;
+
     private int maxMemoryRows;
     private Session session;
     private int visibleColumnCount;
@@ -35,15 +46,32 @@ public class LocalResultImpl implements LocalResult {
     private int rowId, rowCount;
     private ArrayList<Value[]> rows;
     private SortOrder sort;
-    // HashSet cannot be used here, because we need to compare values of
-    // different type or scale properly.
-    private TreeMap<Value, Value[]> distinctRows;
+    /**
+     * The distinct rows. A hash map if the values of all distinct columns can
+     * be hashed, see {@link #distinctHashTypes}, otherwise a tree map.
+     */
+    private Map<Value, Value[]> distinctRows;
+    /**
+     * The value types of the distinct columns as long as the distinct rows
+     * are kept in a hash map, or null.
+     */
+    private int[] distinctHashTypes;
     private Value[] currentRow;
     private int offset;
     private int limit = -1;
     private boolean fetchPercent;
     private SortOrder withTiesSortOrder;
     private boolean limitsWereApplied;
+    /**
+     * The last row of the first offset + limit rows when the rows were last
+     * trimmed, or null. Rows that are sorted after it are not added.
+     */
+    private Value[] topNBound;
+    /**
+     * The number of rows at which the rows are trimmed to the first offset +
+     * limit rows again.
+     */
+    private int topNTrimSize;
     private ResultExternal external;
     private boolean distinct;
     private int[] distinctIndexes;
@@ -134,6 +162,7 @@ public class LocalResultImpl implements LocalResult {
         copy.rows = this.rows;
         copy.sort = this.sort;
         copy.distinctRows = this.distinctRows;
+        copy.distinctHashTypes = distinctHashTypes;
         copy.distinct = distinct;
         copy.distinctIndexes = distinctIndexes;
         copy.currentRow = null;
@@ -156,7 +185,7 @@ public class LocalResultImpl implements LocalResult {
     public void setDistinct() {
         assert distinctIndexes == null;
         distinct = true;
-        distinctRows = new TreeMap<>(session.getDatabase().getCompareMode());
+        distinctRows = createDistinctRows();
     }
 
     /**
@@ -168,7 +197,7 @@ public class LocalResultImpl implements LocalResult {
     public void setDistinct(int[] distinctIndexes) {
         assert !distinct;
         this.distinctIndexes = distinctIndexes;
-        distinctRows = new TreeMap<>(session.getDatabase().getCompareMode());
+        distinctRows = createDistinctRows();
     }
 
     /**
@@ -191,6 +220,7 @@ public class LocalResultImpl implements LocalResult {
         assert values.length == visibleColumnCount;
         if (distinctRows != null) {
             ValueRow array = ValueRow.get(values);
+            checkDistinctHashTypes(array);
             distinctRows.remove(array);
             rowCount = distinctRows.size();
         } else {
@@ -211,13 +241,15 @@ public class LocalResultImpl implements LocalResult {
             return external.contains(values);
         }
         if (distinctRows == null) {
-            distinctRows = new TreeMap<>(session.getDatabase().getCompareMode());
+            distinctRows = createDistinctRows();
             for (Value[] row : rows) {
                 ValueRow array = getDistinctRow(row);
+                checkDistinctHashTypes(array);
                 distinctRows.put(array, array.getList());
             }
         }
         ValueRow array = ValueRow.get(values);
+        checkDistinctHashTypes(array);
         return distinctRows.get(array) != null;
     }
 
@@ -309,6 +341,53 @@ public class LocalResultImpl implements LocalResult {
         return ValueRow.get(values);
     }
 
+    /**
+     * Create the map for the distinct rows. Rows are looked up by hash code if
+     * the distinct columns have data types where this is consistent with the
+     * comparison of the database. Otherwise a tree map is used.
+     *
+     * @return the map
+     */
+    private Map<Value, Value[]> createDistinctRows() {
+        int count = distinctIndexes != null ? distinctIndexes.length : visibleColumnCount;
+        int[] types = new int[count];
+        CompareMode compareMode = session.getDatabase().getCompareMode();
+        for (int i = 0; i < count; i++) {
+            int type = expressions[distinctIndexes != null ? distinctIndexes[i] : i].getType().getValueType();
+            if (!DataType.hasConsistentHashCode(type, compareMode)) {
+                distinctHashTypes = null;
+                return new TreeMap<>(compareMode);
+            }
+            types[i] = type;
+        }
+        distinctHashTypes = types;
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * Check that the values of the row have the expected data types if the
+     * distinct rows are hashed. If not, the distinct rows are moved to a tree
+     * map.
+     *
+     * @param row the distinct values of the row
+     */
+    private void checkDistinctHashTypes(ValueRow row) {
+        int[] types = distinctHashTypes;
+        if (types != null) {
+            Value[] values = row.getList();
+            for (int i = 0; i < types.length; i++) {
+                Value v = values[i];
+                if (v.getValueType() != types[i] && v != ValueNull.INSTANCE) {
+                    distinctHashTypes = null;
+                    TreeMap<Value, Value[]> map = new TreeMap<>(session.getDatabase().getCompareMode());
+                    map.putAll(distinctRows);
+                    distinctRows = map;
+                    return;
+                }
+            }
+        }
+    }
+
     private void createExternalResult() {
         external = MVTempResult.of(session.getDatabase(), expressions, distinct, distinctIndexes, visibleColumnCount,
                 resultColumnCount, sort);
@@ -326,6 +405,7 @@ public class LocalResultImpl implements LocalResult {
         if (isAnyDistinct()) {
             if (distinctRows != null) {
                 ValueRow array = getDistinctRow(values);
+                checkDistinctHashTypes(array);
                 Value[] previous = distinctRows.get(array);
                 if (previous == null || sort != null && sort.compare(previous, values) > 0) {
                     distinctRows.put(array, values);
@@ -340,14 +420,66 @@ public class LocalResultImpl implements LocalResult {
                 rowCount = external.addRow(values);
             }
         } else {
-            rows.add(values);
-            rowCount++;
+            if (sort != null && limit > 0 && !fetchPercent && external == null && !limitsWereApplied) {
+                if (topNBound != null) {
+                    int cmp = sort.compare(values, topNBound);
+                    if (cmp > 0 || cmp == 0 && withTiesSortOrder == null) {
+                        // can't be one of the first rows
+                        return;
+                    }
+                }
+                rows.add(values);
+                rowCount++;
+                if (topNTrimSize == 0) {
+                    long count = (long) offset + limit;
+                    topNTrimSize = count <= maxMemoryRows / 2
+                            ? (int) Math.min(Math.max(count * 2, MIN_TOP_N_TRIM_SIZE), maxMemoryRows)
+                            : Integer.MAX_VALUE;
+                }
+                if (rows.size() >= topNTrimSize) {
+                    trimTopN(offset + limit);
+                    return;
+                }
+            } else {
+                rows.add(values);
+                rowCount++;
+            }
             if (rows.size() > maxMemoryRows) {
                 addRowsToDisk();
             }
         }
     }
 
+    /**
+     * Keep only the first rows (and the rows that are equal to the last one
+     * if WITH TIES is used), so that the memory needed for a query with ORDER
+     * BY and FETCH only depends on offset + limit.
+     *
+     * @param count the number of rows to keep
+     */
+    private void trimTopN(int count) {
+        Value[][] array = rows.toArray(new Value[0][]);
+        Utils.sortTopN(array, 0, count, sort);
+        Value[] bound = array[count - 1];
+        rows.clear();
+        rows.addAll(Arrays.asList(array).subList(0, count));
+        if (withTiesSortOrder != null) {
+            for (int i = count; i < array.length; i++) {
+                Value[] row = array[i];
+                if (sort.compare(bound, row) == 0) {
+                    rows.add(row);
+                }
+            }
+        }
+        int size = rows.size();
+        rowCount = size;
+        topNBound = bound;
+        // with many ties the rows may need to be stored externally
+        topNTrimSize = size <= maxMemoryRows / 2
+                ? Math.min(Math.max(size * 2, MIN_TOP_N_TRIM_SIZE), maxMemoryRows)
+                : Integer.MAX_VALUE;
+    }
+
     private void addRowsToDisk() {
         if (external == null) {
             createExternalResult();
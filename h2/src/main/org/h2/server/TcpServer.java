@@ -6,6 +6,7 @@
 package org.h2.server;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
@@ -53,6 +54,38 @@ public class TcpServer implements Service {
 
     private static final ConcurrentHashMap<Integer, TcpServer> SERVERS = new ConcurrentHashMap<>();
 
+    /**
+     * Thread.ofVirtual(), Thread.Builder.name(String), and
+     * Thread.Builder.unstarted(Runnable), or null if the runtime does not
+     * support virtual threads.
+     */
+    private static final Method OF_VIRTUAL, BUILDER_NAME, BUILDER_UNSTARTED;
+
+    static {
+        Method ofVirtual = null, builderName = null, builderUnstarted = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builder.getMethod("name", String.class);
+            builderUnstarted = builder.getMethod("unstarted", Runnable.class);
+            // in Java 19 and 20, the methods exist but throw an exception
+            // if preview features are not enabled
+            builderUnstarted.invoke(builderName.invoke(ofVirtual.invoke(null), "check"), new Runnable() {
+                @Override
+                public void run() {
+                    // not started
+                }
+            });
+        } catch (Throwable e) {
+            ofVirtual = null;
+            builderName = null;
+            builderUnstarted = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_UNSTARTED = builderUnstarted;
+    }
+
     private int port;
     private boolean portIsSet;
     private boolean trace;
@@ -65,6 +98,7 @@ public class TcpServer implements Service {
     private String baseDir;
     private boolean allowOthers;
     private boolean isDaemon;
+    private boolean virtualThreads;
     private boolean ifExists = true;
     private Connection managementDb;
     private PreparedStatement managementDbAdd;
@@ -190,6 +224,8 @@ public class TcpServer implements Service {
                 allowOthers = true;
             } else if (Tool.isOption(a, "-tcpDaemon")) {
                 isDaemon = true;
+            } else if (Tool.isOption(a, "-tcpVirtualThreads")) {
+                virtualThreads = true;
             } else if (Tool.isOption(a, "-ifExists")) {
                 ifExists = true;
             } else if (Tool.isOption(a, "-ifNotExists")) {
@@ -251,6 +287,10 @@ public class TcpServer implements Service {
             }
         }
         port = serverSocket.getLocalPort();
+        if (virtualThreads && OF_VIRTUAL == null) {
+            trace("Virtual threads are not supported, using platform threads");
+            virtualThreads = false;
+        }
         initManagementDb();
     }
 
@@ -265,10 +305,16 @@ public class TcpServer implements Service {
                 int id = nextThreadId++;
                 TcpServerThread c = new TcpServerThread(s, this, id);
                 running.add(c);
-                Thread thread = new Thread(c, threadName + " thread-" + id);
-                thread.setDaemon(isDaemon);
-                c.setThread(thread);
-                thread.start();
+                try {
+                    Thread thread = newThread(c, threadName + " thread-" + id);
+                    c.setThread(thread);
+                    thread.start();
+                } catch (Throwable e) {
+                    // only this connection fails; close the socket and
+                    // keep accepting
+                    c.close();
+                    DbException.traceThrowable(e);
+                }
             }
             serverSocket = NetUtils.closeSilently(serverSocket);
         } catch (Exception e) {
@@ -279,6 +325,33 @@ public class TcpServer implements Service {
         stopManagementDb();
     }
 
+    /**
+     * Create the thread for a connection. Virtual threads are used if enabled,
+     * so that idle connections do not need a platform thread each.
+     *
+     * @param runnable the connection handler
+     * @param name the thread name
+     * @return the new (not yet started) thread
+     */
+    private Thread newThread(Runnable runnable, String name) throws Exception {
+        if (virtualThreads) {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+            return (Thread) BUILDER_UNSTARTED.invoke(builder, runnable);
+        }
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(isDaemon);
+        return thread;
+    }
+
+    /**
+     * Check whether connections are handled by virtual threads.
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
     @Override
     public synchronized boolean isRunning(boolean traceError) {
         if (serverSocket == null) {
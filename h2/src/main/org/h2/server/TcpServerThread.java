@@ -231,23 +231,9 @@ public class TcpServerThread implements Runnable {
 
     private void sendError(Throwable t) {
         try {
-            SQLException e = DbException.convert(t).getSQLException();
-            StringWriter writer = new StringWriter();
-            e.printStackTrace(new PrintWriter(writer));
-            String trace = writer.toString();
-            String message;
-            String sql;
-            if (e instanceof JdbcException) {
-                JdbcException j = (JdbcException) e;
-                message = j.getOriginalMessage();
-                sql = j.getSQL();
-            } else {
-                message = e.getMessage();
-                sql = null;
-            }
-            transfer.writeInt(SessionRemote.STATUS_ERROR).
-                    writeString(e.getSQLState()).writeString(message).
-                    writeString(sql).writeInt(e.getErrorCode()).writeString(trace).flush();
+            transfer.writeInt(SessionRemote.STATUS_ERROR);
+            writeError(t);
+            transfer.flush();
         } catch (Exception e2) {
             if (!transfer.isClosed()) {
                 server.traceError(e2);
@@ -257,6 +243,25 @@ public class TcpServerThread implements Runnable {
         }
     }
 
+    private void writeError(Throwable t) throws IOException {
+        SQLException e = DbException.convert(t).getSQLException();
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        String trace = writer.toString();
+        String message;
+        String sql;
+        if (e instanceof JdbcException) {
+            JdbcException j = (JdbcException) e;
+            message = j.getOriginalMessage();
+            sql = j.getSQL();
+        } else {
+            message = e.getMessage();
+            sql = null;
+        }
+        transfer.writeString(e.getSQLState()).writeString(message).
+                writeString(sql).writeInt(e.getErrorCode()).writeString(trace);
+    }
+
     private void setParameters(Command command) throws IOException {
         int len = transfer.readInt();
         ArrayList<? extends ParameterInterface> params = command.getParameters();
@@ -431,6 +436,45 @@ public class TcpServerThread implements Runnable {
             transfer.flush();
             break;
         }
+        case SessionRemote.COMMAND_EXECUTE_BATCH_UPDATE: {
+            int id = transfer.readInt();
+            int size = transfer.readInt();
+            Command command = (Command) cache.getObject(id, false);
+            int old = session.getModificationId();
+            int[] updateCounts = new int[size];
+            Exception[] exceptions = new Exception[size];
+            for (int i = 0; i < size; i++) {
+                // all parameter sets were sent in one message, execute them
+                // one after another and send the results together
+                setParameters(command);
+                try {
+                    synchronized (session) {
+                        updateCounts[i] = command.executeUpdate(false).getUpdateCount();
+                    }
+                } catch (Exception e) {
+                    exceptions[i] = e;
+                }
+            }
+            int status;
+            if (session.isClosed()) {
+                status = SessionRemote.STATUS_CLOSED;
+                stop = true;
+            } else {
+                status = getState(old);
+            }
+            transfer.writeInt(status);
+            for (int i = 0; i < size; i++) {
+                if (exceptions[i] == null) {
+                    transfer.writeBoolean(true).writeInt(updateCounts[i]);
+                } else {
+                    transfer.writeBoolean(false);
+                    writeError(exceptions[i]);
+                }
+            }
+            transfer.writeBoolean(session.getAutoCommit());
+            transfer.flush();
+            break;
+        }
         case SessionRemote.COMMAND_CLOSE: {
             int id = transfer.readInt();
             Command command = (Command) cache.getObject(id, true);
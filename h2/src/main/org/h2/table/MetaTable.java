@@ -18,6 +18,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.h2.command.Command;
+import org.h2.command.SharedPlanCache;
 import org.h2.constraint.Constraint;
 import org.h2.constraint.ConstraintActionType;
 import org.h2.constraint.ConstraintCheck;
@@ -1132,6 +1133,15 @@ public class MetaTable extends Table {
             for (Map.Entry<String, String> entry : database.getSettings().getSortedSettings()) {
                 add(rows, entry.getKey(), entry.getValue());
             }
+            SharedPlanCache sharedPlanCache = database.getSharedPlanCache();
+            if (sharedPlanCache != null) {
+                add(rows, "info.SHARED_PLAN_CACHE_ENTRIES",
+                        Integer.toString(sharedPlanCache.size()));
+                add(rows, "info.SHARED_PLAN_CACHE_HITS",
+                        Long.toString(sharedPlanCache.getHits()));
+                add(rows, "info.SHARED_PLAN_CACHE_MISSES",
+                        Long.toString(sharedPlanCache.getMisses()));
+            }
             if (database.isPersistent()) {
                 PageStore pageStore = database.getPageStore();
                 if (pageStore != null) {
@@ -1176,6 +1186,14 @@ public class MetaTable extends Table {
                             Integer.toString(mvStore.getCacheSize()));
                     add(rows, "info.CACHE_SIZE",
                             Integer.toString(mvStore.getCacheSizeUsed()));
+                    if (mvStore.getOffHeapCache() != null) {
+                        add(rows, "info.OFF_HEAP_CACHE_MAX_SIZE",
+                                Integer.toString(mvStore.getOffHeapCacheSize()));
+                        add(rows, "info.OFF_HEAP_CACHE_SIZE",
+                                Integer.toString(mvStore.getOffHeapCacheSizeUsed()));
+                        add(rows, "info.OFF_HEAP_CACHE_HIT_RATIO",
+                                Integer.toString(mvStore.getOffHeapCacheHitRatio()));
+                    }
                 }
             }
             break;
@@ -6,6 +6,7 @@
 package org.h2.table;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -20,10 +21,12 @@ import org.h2.engine.Right;
 import org.h2.engine.Session;
 import org.h2.expression.Expression;
 import org.h2.expression.ExpressionColumn;
+import org.h2.expression.condition.BatchCondition;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
 import org.h2.index.Index;
 import org.h2.index.IndexCondition;
+import org.h2.index.HashJoinIndex;
 import org.h2.index.IndexCursor;
 import org.h2.index.IndexLookupBatch;
 import org.h2.index.ViewIndex;
@@ -138,6 +141,17 @@ public class TableFilter implements ColumnResolver {
     private ArrayList<Column> commonJoinColumnsToExclude;
     private boolean foundOne;
     private Expression fullCondition;
+
+    /**
+     * The comparisons evaluated over batches of rows, or null if the rows are
+     * read one at a time.
+     */
+    private BatchCondition batchCondition;
+    private Row[] batchRows;
+    private int[] batchSelection;
+    private int batchCount, batchIndex;
+    private boolean batchEnd;
+
     private final int hashCode;
     private final int orderInFrom;
 
@@ -249,6 +263,18 @@ public class TableFilter implements ColumnResolver {
             }
         }
         PlanItem item = table.getBestPlanItem(s, masks, filters, filter, sortOrder, allColumnsSet);
+        if (filter > 0 && masks != null && indexHints == null && item.getIndex().getIndexType().isScan()
+                && s.getDatabase().getSettings().hashJoin) {
+            // the table is scanned for each row of the outer tables
+            HashJoinIndex hashIndex = HashJoinIndex.create(s, table, masks);
+            if (hashIndex != null) {
+                double cost = hashIndex.getCost(s, masks, filters, filter, sortOrder, allColumnsSet);
+                if (cost < item.cost) {
+                    item.cost = cost;
+                    item.setIndex(hashIndex);
+                }
+            }
+        }
         item.setMasks(masks);
         // The more index conditions, the earlier the table.
         // This is to ensure joins without indexes run quickly:
@@ -370,6 +396,7 @@ public class TableFilter implements ColumnResolver {
     public void startQuery(Session s) {
         this.session = s;
         scanCount = 0;
+        releaseHashJoin();
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
@@ -378,6 +405,16 @@ public class TableFilter implements ColumnResolver {
         }
     }
 
+    /**
+     * Release the hash table of the hash join index, if one is used, so that
+     * it does not use memory while the query is not running.
+     */
+    public void releaseHashJoin() {
+        if (index instanceof HashJoinIndex) {
+            ((HashJoinIndex) index).release();
+        }
+    }
+
     /**
      * Reset to the current position.
      */
@@ -487,6 +524,9 @@ public class TableFilter implements ColumnResolver {
      * @return true if there are
      */
     public boolean next() {
+        if (batchCondition != null) {
+            return nextInBatch();
+        }
         if (joinBatch != null) {
             // will happen only on topTableFilter since joinBatch.next() does
             // not call join.next()
@@ -578,6 +618,71 @@ public class TableFilter implements ColumnResolver {
         return false;
     }
 
+    /**
+     * Read the rows in batches and evaluate the comparisons of the given batch
+     * condition over all rows of a batch. This is only possible for a single
+     * table without joins that is read with a table scan or the primary key.
+     *
+     * @param condition the batch condition
+     * @param batchSize the number of rows per batch
+     */
+    public void setBatchCondition(BatchCondition condition, int batchSize) {
+        batchCondition = condition;
+        batchRows = new Row[batchSize];
+        batchSelection = new int[batchSize];
+    }
+
+    private boolean nextInBatch() {
+        if (state == AFTER_LAST) {
+            return false;
+        } else if (state == BEFORE_FIRST) {
+            cursor.find(session, indexConditions);
+            batchCount = batchIndex = 0;
+            batchEnd = cursor.isAlwaysFalse();
+        }
+        while (batchIndex >= batchCount) {
+            if (!readBatch()) {
+                Arrays.fill(batchRows, null);
+                state = AFTER_LAST;
+                current = null;
+                currentSearchRow = null;
+                return false;
+            }
+        }
+        current = batchRows[batchSelection[batchIndex++]];
+        currentSearchRow = current;
+        state = FOUND;
+        return true;
+    }
+
+    private boolean readBatch() {
+        Row[] rows = batchRows;
+        int[] selection = batchSelection;
+        int count = 0;
+        while (!batchEnd && count < rows.length) {
+            if ((++scanCount & 4095) == 0) {
+                checkTimeout();
+            }
+            if (cursor.next()) {
+                rows[count] = cursor.get();
+                selection[count] = count;
+                count++;
+            } else {
+                batchEnd = true;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        // clear the rows of the previous batch
+        for (int i = count; i < rows.length && rows[i] != null; i++) {
+            rows[i] = null;
+        }
+        batchCount = batchCondition.filter(rows, selection, count);
+        batchIndex = 0;
+        return true;
+    }
+
     /**
      * Set the state of this and all nested tables to the NULL row.
      */
@@ -962,7 +1067,7 @@ public class TableFilter implements ColumnResolver {
      *
      * @param session the new session
      */
-    void setSession(Session session) {
+    public void setSession(Session session) {
         this.session = session;
     }
 
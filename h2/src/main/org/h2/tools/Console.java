@@ -138,6 +138,8 @@ public class Console extends Tool implements ShutdownHandler {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
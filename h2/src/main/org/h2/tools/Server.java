@@ -80,6 +80,8 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
      * <td>Allow other computers to connect - see below</td></tr>
      * <tr><td>[-tcpDaemon]</td>
      * <td>Use a daemon thread</td></tr>
+     * <tr><td>[-tcpVirtualThreads]</td>
+     * <td>Use virtual threads for connections (Java 21+)</td></tr>
      * <tr><td>[-tcpPort &lt;port&gt;]</td>
      * <td>The port (default: 9092)</td></tr>
      * <tr><td>[-tcpSSL]</td>
@@ -153,6 +155,8 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -256,6 +260,8 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
                     // no parameters
                 } else if ("-tcpDaemon".equals(arg)) {
                     // no parameters
+                } else if ("-tcpVirtualThreads".equals(arg)) {
+                    // no parameters
                 } else if ("-tcpSSL".equals(arg)) {
                     // no parameters
                 } else if ("-tcpPort".equals(arg)) {
@@ -458,7 +464,7 @@ public class Server extends Tool implements Runnable, ShutdownHandler {
      * </pre>
      * Supported options are:
      * -tcpPort, -tcpSSL, -tcpPassword, -tcpAllowOthers, -tcpDaemon,
-     * -trace, -ifExists, -ifNotExists, -baseDir, -key.
+     * -tcpVirtualThreads, -trace, -ifExists, -ifNotExists, -baseDir, -key.
      * See the main method for details.
      * <p>
      * If no port is specified, the default port is used if possible,
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.util;
+
+import org.h2.message.DbException;
+
+/**
+ * A hash set of long values. Elements can not be removed.
+ * An empty record has key=0.
+ */
+public class LongHashSet extends HashBase {
+
+    private long[] keys;
+
+    @Override
+    protected void reset(int newLevel) {
+        super.reset(newLevel);
+        keys = new long[len];
+    }
+
+    /**
+     * Add the given value to the set.
+     *
+     * @param key the value
+     */
+    public void add(long key) {
+        if (key == 0) {
+            zeroKey = true;
+            return;
+        }
+        checkSizePut();
+        internalAdd(key);
+    }
+
+    private void internalAdd(long key) {
+        int index = getIndex(hash(key));
+        int plus = 1;
+        do {
+            long k = keys[index];
+            if (k == 0) {
+                // found an empty record
+                size++;
+                keys[index] = key;
+                return;
+            } else if (k == key) {
+                // already in the set
+                return;
+            }
+            index = (index + plus++) & mask;
+        } while (plus <= len);
+        // no space
+        DbException.throwInternalError("hashmap is full");
+    }
+
+    @Override
+    protected void rehash(int newLevel) {
+        long[] oldKeys = keys;
+        reset(newLevel);
+        for (long k : oldKeys) {
+            if (k != 0) {
+                // skip the checkSizePut so we don't end up
+                // accidentally recursing
+                internalAdd(k);
+            }
+        }
+    }
+
+    /**
+     * Check whether the set contains the given value.
+     *
+     * @param key the value
+     * @return true if the value is in the set
+     */
+    public boolean contains(long key) {
+        if (key == 0) {
+            return zeroKey;
+        }
+        int index = getIndex(hash(key));
+        int plus = 1;
+        do {
+            long k = keys[index];
+            if (k == 0) {
+                // found an empty record
+                return false;
+            } else if (k == key) {
+                return true;
+            }
+            index = (index + plus++) & mask;
+        } while (plus <= len);
+        return false;
+    }
+
+    private static int hash(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+
+}
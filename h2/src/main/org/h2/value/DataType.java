@@ -1447,6 +1447,38 @@ public class DataType {
         return type == Value.BLOB || type == Value.CLOB;
     }
 
+    /**
+     * Check if values of the given type that are equal according to the
+     * comparison of the database are also equal according to
+     * {@link Value#equals(Object)} and have the same hash code, so that they
+     * can be looked up in a hash table instead of a sorted map.
+     *
+     * @param type the value type
+     * @param compareMode the compare mode of the database
+     * @return true if values of this type can be hashed
+     */
+    public static boolean hasConsistentHashCode(int type, CompareMode compareMode) {
+        switch (type) {
+        case Value.BOOLEAN:
+        case Value.BYTE:
+        case Value.SHORT:
+        case Value.INT:
+        case Value.LONG:
+        case Value.TIME:
+        case Value.DATE:
+        case Value.TIMESTAMP:
+        case Value.BYTES:
+        case Value.UUID:
+            return true;
+        case Value.STRING:
+        case Value.STRING_FIXED:
+            // a collator may consider different strings equal
+            return CompareMode.OFF.equals(compareMode.getName());
+        default:
+            return false;
+        }
+    }
+
     /**
      * Check if the given value type is a numeric type.
      *
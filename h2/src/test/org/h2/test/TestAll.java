@@ -133,6 +133,7 @@ import org.h2.test.server.TestWeb;
 import org.h2.test.store.TestCacheConcurrentLIRS;
 import org.h2.test.store.TestCacheLIRS;
 import org.h2.test.store.TestCacheLongKeyLIRS;
+import org.h2.test.store.TestCacheLongKeyOffHeap;
 import org.h2.test.store.TestConcurrent;
 import org.h2.test.store.TestDataUtils;
 import org.h2.test.store.TestDefrag;
@@ -201,6 +202,7 @@ import org.h2.test.unit.TestJsonUtils;
 import org.h2.test.unit.TestKeywords;
 import org.h2.test.unit.TestLocalResultFactory;
 import org.h2.test.unit.TestLocale;
+import org.h2.test.unit.TestLongHashSet;
 import org.h2.test.unit.TestMVTempResult;
 import org.h2.test.unit.TestMathUtils;
 import org.h2.test.unit.TestMemoryUnmapper;
@@ -929,6 +931,7 @@ kill -9 `jps -l | grep "org.h2.test." | cut -d " " -f 1`
         addTest(new TestCacheConcurrentLIRS());
         addTest(new TestCacheLIRS());
         addTest(new TestCacheLongKeyLIRS());
+        addTest(new TestCacheLongKeyOffHeap());
         addTest(new TestDataUtils());
         addTest(new TestFreeSpace());
         addTest(new TestKillProcessWhileWriting());
@@ -960,6 +963,7 @@ kill -9 `jps -l | grep "org.h2.test." | cut -d " " -f 1`
         addTest(new TestInterval());
         addTest(new TestIntArray());
         addTest(new TestIntIntHashMap());
+        addTest(new TestLongHashSet());
         addTest(new TestIntPerfectHash());
         addTest(new TestJsonUtils());
         addTest(new TestKeywords());
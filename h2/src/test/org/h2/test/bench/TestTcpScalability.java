@@ -0,0 +1,98 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.bench;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.h2.server.TcpServer;
+import org.h2.tools.Server;
+import org.h2.util.JdbcUtils;
+
+/**
+ * Compares the TCP server with one platform thread per connection to the TCP
+ * server with virtual threads (-tcpVirtualThreads, requires Java 21 or newer).
+ * For a growing number of mostly idle connections, it measures the time to
+ * open the connections, the number of live threads, and the latency of a
+ * simple query executed on one of them.
+ */
+public class TestTcpScalability {
+
+    private static final int[] CONNECTIONS = { 10, 100, 500, 1000, 2000 };
+    private static final int QUERIES = 2000;
+
+    /**
+     * This method is called when executing this sample application.
+     *
+     * @param args the command line parameters
+     */
+    public static void main(String... args) throws Exception {
+        org.h2.Driver.load();
+        run(false);
+        run(true);
+    }
+
+    private static void run(boolean virtualThreads) throws Exception {
+        ArrayList<String> options = new ArrayList<>(Arrays.asList("-ifNotExists"));
+        if (virtualThreads) {
+            options.add("-tcpVirtualThreads");
+        }
+        Server server = Server.createTcpServer(options.toArray(new String[0])).start();
+        try {
+            boolean virtual = ((TcpServer) server.getService()).isVirtualThreads();
+            if (virtualThreads && !virtual) {
+                System.out.println("Virtual threads are not supported by this runtime");
+                return;
+            }
+            System.out.println(virtual ? "Virtual threads" : "Platform threads");
+            System.out.println("connections\topen ms\tthreads\tp50 us\tp99 us");
+            String url = "jdbc:h2:" + server.getURL() + "/mem:tcpScalability";
+            ArrayList<Connection> connections = new ArrayList<>();
+            try {
+                for (int count : CONNECTIONS) {
+                    long time = System.nanoTime();
+                    while (connections.size() < count) {
+                        connections.add(DriverManager.getConnection(url, "sa", ""));
+                    }
+                    time = System.nanoTime() - time;
+                    int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+                    long[] latency = measureLatency(connections.get(count / 2));
+                    System.out.println(count + "\t" + time / 1_000_000 + "\t" + threads + "\t" +
+                            latency[latency.length / 2] / 1_000 + "\t" +
+                            latency[latency.length * 99 / 100] / 1_000);
+                }
+            } finally {
+                for (Connection conn : connections) {
+                    JdbcUtils.closeSilently(conn);
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long[] measureLatency(Connection conn) throws SQLException {
+        long[] latency = new long[QUERIES];
+        try (PreparedStatement prep = conn.prepareStatement("SELECT ?")) {
+            for (int i = 0; i < QUERIES; i++) {
+                long time = System.nanoTime();
+                prep.setInt(1, i);
+                try (ResultSet rs = prep.executeQuery()) {
+                    rs.next();
+                }
+                latency[i] = System.nanoTime() - time;
+            }
+        }
+        Arrays.sort(latency);
+        return latency;
+    }
+
+}
@@ -54,6 +54,7 @@ public class TestBigResult extends TestDb {
         testCloseConnectionDelete();
         testOrderGroup();
         testLimitBufferedResult();
+        testTopN();
         deleteDb("bigResult");
     }
 
@@ -424,6 +425,50 @@ public class TestBigResult extends TestDb {
         conn.close();
     }
 
+    private void testTopN() throws SQLException {
+        deleteDb("bigResult");
+        Connection conn = getConnection("bigResult");
+        Statement stat = conn.createStatement();
+        // each value of V exists 20 times, each value of W 200 times
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT, W INT) AS " +
+                "SELECT X, MOD(X * 7919, 1000), MOD(X * 7919, 1000) / 10 FROM SYSTEM_RANGE(1, 20000)");
+        ResultSet rs;
+        rs = stat.executeQuery("SELECT V, ID FROM TEST ORDER BY V, ID OFFSET 100 ROWS FETCH FIRST 50 ROWS ONLY");
+        int previous = -1;
+        for (int i = 0; i < 50; i++) {
+            assertTrue(rs.next());
+            assertEquals(5 + i / 20, rs.getInt(1));
+            int id = rs.getInt(2);
+            assertTrue(i % 20 == 0 || id > previous);
+            previous = id;
+        }
+        assertFalse(rs.next());
+        assertEquals(40, countRows(stat, "SELECT V FROM TEST ORDER BY V FETCH FIRST 30 ROWS WITH TIES"));
+        assertEquals(400, countRows(stat, "SELECT W FROM TEST ORDER BY W FETCH FIRST 250 ROWS WITH TIES"));
+        assertEquals(40, countRows(stat, "SELECT V FROM TEST UNION ALL SELECT V FROM TEST " +
+                "ORDER BY V DESC FETCH FIRST 3 ROWS WITH TIES"));
+        stat.execute("SET MAX_MEMORY_ROWS 100");
+        rs = stat.executeQuery("SELECT V, ID FROM TEST ORDER BY V DESC, ID OFFSET 30 ROWS FETCH NEXT 20 ROWS ONLY");
+        for (int i = 30; i < 50; i++) {
+            assertTrue(rs.next());
+            assertEquals(999 - i / 20, rs.getInt(1));
+        }
+        assertFalse(rs.next());
+        assertEquals(20, countRows(stat, "SELECT V FROM TEST ORDER BY V FETCH FIRST 5 ROWS WITH TIES"));
+        assertEquals(60, countRows(stat, "SELECT V FROM TEST ORDER BY V FETCH FIRST 60 ROWS WITH TIES"));
+        assertEquals(160, countRows(stat, "SELECT V FROM TEST ORDER BY V FETCH FIRST 150 ROWS WITH TIES"));
+        conn.close();
+    }
+
+    private static int countRows(Statement stat, String sql) throws SQLException {
+        ResultSet rs = stat.executeQuery(sql);
+        int count = 0;
+        while (rs.next()) {
+            count++;
+        }
+        return count;
+    }
+
     private void testOrderGroup() throws SQLException {
         deleteDb("bigResult");
         Connection conn = getConnection("bigResult");
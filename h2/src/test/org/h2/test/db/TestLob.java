@@ -112,6 +112,8 @@ public class TestLob extends TestDb {
         testClob();
         testUpdateLob();
         testLobReconnect();
+        testLobRedoLog();
+        testLobRedoLogAfterDdl();
         testLob(false);
         testLob(true);
         testJavaObject();
@@ -1413,6 +1415,70 @@ public class TestLob extends TestDb {
         conn.close();
     }
 
+    private void testLobRedoLog() throws Exception {
+        if (!config.mvStore) {
+            return;
+        }
+        deleteDb("lob");
+        String url = "lob;STORE_REDO_LOG=TRUE;MAX_LENGTH_INPLACE_LOB=16";
+        Connection conn = getConnection(url);
+        Statement stat = conn.createStatement();
+        stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, DATA CLOB)");
+        conn.setAutoCommit(false);
+        PreparedStatement prep = conn.prepareStatement("INSERT INTO TEST VALUES(?, ?)");
+        for (int i = 0; i < 100; i++) {
+            prep.setInt(1, i);
+            prep.setString(2, "Hello World, this is lob " + i);
+            prep.execute();
+        }
+        // the lobs are written in one chunk when the transaction commits
+        conn.commit();
+        stat.execute("SHUTDOWN IMMEDIATELY");
+        conn = getConnection(url);
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("SELECT * FROM TEST ORDER BY ID");
+        for (int i = 0; i < 100; i++) {
+            assertTrue(rs.next());
+            assertEquals("Hello World, this is lob " + i, rs.getString(2));
+        }
+        assertFalse(rs.next());
+        conn.close();
+    }
+
+    private void testLobRedoLogAfterDdl() throws Exception {
+        if (!config.mvStore) {
+            return;
+        }
+        String url = "lob;STORE_REDO_LOG=TRUE;MAX_LENGTH_INPLACE_LOB=16";
+        String[] ddl = {
+                "ALTER TABLE TEST ADD COLUMN W INT DEFAULT 7",
+                "DROP INDEX IDX_N",
+                "DROP TABLE TEST; CREATE TABLE TEST(ID INT PRIMARY KEY, N INT, DATA CLOB)" };
+        int[] rowCount = { 50, 50, 0 };
+        for (int i = 0; i < ddl.length; i++) {
+            deleteDb("lob");
+            Connection conn = getConnection(url);
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, N INT, DATA CLOB)");
+            stat.execute("CREATE INDEX IDX_N ON TEST(N)");
+            stat.execute("INSERT INTO TEST SELECT X, X, 'Hello World, this is lob ' || X " +
+                    "FROM SYSTEM_RANGE(1, 50)");
+            stat.execute("CHECKPOINT");
+            // maps are added and removed; the commit writes them to a chunk
+            stat.execute(ddl[i]);
+            stat.execute("SHUTDOWN IMMEDIATELY");
+            conn = getConnection(url);
+            stat = conn.createStatement();
+            ResultSet rs = stat.executeQuery("SELECT COUNT(*), MAX(DATA) FROM TEST");
+            assertTrue(rs.next());
+            assertEquals(rowCount[i], rs.getInt(1));
+            if (rowCount[i] > 0) {
+                assertEquals("Hello World, this is lob 9", rs.getString(2));
+            }
+            conn.close();
+        }
+    }
+
     private void testLob(boolean clob) throws Exception {
         deleteDb("lob");
         Connection conn = reconnect(null);
@@ -45,6 +45,11 @@ public class TestOptimizations extends TestDb {
         testExplainRoundTrip();
         testOrderByExpression();
         testGroupSubquery();
+        testGroupByHash();
+        testHashJoin();
+        testDistinctHash();
+        testBatchScan();
+        testParallelAggregate();
         testAnalyzeLob();
         testLike();
         testExistsSubquery();
@@ -169,6 +174,198 @@ public class TestOptimizations extends TestDb {
         conn.close();
     }
 
+    private void testGroupByHash() throws Exception {
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, a int, b varchar, c decimal(10, 2), " +
+                "d varchar_ignorecase)");
+        stat.execute("insert into test select x, case when mod(x, 7) = 0 then null else mod(x, 5000) end, " +
+                "'b' || mod(x, 3), mod(x, 2), case mod(x, 2) when 0 then 'X' else 'x' end " +
+                "from system_range(1, 20000)");
+        ResultSet rs;
+        rs = stat.executeQuery("select count(*), sum(cnt), count(a), count(distinct a) " +
+                "from (select a, count(*) cnt from test group by a)");
+        rs.next();
+        assertEquals(5001, rs.getInt(1));
+        assertEquals(20000, rs.getInt(2));
+        assertEquals(5000, rs.getInt(3));
+        assertEquals(5000, rs.getInt(4));
+        rs = stat.executeQuery("select count(*), sum(cnt), (select count(*) from (select distinct a, b from test)) " +
+                "from (select a, b, count(*) cnt from test group by a, b)");
+        rs.next();
+        assertEquals(rs.getInt(3), rs.getInt(1));
+        assertEquals(20000, rs.getInt(2));
+        rs = stat.executeQuery("select a, count(*) from test group by a having count(*) > 4 order by a");
+        rs.next();
+        assertEquals(null, rs.getObject(1));
+        assertEquals(2857, rs.getInt(2));
+        assertFalse(rs.next());
+        // keys that are equal but have a different hash code
+        stat.execute("update test set c = 1.0 where id = 1");
+        stat.execute("update test set c = 1.00 where id = 3");
+        rs = stat.executeQuery("select count(*) from (select c from test group by c)");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from (select d from test group by d)");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        stat.execute("drop table test");
+        conn.close();
+    }
+
+    private void testDistinctHash() throws Exception {
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, a int, b varchar, c decimal(10, 2), " +
+                "d varchar_ignorecase)");
+        stat.execute("insert into test select x, case when mod(x, 7) = 0 then null else mod(x, 500) end, " +
+                "'b' || mod(x, 3), mod(x, 2), case mod(x, 2) when 0 then 'X' else 'x' end " +
+                "from system_range(1, 5000)");
+        ResultSet rs;
+        rs = stat.executeQuery("select count(*) from (select distinct a from test)");
+        rs.next();
+        assertEquals(501, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from (select distinct a, b from test)");
+        rs.next();
+        assertEquals(1503, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from (select a from test union select id from test)");
+        rs.next();
+        assertEquals(5002, rs.getInt(1));
+        // values that are equal but have a different hash code
+        stat.execute("update test set c = 1.0 where id = 1");
+        stat.execute("update test set c = 1.00 where id = 3");
+        rs = stat.executeQuery("select count(*) from (select distinct c from test)");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from (select distinct d from test)");
+        rs.next();
+        assertEquals(1, rs.getInt(1));
+        // values of a different data type than the column of the result
+        rs = stat.executeQuery("select count(*) from test where cast(a as bigint) in (select a from test)");
+        rs.next();
+        assertEquals(4286, rs.getInt(1));
+        stat.execute("drop table test");
+        conn.close();
+    }
+
+    private void testBatchScan() throws Exception {
+        deleteDb("optimizations2");
+        Connection conn = getConnection("optimizations");
+        Connection batchConn = getConnection("optimizations2;BATCH_SCAN_SIZE=16");
+        String[] queries = {
+                "select id from test where a = 3 order by id",
+                "select count(*), sum(d) from test where a >= 2 and b <> 'b1'",
+                "select id from test where a is not distinct from 4 and d < 100 order by id",
+                "select id from test where a is distinct from 1 and id < 30 order by id",
+                "select id from test where a > 2 and mod(id, 3) = 0 and rownum() < 10 order by id",
+                "select a, count(*) from test where b = 'b2' and id > 10 group by a order by a",
+                "select id from test where a < 3 and id + 0 > 50 limit 5 offset 2",
+                "select distinct b from test where a <= 1 and a >= 1 order by b",
+                "select id from test where id in (select id from test where d = 7)",
+                };
+        for (Connection c : new Connection[] { conn, batchConn }) {
+            Statement stat = c.createStatement();
+            stat.execute("create table test(id int primary key, a int, b varchar, d bigint)");
+            stat.execute("insert into test select x, case when mod(x, 11) = 0 then null else mod(x, 5) end, " +
+                    "'b' || mod(x, 3), x / 7 from system_range(1, 1000)");
+        }
+        for (String sql : queries) {
+            ResultSet rs = conn.createStatement().executeQuery(sql);
+            ResultSet rs2 = batchConn.createStatement().executeQuery(sql);
+            int count = 0;
+            while (rs.next()) {
+                assertTrue(sql, rs2.next());
+                for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                    assertEquals(sql, rs.getString(i), rs2.getString(i));
+                }
+                count++;
+            }
+            assertFalse(sql, rs2.next());
+            assertTrue(sql, count > 0);
+        }
+        for (Connection c : new Connection[] { conn, batchConn }) {
+            c.createStatement().execute("drop table test");
+            c.close();
+        }
+        deleteDb("optimizations2");
+    }
+
+    private void testParallelAggregate() throws Exception {
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, a int, b varchar, c double, d decimal(20, 2), " +
+                "e bigint)");
+        stat.execute("insert into test select x, case when mod(x, 11) = 0 then null else mod(x, 1000) end, " +
+                "'b' || mod(x, 3), x / 7.0, x / 3.0, x * 1000 from system_range(1, 50000)");
+        // gaps in the keys
+        stat.execute("delete from test where id between 10000 and 20000");
+        String[] queries = {
+                "select count(*), count(a), sum(a), min(b), max(b), avg(a), sum(d), avg(e) from test",
+                "select stddev_pop(c), var_samp(a), avg(c), bit_or(a), bit_and(id) from test",
+                "select count(*) cnt, sum(c) from test where a = 5 and b <> 'b1'",
+                "select max(a) from test where a > 1000",
+                "select count(*) from test where id < 0",
+                };
+        String[] expected = new String[queries.length];
+        for (int threads : new int[] { 0, 4 }) {
+            stat.execute("set parallel_aggregate " + threads);
+            for (int i = 0; i < queries.length; i++) {
+                ResultSet rs = stat.executeQuery(queries[i]);
+                assertTrue(rs.next());
+                StringBuilder builder = new StringBuilder();
+                for (int j = 1; j <= rs.getMetaData().getColumnCount(); j++) {
+                    builder.append(rs.getString(j)).append(' ');
+                }
+                assertFalse(rs.next());
+                if (threads == 0) {
+                    expected[i] = builder.toString();
+                } else {
+                    assertEquals(queries[i], expected[i], builder.toString());
+                }
+            }
+        }
+        assertTrue(expected[0], expected[0].startsWith("39999 "));
+        stat.execute("drop table test");
+        conn.close();
+    }
+
+    private void testHashJoin() throws Exception {
+        Connection conn = getConnection("optimizations");
+        Statement stat = conn.createStatement();
+        stat.execute("create table a(id int, b_id int, c_id bigint)");
+        stat.execute("create table b(id int, name varchar)");
+        stat.execute("insert into a select x, case when mod(x, 10) = 0 then null else mod(x, 300) end, " +
+                "mod(x, 300) from system_range(1, 3000)");
+        stat.execute("insert into b select mod(x, 200), 'b' || x from system_range(1, 400)");
+        ResultSet rs = stat.executeQuery("explain select count(*) from a inner join b on a.b_id = b.id");
+        rs.next();
+        assertContains(rs.getString(1), ".hashJoin(");
+        rs = stat.executeQuery("select count(*) from a inner join b on a.b_id = b.id");
+        rs.next();
+        // 2000 rows of a match, 2 rows of b each, except the 10 % with null
+        assertEquals(3600, rs.getInt(1));
+        rs = stat.executeQuery("select count(*), count(b.id) from a left join b on a.b_id = b.id");
+        rs.next();
+        assertEquals(4800, rs.getInt(1));
+        assertEquals(3600, rs.getInt(2));
+        // the join column of the outer table has a different data type
+        rs = stat.executeQuery("select count(*) from a inner join b on a.c_id = b.id");
+        rs.next();
+        assertEquals(4000, rs.getInt(1));
+        PreparedStatement prep = conn.prepareStatement("select count(*) from a inner join b on a.b_id = b.id " +
+                "where b.id in (1, 2)");
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(40, rs.getInt(1));
+        // the hash table is built again for each execution
+        stat.execute("insert into b values (1, 'x')");
+        rs = prep.executeQuery();
+        rs.next();
+        assertEquals(50, rs.getInt(1));
+        stat.execute("drop table a, b");
+        conn.close();
+    }
+
     private void testAnalyzeLob() throws Exception {
         Connection conn = getConnection("optimizations");
         Statement stat = conn.createStatement();
@@ -33,6 +33,7 @@ public class TestQueryCache extends TestDb {
         deleteDb("queryCache");
         test1();
         testClearingCacheWithTableStructureChanges();
+        testSharedPlanCache();
         deleteDb("queryCache");
     }
 
@@ -107,4 +108,78 @@ public class TestQueryCache extends TestDb {
                     prepareStatement("SELECT * FROM TEST");
         }
     }
+
+    private void testSharedPlanCache() throws Exception {
+        deleteDb("queryCache");
+        String url = "queryCache;SHARED_PLAN_CACHE_SIZE=10";
+        try (Connection conn1 = getConnection(url); Connection conn2 = getConnection(url)) {
+            Statement stat = conn1.createStatement();
+            stat.execute("create table test(id int primary key, name varchar)");
+            stat.execute("insert into test select x, 'n' || x from system_range(1, 10)");
+            String sql = "select name from test where id = ?";
+            long hits = getSharedPlanCacheHits(stat);
+            PreparedStatement prep = conn1.prepareStatement(sql);
+            prep.setInt(1, 3);
+            ResultSet rs = prep.executeQuery();
+            assertTrue(rs.next());
+            assertEquals("n3", rs.getString(1));
+            prep.close();
+            // the prepared statement of the first session is re-used
+            prep = conn2.prepareStatement(sql);
+            assertEquals(hits + 1, getSharedPlanCacheHits(stat));
+            // parameter values must not leak between sessions
+            assertThrows(ErrorCode.PARAMETER_NOT_SET_1, prep).executeQuery();
+            prep.setInt(1, 5);
+            rs = prep.executeQuery();
+            assertTrue(rs.next());
+            assertEquals("n5", rs.getString(1));
+            prep.close();
+
+            // uncommitted changes of one session are not visible to another
+            // session using the same plan
+            conn1.setAutoCommit(false);
+            String count = "select count(*) from test where id > ?";
+            prep = conn1.prepareStatement("insert into test values(?, ?)");
+            prep.setInt(1, 100);
+            prep.setString(2, "x");
+            prep.executeUpdate();
+            prep.close();
+            prep = conn1.prepareStatement(count);
+            prep.setInt(1, 0);
+            rs = prep.executeQuery();
+            rs.next();
+            assertEquals(11, rs.getInt(1));
+            prep.close();
+            prep = conn2.prepareStatement(count);
+            prep.setInt(1, 0);
+            rs = prep.executeQuery();
+            rs.next();
+            assertEquals(10, rs.getInt(1));
+            prep.close();
+            conn1.commit();
+            conn1.setAutoCommit(true);
+            prep = conn2.prepareStatement(count);
+            prep.setInt(1, 0);
+            rs = prep.executeQuery();
+            rs.next();
+            assertEquals(11, rs.getInt(1));
+            prep.close();
+
+            // changes of the table structure clear the cache
+            stat.execute("alter table test add column value int");
+            prep = conn2.prepareStatement("select * from test where id = ?");
+            prep.setInt(1, 1);
+            rs = prep.executeQuery();
+            assertEquals(3, rs.getMetaData().getColumnCount());
+            prep.close();
+            stat.execute("drop table test");
+        }
+    }
+
+    private static long getSharedPlanCacheHits(Statement stat) throws Exception {
+        ResultSet rs = stat.executeQuery("select value from information_schema.settings " +
+                "where name = 'info.SHARED_PLAN_CACHE_HITS'");
+        rs.next();
+        return rs.getLong(1);
+    }
 }
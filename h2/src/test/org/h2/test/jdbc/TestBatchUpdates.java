@@ -65,6 +65,7 @@ public class TestBatchUpdates extends TestDb {
         testRootCause();
         testExecuteCall();
         testException();
+        testPartialFailure();
         testCoffee();
         deleteDb("batchUpdates");
     }
@@ -163,6 +164,45 @@ public class TestBatchUpdates extends TestDb {
         conn.close();
     }
 
+    private void testPartialFailure() throws SQLException {
+        deleteDb("batchUpdates");
+        conn = getConnection("batchUpdates");
+        stat = conn.createStatement();
+        stat.execute("create table test(id int primary key)");
+        prep = conn.prepareStatement("insert into test values(?)");
+        for (int id : new int[] { 1, 2, 2, 3 }) {
+            prep.setInt(1, id);
+            prep.addBatch();
+        }
+        try {
+            prep.executeBatch();
+            fail();
+        } catch (BatchUpdateException e) {
+            int[] updateCounts = e.getUpdateCounts();
+            assertEquals(4, updateCounts.length);
+            assertEquals(1, updateCounts[0]);
+            assertEquals(1, updateCounts[1]);
+            assertEquals(Statement.EXECUTE_FAILED, updateCounts[2]);
+            assertEquals(1, updateCounts[3]);
+            assertEquals(ErrorCode.DUPLICATE_KEY_1, e.getErrorCode());
+        }
+        prep = conn.prepareStatement("update test set id = id + ? where id >= ?");
+        prep.setInt(1, 10);
+        prep.setInt(2, 3);
+        prep.addBatch();
+        prep.setInt(1, 10);
+        prep.setInt(2, 2);
+        prep.addBatch();
+        int[] updateCounts = prep.executeBatch();
+        assertEquals(2, updateCounts.length);
+        assertEquals(1, updateCounts[0]);
+        assertEquals(2, updateCounts[1]);
+        ResultSet rs = stat.executeQuery("select sum(id) from test");
+        rs.next();
+        assertEquals(1 + 12 + 23, rs.getInt(1));
+        conn.close();
+    }
+
     private void testCoffee() throws SQLException {
         deleteDb("batchUpdates");
         conn = getConnection("batchUpdates");
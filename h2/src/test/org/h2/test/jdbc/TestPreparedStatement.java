@@ -1198,7 +1198,8 @@ public class TestPreparedStatement extends TestDb {
         ResultSet rs = prep.executeQuery();
         rs.next();
         String plan = rs.getString(1);
-        assertContains(plan, ".tableScan");
+        // the range is computed from the pattern at execution time
+        assertContains(plan, "IDXNAME: NAME >= PREFIX(?1)");
         rs = prepExe.executeQuery();
         rs.next();
         assertEquals("World", rs.getString(2));
@@ -1215,9 +1216,39 @@ public class TestPreparedStatement extends TestDb {
         assertEquals("Hello", rs.getString(2));
         assertFalse(rs.next());
 
+        // the same statement with patterns of different kinds
+        stat.execute("INSERT INTO TEST VALUES(3, 'H%llo'), (4, 'Hell'), (5, NULL)");
+        prep = conn.prepareStatement(
+                "SELECT ID FROM TEST WHERE NAME LIKE ? ESCAPE ? ORDER BY ID");
+        assertLike(prep, "Hello", "\\", 1);
+        assertLike(prep, "Hell", "\\", 4);
+        assertLike(prep, "Hell%", "\\", 1, 4);
+        assertLike(prep, "H_llo", "\\", 1, 3);
+        assertLike(prep, "H!%%", "!", 3);
+        assertLike(prep, "H\\%%", "\\", 3);
+        assertLike(prep, "%orl%", "\\", 2);
+        assertLike(prep, "%ll", "\\", 4);
+        assertLike(prep, "%", "\\", 1, 2, 3, 4);
+        assertLike(prep, "", "\\");
+        assertLike(prep, null, "\\");
+        assertLike(prep, "Hello", null);
+        assertLike(prep, "W%", "", 2);
+
         stat.execute("DROP TABLE IF EXISTS TEST");
     }
 
+    private void assertLike(PreparedStatement prep, String pattern, String escape, int... expected)
+            throws SQLException {
+        prep.setString(1, pattern);
+        prep.setString(2, escape);
+        ResultSet rs = prep.executeQuery();
+        for (int id : expected) {
+            assertTrue(rs.next());
+            assertEquals(id, rs.getInt(1));
+        }
+        assertFalse(rs.next());
+    }
+
     private void testCasewhen(Connection conn) throws SQLException {
         Statement stat = conn.createStatement();
         stat.execute("CREATE TABLE TEST(ID INT)");
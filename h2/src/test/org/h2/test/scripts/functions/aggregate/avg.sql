@@ -28,3 +28,18 @@ select avg(v), avg(v) filter (where v >= 40) from test where v <= 100;
 
 drop table test;
 > ok
+
+CREATE TABLE TEST(I INT, B BIGINT, D DOUBLE);
+> ok
+
+INSERT INTO TEST VALUES (1, 9223372036854775807, 1), (2, 9223372036854775807, 2), (NULL, NULL, NULL);
+> update count: 3
+
+SELECT AVG(I), AVG(B), AVG(D) FROM TEST;
+> AVG(I) AVG(B)              AVG(D)
+> ------ ------------------- ------
+> 1      9223372036854775807 1.5
+> rows: 1
+
+DROP TABLE TEST;
+> ok
@@ -131,3 +131,22 @@ SELECT V,
 > 2 4 4
 > 2 4 4
 > rows: 3
+
+CREATE TABLE TEST(I INT, B BIGINT, D DOUBLE, R REAL);
+> ok
+
+INSERT INTO TEST VALUES (2147483647, 9223372036854775807, 0.5, 0.5), (2147483647, 9223372036854775807, 0.25, 0.25),
+    (NULL, -1, NULL, NULL), (-1, 1, -0.125, -0.125);
+> update count: 4
+
+SELECT SUM(I), SUM(B), SUM(D), SUM(R) FROM TEST;
+> SUM(I)     SUM(B)               SUM(D) SUM(R)
+> ---------- -------------------- ------ ------
+> 4294967293 18446744073709551614 0.625  0.625
+> rows: 1
+
+SELECT SUM(B) FROM TEST WHERE B < 0;
+>> -1
+
+DROP TABLE TEST;
+> ok
@@ -349,3 +349,71 @@ SELECT 1 WHERE 1 IN ();
 
 SET MODE Regular;
 > ok
+
+CREATE TABLE TEST(I INT, L BIGINT, D DECIMAL(10, 2), V VARCHAR, C VARCHAR_IGNORECASE);
+> ok
+
+INSERT INTO TEST VALUES (0, 0, 0, 'a', 'a'), (1, -1, 1.5, 'b', 'B'), (2, 4294967296, 2, 'c', 'c'),
+    (NULL, NULL, NULL, NULL, NULL);
+> update count: 4
+
+SELECT I FROM TEST WHERE I IN (0, 2, 5);
+> I
+> -
+> 0
+> 2
+> rows: 2
+
+SELECT I, I IN (0, 5, NULL) FROM TEST;
+> I    I IN(0, 5, NULL)
+> ---- ----------------
+> 0    TRUE
+> 1    null
+> 2    null
+> null null
+> rows: 4
+
+SELECT L FROM TEST WHERE L IN (-1, 4294967296, 1);
+> L
+> ----------
+> -1
+> 4294967296
+> rows: 2
+
+SELECT L FROM TEST WHERE L IN (0, 1) OR L = 4294967296;
+> L
+> ----------
+> 0
+> 4294967296
+> rows: 2
+
+SELECT D FROM TEST WHERE D IN (1.50, 2.0);
+> D
+> ----
+> 1.50
+> 2.00
+> rows: 2
+
+SELECT V FROM TEST WHERE V IN ('a', 'B', 'c');
+> V
+> -
+> a
+> c
+> rows: 2
+
+SELECT C FROM TEST WHERE C IN ('A', 'b', 'd');
+> C
+> -
+> B
+> a
+> rows: 2
+
+SELECT I FROM TEST WHERE CAST(I AS DECIMAL) / 2 IN (0, 1, 2);
+> I
+> -
+> 0
+> 2
+> rows: 2
+
+DROP TABLE TEST;
+> ok
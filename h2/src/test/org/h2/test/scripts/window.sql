@@ -230,3 +230,70 @@ SELECT SUM(A) OVER (ORDER BY A, B RANGE BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOW
 
 SELECT SUM(A) OVER (GROUPS BETWEEN UNBOUNDED PRECEDING AND 1 FOLLOWING) S FROM VALUES (1, 2) T(A, B);
 > exception SYNTAX_ERROR_2
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, G INT, V INT) AS
+    SELECT X, CASE WHEN MOD(X, 10) = 0 THEN NULL ELSE MOD(X, 2) END, MOD(X * 37, 101) - 50 FROM SYSTEM_RANGE(1, 100);
+> ok
+
+SELECT COUNT(*) FROM (SELECT ID,
+    SUM(V) OVER (ORDER BY ID ROWS BETWEEN 20 PRECEDING AND 30 FOLLOWING) S,
+    MIN(V) OVER (ORDER BY ID ROWS BETWEEN 20 PRECEDING AND 30 FOLLOWING) MI,
+    MAX(V) FILTER (WHERE V < 40) OVER (ORDER BY ID ROWS BETWEEN 20 PRECEDING AND 30 FOLLOWING) MA,
+    COUNT(*) OVER (ORDER BY ID ROWS BETWEEN 50 FOLLOWING AND 80 FOLLOWING) C,
+    SUM(V) OVER (ORDER BY ID ROWS BETWEEN (MOD(ID, 30)) PRECEDING AND CURRENT ROW) VS
+    FROM TEST) T
+    WHERE S <> (SELECT SUM(V) FROM TEST WHERE ID BETWEEN T.ID - 20 AND T.ID + 30)
+    OR MI <> (SELECT MIN(V) FROM TEST WHERE ID BETWEEN T.ID - 20 AND T.ID + 30)
+    OR MA <> (SELECT MAX(V) FROM TEST WHERE ID BETWEEN T.ID - 20 AND T.ID + 30 AND V < 40)
+    OR C <> (SELECT COUNT(*) FROM TEST WHERE ID BETWEEN T.ID + 50 AND T.ID + 80)
+    OR VS <> (SELECT SUM(V) FROM TEST WHERE ID BETWEEN T.ID - MOD(T.ID, 30) AND T.ID);
+>> 0
+
+CREATE TABLE TEST2 AS SELECT ID, G, V, ROW_NUMBER() OVER (PARTITION BY G ORDER BY ID) R FROM TEST;
+> ok
+
+SELECT COUNT(*) FROM (SELECT ID, G, R,
+    SUM(V) OVER (PARTITION BY G ORDER BY ID ROWS BETWEEN 10 PRECEDING AND 10 FOLLOWING) S,
+    AVG(V) OVER (PARTITION BY G ORDER BY ID RANGE BETWEEN 25 PRECEDING AND 25 FOLLOWING) A
+    FROM TEST2) T
+    WHERE S <> (SELECT SUM(V) FROM TEST2 WHERE G IS NOT DISTINCT FROM T.G AND R BETWEEN T.R - 10 AND T.R + 10)
+    OR A <> (SELECT AVG(V) FROM TEST2 WHERE G IS NOT DISTINCT FROM T.G AND ID BETWEEN T.ID - 25 AND T.ID + 25);
+>> 0
+
+DROP TABLE TEST2;
+> ok
+
+SELECT G, COUNT(*) OVER (PARTITION BY G) C FROM TEST WHERE ID <= 10 ORDER BY ID;
+> G    C
+> ---- -
+> 1    5
+> 0    4
+> 1    5
+> 0    4
+> 1    5
+> 0    4
+> 1    5
+> 0    4
+> 1    5
+> null 1
+> rows (ordered): 10
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, D DOUBLE, I INT) AS
+    SELECT X, SIN(X) * 1000, MOD(X * 37, 101) FROM SYSTEM_RANGE(1, 300);
+> ok
+
+SELECT COUNT(*) FROM (SELECT ID,
+    SUM(D) OVER (ORDER BY ID ROWS BETWEEN 30 PRECEDING AND CURRENT ROW) S,
+    AVG(D) OVER (ORDER BY ID ROWS BETWEEN 30 PRECEDING AND CURRENT ROW) A,
+    STDDEV_POP(I) OVER (ORDER BY ID ROWS BETWEEN 30 PRECEDING AND CURRENT ROW) SD
+    FROM TEST) T
+    WHERE S <> (SELECT SUM(D) FROM TEST WHERE ID BETWEEN T.ID - 30 AND T.ID)
+    OR A <> (SELECT AVG(D) FROM TEST WHERE ID BETWEEN T.ID - 30 AND T.ID)
+    OR SD <> (SELECT STDDEV_POP(I) FROM TEST WHERE ID BETWEEN T.ID - 30 AND T.ID);
+>> 0
+
+DROP TABLE TEST;
+> ok
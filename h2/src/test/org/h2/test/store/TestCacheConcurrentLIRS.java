@@ -28,12 +28,14 @@ public class TestCacheConcurrentLIRS extends TestBase {
 
     @Override
     public void test() throws Exception {
-        testConcurrent();
+        testConcurrent(true);
+        testConcurrent(false);
     }
 
-    private void testConcurrent() {
+    private void testConcurrent(boolean readBuffers) {
         CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
         cc.maxMemory = 100;
+        cc.readBuffers = readBuffers;
         final CacheLongKeyLIRS<Integer> test = new CacheLongKeyLIRS<>(cc);
         int threadCount = 8;
         final CountDownLatch wait = new CountDownLatch(1);
@@ -89,6 +91,14 @@ public class TestCacheConcurrentLIRS extends TestBase {
             totalCount += x;
         }
         trace("requests: " + totalCount);
+        // all reads are counted, even if they were not applied
+        assertEquals(totalCount, test.getHits() + test.getMisses());
+        assertTrue(test.size() <= 100);
+        int mem = 0;
+        for (long k : test.keySet()) {
+            mem += test.getMemory(k);
+        }
+        assertEquals(mem, test.getUsedMemory());
     }
 
 }
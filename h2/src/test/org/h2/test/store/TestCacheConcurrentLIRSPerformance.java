@@ -0,0 +1,89 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.test.TestBase;
+import org.h2.util.Task;
+
+/**
+ * Compares the read throughput of the cache with read buffers to the
+ * throughput with a lock for each read, for a read-mostly workload with a small
+ * number of hot entries.
+ */
+public class TestCacheConcurrentLIRSPerformance extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() throws Exception {
+        for (int threadCount : new int[] { 1, 4, 16, 64 }) {
+            testReadThroughput(threadCount, false);
+            testReadThroughput(threadCount, true);
+        }
+    }
+
+    private void testReadThroughput(int threadCount, boolean readBuffers) throws Exception {
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 10_000;
+        cc.readBuffers = readBuffers;
+        final CacheLongKeyLIRS<Integer> cache = new CacheLongKeyLIRS<>(cc);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+        final int[] keys = new int[4096];
+        Random random = new Random(1);
+        for (int i = 0; i < keys.length; i++) {
+            // most reads are for a few hot entries
+            keys[i] = (int) Math.min(9_999, Math.abs(random.nextGaussian() * 200));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final long[] counts = new long[threadCount];
+        Task[] tasks = new Task[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int x = i;
+            tasks[i] = new Task() {
+                @Override
+                public void call() throws Exception {
+                    start.await();
+                    long count = 0;
+                    for (int i = x; !stopped.get(); i++) {
+                        cache.get(keys[i & (keys.length - 1)]);
+                        count++;
+                    }
+                    counts[x] = count;
+                }
+            };
+            tasks[i].execute();
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        Thread.sleep(1000);
+        stopped.set(true);
+        for (Task t : tasks) {
+            t.get();
+        }
+        time = System.nanoTime() - time;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        System.out.println(total * 1_000_000 / time + " reads/ms; " + threadCount + " thread(s); " +
+                (readBuffers ? "read buffers" : "locked reads"));
+    }
+
+}
@@ -5,6 +5,7 @@
  */
 package org.h2.test.store;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -44,6 +45,7 @@ public class TestCacheLongKeyLIRS extends TestBase {
         testLimitMemory();
         testScanResistance();
         testRandomOperations();
+        testReadBuffers();
     }
 
     private void testRandomSmallCache() {
@@ -461,6 +463,40 @@ public class TestCacheLongKeyLIRS extends TestBase {
         }
     }
 
+    private void testReadBuffers() {
+        // the same operations must have the same effect, whether or not the
+        // reads are applied in batches
+        CacheLongKeyLIRS.Config cc = new CacheLongKeyLIRS.Config();
+        cc.maxMemory = 100;
+        cc.segmentCount = 1;
+        cc.stackMoveDistance = 4;
+        cc.readBuffers = true;
+        CacheLongKeyLIRS<Integer> buffered = new CacheLongKeyLIRS<>(cc);
+        cc.readBuffers = false;
+        CacheLongKeyLIRS<Integer> locked = new CacheLongKeyLIRS<>(cc);
+        // keep the values reachable, so that the weak references of the
+        // non-resident entries of both caches are not cleared
+        ArrayList<Integer> values = new ArrayList<>();
+        Random r = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            int key = (int) Math.abs(r.nextGaussian() * 100);
+            if (r.nextInt(5) == 0) {
+                Integer value = i;
+                values.add(value);
+                buffered.put(key, value);
+                locked.put(key, value);
+            } else {
+                assertEquals(locked.get(key), buffered.get(key));
+            }
+            if (i % 100 == 0) {
+                assertEquals(toString(locked), toString(buffered));
+            }
+        }
+        verify(buffered, toString(locked));
+        assertEquals(locked.getHits(), buffered.getHits());
+        assertEquals(locked.getMisses(), buffered.getMisses());
+    }
+
     private static <V> String toString(CacheLongKeyLIRS<V> cache) {
         StringBuilder buff = new StringBuilder();
         buff.append("mem: " + cache.getUsedMemory());
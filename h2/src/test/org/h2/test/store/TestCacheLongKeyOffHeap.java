@@ -0,0 +1,172 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+
+/**
+ * Tests the off-heap cache.
+ */
+public class TestCacheLongKeyOffHeap extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testGetPut();
+        testEviction();
+        testClear();
+        testRandomOperations();
+        testStore();
+    }
+
+    private void testGetPut() {
+        CacheLongKeyOffHeap cache = new CacheLongKeyOffHeap(1024 * 1024, 4);
+        assertNull(cache.get(1));
+        ByteBuffer buff = ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4 });
+        buff.position(1);
+        cache.put(1, buff);
+        // the position of the buffer is not changed
+        assertEquals(1, buff.position());
+        ByteBuffer b = cache.get(1);
+        assertFalse(b.isDirect());
+        assertEquals(4, b.remaining());
+        assertEquals(1, b.get(0));
+        assertEquals(4, b.get(3));
+        // existing entries are not replaced
+        cache.put(1, ByteBuffer.wrap(new byte[] { 9 }));
+        assertEquals(4, cache.get(1).remaining());
+        // the key 0 is not stored
+        cache.put(0, ByteBuffer.wrap(new byte[] { 9 }));
+        assertNull(cache.get(0));
+        // too large entries are not stored
+        cache.put(2, ByteBuffer.allocate((int) cache.getMaxItemSize() + 1));
+        assertNull(cache.get(2));
+        cache.put(2, ByteBuffer.allocate((int) cache.getMaxItemSize()));
+        assertEquals(cache.getMaxItemSize(), cache.get(2).remaining());
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    private void testEviction() {
+        CacheLongKeyOffHeap cache = new CacheLongKeyOffHeap(1024 * 1024, 1);
+        int size = 1000;
+        int count = (int) (cache.getMaxMemory() / size * 3);
+        for (int i = 1; i <= count; i++) {
+            cache.put(i, createBuffer(i, size));
+            assertEquals(i, cache.get(i).getInt(0));
+        }
+        assertTrue(cache.getUsedMemory() <= cache.getMaxMemory());
+        assertTrue(cache.size() < cache.getMaxMemory() / size);
+        assertTrue(cache.size() > cache.getMaxMemory() / size / 2);
+        // the oldest entries were removed
+        assertNull(cache.get(1));
+        for (int i = count - cache.size() + 1; i <= count; i++) {
+            assertEquals(i, cache.get(i).getInt(size - 4));
+        }
+    }
+
+    private void testClear() {
+        CacheLongKeyOffHeap cache = new CacheLongKeyOffHeap(1024 * 1024, 4);
+        for (int i = 1; i <= 100; i++) {
+            cache.put(i, createBuffer(i, 100));
+        }
+        assertEquals(100, cache.size());
+        assertTrue(cache.getUsedMemory() > 0);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getUsedMemory());
+        assertNull(cache.get(1));
+        cache.put(1, createBuffer(2, 100));
+        assertEquals(2, cache.get(1).getInt(0));
+    }
+
+    private void testRandomOperations() {
+        Random r = new Random(1);
+        CacheLongKeyOffHeap cache = new CacheLongKeyOffHeap(256 * 1024, 2);
+        HashMap<Long, Integer> map = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + r.nextInt(5_000);
+            if (r.nextInt(3) == 0) {
+                int value = r.nextInt();
+                if (cache.get(key) == null) {
+                    map.put(key, value);
+                }
+                cache.put(key, createBuffer(value, 8 + r.nextInt(200)));
+            } else {
+                ByteBuffer b = cache.get(key);
+                if (b == null) {
+                    // the entry was evicted
+                    map.remove(key);
+                } else {
+                    assertEquals(map.get(key).intValue(), b.getInt(0));
+                }
+            }
+        }
+        for (Map.Entry<Long, Integer> e : map.entrySet()) {
+            ByteBuffer b = cache.get(e.getKey());
+            if (b != null) {
+                assertEquals(e.getValue().intValue(), b.getInt(0));
+            }
+        }
+    }
+
+    private void testStore() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 10_000;
+        MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                open();
+        MVMap<Integer, String> map = s.openMap("data");
+        for (int i = 0; i < count; i++) {
+            map.put(i, "Hello " + i);
+        }
+        s.close();
+
+        s = new MVStore.Builder().
+                fileName(fileName).
+                cacheSize(1).
+                offHeapCacheSize(8).
+                open();
+        assertEquals(8, s.getOffHeapCacheSize());
+        map = s.openMap("data");
+        for (int j = 0; j < 3; j++) {
+            s.setCacheSize(1);
+            for (int i = 0; i < count; i++) {
+                assertEquals("Hello " + i, map.get(i));
+            }
+        }
+        assertTrue(s.getOffHeapCacheHitRatio() > 50);
+        assertTrue(s.getOffHeapCache().getUsedMemory() > 0);
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
+    private static ByteBuffer createBuffer(int value, int size) {
+        ByteBuffer buff = ByteBuffer.allocate(size);
+        buff.putInt(0, value);
+        buff.putInt(size - 4, value);
+        return buff;
+    }
+
+}
@@ -24,6 +24,7 @@ import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MappedFileStore;
 import org.h2.mvstore.OffHeapStore;
 import org.h2.mvstore.type.DataType;
 import org.h2.mvstore.type.ObjectDataType;
@@ -59,6 +60,7 @@ public class TestMVStore extends TestBase {
         testEntrySet();
         testCompressEmptyPage();
         testCompressed();
+        testSerializationThreads();
         testFileFormatExample();
         testMaxChunkLength();
         testCacheInfo();
@@ -68,6 +70,8 @@ public class TestMVStore extends TestBase {
         testRemoveMap();
         testIsEmpty();
         testOffHeapStorage();
+        testMemoryMappedStore();
+        testCacheReadBuffers();
         testNewerWriteVersion();
         testCompactFully();
         testBackgroundExceptionListener();
@@ -257,6 +261,42 @@ public class TestMVStore extends TestBase {
         }
     }
 
+    private void testSerializationThreads() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        for (int level = 0; level <= 2; level++) {
+            FileUtils.delete(fileName);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName).
+                    pageSplitSize(1000).serializationThreads(3);
+            if (level == 1) {
+                builder.compress();
+            } else if (level == 2) {
+                builder.compressHigh();
+            }
+            MVStore s = builder.open();
+            MVMap<Integer, String> map = s.openMap("data");
+            MVMap<Integer, String> map2 = s.openMap("data2");
+            for (int i = 0; i < 20000; i++) {
+                map.put(i, "Hello " + i);
+                map2.put(i, "World " + i);
+            }
+            s.commit();
+            for (int i = 0; i < 20000; i += 3) {
+                map.put(i, "Hi " + i);
+                map2.remove(i);
+            }
+            s.close();
+            s = new MVStore.Builder().fileName(fileName).open();
+            map = s.openMap("data");
+            map2 = s.openMap("data2");
+            for (int i = 0; i < 20000; i++) {
+                assertEquals((i % 3 == 0 ? "Hi " : "Hello ") + i, map.get(i));
+                assertEquals(i % 3 == 0 ? null : "World " + i, map2.get(i));
+            }
+            s.close();
+        }
+        FileUtils.delete(fileName);
+    }
+
     private void testFileFormatExample() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -425,6 +465,87 @@ public class TestMVStore extends TestBase {
         s.close();
     }
 
+    private void testCacheReadBuffers() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                open();
+        assertFalse(s.getCache().isReadBuffers());
+        s.close();
+        s = new MVStore.Builder().
+                fileName(fileName).
+                cacheReadBuffers().
+                open();
+        assertTrue(s.getCache().isReadBuffers());
+        MVMap<Integer, String> map = s.openMap("data");
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, "Hello " + i);
+        }
+        s.commit();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Hello " + i, map.get(i));
+        }
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
+    private void testMemoryMappedStore() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 1000;
+        MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                memoryMapped().
+                open();
+        assertTrue(s.getFileStore() instanceof MappedFileStore);
+        MVMap<Integer, String> map = s.openMap("data");
+        for (int i = 0; i < count; i++) {
+            map.put(i, "Hello " + i);
+            s.commit();
+        }
+        s.close();
+
+        s = new MVStore.Builder().
+                fileName(fileName).
+                memoryMapped().
+                cacheSize(0).
+                open();
+        FileStore fs = s.getFileStore();
+        // mapped memory is only used while the segments can not be unmapped
+        assertFalse(fs.readFully(0, 16).isDirect());
+        fs.beginRead();
+        try {
+            assertTrue(fs.readFully(0, 16).isDirect());
+        } finally {
+            fs.endRead();
+        }
+        map = s.openMap("data");
+        for (int i = 0; i < count; i++) {
+            assertEquals("Hello " + i, map.get(i));
+        }
+        for (int i = 0; i < count; i += 2) {
+            map.remove(i);
+        }
+        s.commit();
+        long size = s.getFileStore().size();
+        // moves the chunks and truncates the file
+        s.compactMoveChunks();
+        assertTrue(s.getFileStore().size() < size);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? null : "Hello " + i, map.get(i));
+        }
+        for (int i = 0; i < count; i++) {
+            map.put(i, "World " + i);
+            s.commit();
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals("World " + i, map.get(i));
+        }
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
     private void testNewerWriteVersion() throws Exception {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -18,6 +18,7 @@ import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionMap;
@@ -27,6 +28,7 @@ import org.h2.mvstore.type.ObjectDataType;
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.util.Task;
+import org.h2.value.VersionedValue;
 
 /**
  * Test concurrent transactions.
@@ -60,6 +62,8 @@ public class TestTransactionStore extends TestBase {
         testSingleConnection();
         testCompareWithPostgreSQL();
         testStoreMultiThreadedReads();
+        testSyncCommit();
+        testRedoLog();
     }
 
     private void testHCLFKey() {
@@ -149,6 +153,147 @@ public class TestTransactionStore extends TestBase {
         s.close();
     }
 
+    private void testSyncCommit() throws Exception {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                autoCommitDisabled().
+                open();
+        final TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        ts.setSyncCommit(true);
+        Transaction tx = ts.begin();
+        tx.openMap("data").put(-1, "Hello");
+        assertTrue(s.hasUnsavedChanges());
+        tx.commit();
+        assertFalse(s.hasUnsavedChanges());
+
+        int threadCount = 4;
+        final int count = 100;
+        Task[] tasks = new Task[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int x = i;
+            tasks[i] = new Task() {
+
+                @Override
+                public void call() throws Exception {
+                    for (int j = 0; j < count; j++) {
+                        Transaction tx = ts.begin();
+                        TransactionMap<Integer, String> map = tx.openMap("data");
+                        map.put(x * count + j, "Hello " + j);
+                        tx.commit();
+                    }
+                }
+
+            };
+            tasks[i].execute();
+        }
+        for (Task t : tasks) {
+            t.get();
+        }
+        // all committed changes are in the file, even without closing
+        s.closeImmediately();
+
+        s = MVStore.open(fileName);
+        TransactionStore ts2 = new TransactionStore(s);
+        ts2.init();
+        TransactionMap<Integer, String> map = ts2.begin().openMap("data");
+        assertEquals(threadCount * count + 1, map.sizeAsLong());
+        assertEquals("Hello " + (count - 1), map.get(threadCount * count - 1));
+        s.close();
+        FileUtils.delete(fileName);
+    }
+
+    private void testRedoLog() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        String redoFileName = fileName + ".redo";
+        FileUtils.delete(fileName);
+        FileUtils.delete(redoFileName);
+        MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                redoLog(redoFileName).
+                autoCommitDisabled().
+                open();
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, String> map = tx.openMap("data");
+        map.put(1, "Hello");
+        map.put(2, "World");
+        tx.commit();
+        assertTrue(s.hasUnsavedChanges());
+
+        // open or prepared when the chunk is written
+        Transaction tx2 = ts.begin();
+        tx2.openMap("data").remove(2);
+        tx2.openMap("data").put(3, "Committed later");
+        Transaction tx3 = ts.begin();
+        tx3.openMap("data").put(1, "Open");
+        Transaction tx4 = ts.begin();
+        tx4.openMap("data").put(4, "Rolled back later");
+        tx4.prepare();
+        Transaction tx5 = ts.begin();
+        tx5.openMap("data").put(5, "Prepared");
+        tx5.prepare();
+        s.commit();
+
+        tx2.commit();
+        tx4.rollback();
+        tx = ts.begin();
+        tx.openMap("data").put(6, "Committed");
+        tx.openMap("other").put(1, "Other");
+        tx.commit();
+        tx = ts.begin();
+        tx.openMap("data").put(7, "Open");
+        s.closeImmediately();
+
+        // the log is replayed again if the store is not written
+        Transaction prepared = null;
+        for (int i = 0; i < 2; i++) {
+            s = new MVStore.Builder().
+                    fileName(fileName).
+                    redoLog(redoFileName).
+                    autoCommitDisabled().
+                    open();
+            ts = new TransactionStore(s);
+            ts.init();
+            List<Transaction> list = ts.getOpenTransactions();
+            assertEquals(1, list.size());
+            prepared = list.get(0);
+            assertEquals(Transaction.STATUS_PREPARED, prepared.getStatus());
+            map = ts.begin().openMap("data");
+            assertEquals("Hello", map.get(1));
+            // the change of the open transaction was rolled back
+            MVMap<Integer, VersionedValue> raw = s.openMap("data");
+            assertEquals(0, raw.get(1).getOperationId());
+            assertNull(map.get(2));
+            assertEquals("Committed later", map.get(3));
+            assertNull(map.get(4));
+            assertNull(map.get(5));
+            assertEquals("Committed", map.get(6));
+            assertNull(map.get(7));
+            if (i == 0) {
+                // the changes of maps that were not opened are kept
+                s.commit();
+                s.closeImmediately();
+            }
+        }
+        assertEquals("Other", ts.begin().openMap("other").get(1));
+        prepared.commit();
+        s.close();
+
+        s = MVStore.open(fileName);
+        ts = new TransactionStore(s);
+        ts.init();
+        map = ts.begin().openMap("data");
+        assertEquals("[1, 3, 5, 6]", map.keySet().toString());
+        assertEquals("Other", ts.begin().openMap("other").get(1));
+        s.close();
+        FileUtils.delete(fileName);
+        FileUtils.delete(redoFileName);
+    }
+
     private void testConcurrentAdd() {
         MVStore s;
         s = MVStore.open(null);
@@ -385,7 +385,7 @@ public class TestNestedJoins extends TestDb {
                 "ON \"T1\".\"B\" = \"T3\".\"A\" ) ON \"T2\".\"B\" = \"T1\".\"A\"", sql);
         rs = stat.executeQuery("select distinct t1.a, t2.a, t3.a from t1 " +
                 "right outer join t3 on t1.b=t3.a " +
-                "right outer join t2 on t2.b=t1.a");
+                "right outer join t2 on t2.b=t1.a order by 1");
         // expected:
         // null 2 null
         // 1    1 1
@@ -599,11 +599,12 @@ public class TestNestedJoins extends TestDb {
         assertTrue(rs.next());
         sql = cleanRemarks(rs.getString(1));
         assertEquals("SELECT \"A\".\"PK\", \"A_BASE\".\"PK\", \"B\".\"PK\", \"B_BASE\".\"PK\" " +
-                "FROM \"PUBLIC\".\"BASE\" \"A_BASE\" " +
+                "FROM \"PUBLIC\".\"A\" " +
+                "INNER JOIN \"PUBLIC\".\"BASE\" \"A_BASE\" ON 1=1 " +
                 "LEFT OUTER JOIN ( \"PUBLIC\".\"B\" " +
                 "INNER JOIN \"PUBLIC\".\"BASE\" \"B_BASE\" " +
                 "ON (\"B_BASE\".\"DELETED\" = 0) AND (\"B\".\"PK\" = \"B_BASE\".\"PK\") ) " +
-                "ON TRUE INNER JOIN \"PUBLIC\".\"A\" ON 1=1 " +
+                "ON TRUE " +
                 "WHERE \"A\".\"PK\" = \"A_BASE\".\"PK\"", sql);
         rs = stat.executeQuery(
                 "select a.pk, a_base.pk, b.pk, b_base.pk from a " +
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2004-2019 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.unit;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.h2.test.TestBase;
+import org.h2.util.LongHashSet;
+
+/**
+ * Tests the LongHashSet class.
+ */
+public class TestLongHashSet extends TestBase {
+
+    private final Random rand = new Random();
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().test();
+    }
+
+    @Override
+    public void test() {
+        LongHashSet set = new LongHashSet();
+        set.add(1);
+        set.add(1);
+        assertEquals(1, set.size());
+        assertFalse(set.contains(0));
+        set.add(0);
+        set.add(0);
+        assertEquals(2, set.size());
+        assertTrue(set.contains(0));
+        set.add(1L << 32);
+        assertEquals(3, set.size());
+        assertTrue(set.contains(1L << 32));
+        assertFalse(set.contains((1L << 32) + 1));
+        rand.setSeed(10);
+        test(true);
+        test(false);
+    }
+
+    private void test(boolean random) {
+        int len = 2000;
+        long[] x = new long[len];
+        HashSet<Long> expected = new HashSet<>();
+        LongHashSet set = new LongHashSet();
+        for (int i = 0; i < len; i++) {
+            long key = random ? rand.nextLong() : i * 2;
+            x[i] = key;
+            expected.add(key);
+            set.add(key);
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < len; i++) {
+            assertTrue(set.contains(x[i]));
+            long other = random ? rand.nextLong() : i * 2 + 1;
+            assertEquals(expected.contains(other), set.contains(other));
+        }
+    }
+}
@@ -95,6 +95,7 @@ public class TestTools extends TestDb {
         org.h2.Driver.load();
         testSimpleResultSet();
         testTcpServerWithoutPort();
+        testTcpServerVirtualThreads();
         testConsole();
         testJdbcDriverUtils();
         testWrongServer();
@@ -132,6 +133,23 @@ public class TestTools extends TestDb {
         s1.stop();
     }
 
+    private void testTcpServerVirtualThreads() throws Exception {
+        Server server = Server.createTcpServer("-tcpVirtualThreads", "-ifNotExists").start();
+        try {
+            // falls back to platform threads on older runtimes, and keeps
+            // accepting after the first connection
+            for (int i = 0; i < 2; i++) {
+                Connection conn = getConnection("jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:", "sa", "sa");
+                ResultSet rs = conn.createStatement().executeQuery("SELECT 1");
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1));
+                conn.close();
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
     private void testConsole() throws Exception {
         String old = System.getProperty(SysProperties.H2_BROWSER);
         GUIConsole c = new GUIConsole();
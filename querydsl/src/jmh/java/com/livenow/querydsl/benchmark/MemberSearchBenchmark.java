@@ -0,0 +1,191 @@
+package com.livenow.querydsl.benchmark;
+
+import com.livenow.querydsl.QuerydslApplication;
+import com.livenow.querydsl.controller.MemberSearchCondition;
+import com.livenow.querydsl.domain.Member;
+import com.livenow.querydsl.domain.Team;
+import com.livenow.querydsl.dto.MemberTeamDto;
+import com.livenow.querydsl.repository.MemberRepository;
+import com.livenow.querydsl.repository.MemberTestRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 회원 검색, 페이징 리포지토리 벤치마크
+ * 인메모리 H2 에 memberCount 명의 회원을 teamCount 개의 팀에 나눠 넣고
+ * 페이지 위치(page)와 조건의 선택도(selectivity)를 바꿔가며 각 메서드를 측정한다.
+ * <p>
+ * 지연시간은 AverageTime, 할당량은 gc 프로파일러(build.gradle 의 profilers)로 본다.
+ * 호출당 SQL 수는 Hibernate Statistics 로 세어 SqlCounter 의 statements / calls 로 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberSearchBenchmark {
+
+    @Param({"10000"})
+    private int memberCount;
+
+    @Param({"10"})
+    private int teamCount;
+
+    /**
+     * 페이지 위치 (offset = page * size)
+     */
+    @Param({"0", "10", "100"})
+    private int page;
+
+    /**
+     * all: 조건 없음, team: 팀 하나, narrow: 팀 하나 + 나이 10살 구간
+     */
+    @Param({"all", "team", "narrow"})
+    private String selectivity;
+
+    private static final int PAGE_SIZE = 20;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private MemberTestRepository memberTestRepository;
+    private Statistics statistics;
+
+    private MemberSearchCondition condition;
+    private Pageable pageable;
+
+    /**
+     * 호출 수와 그 동안 실행된 SQL 수
+     * JMH 결과의 statements 를 calls 로 나누면 호출당 SQL 수가 된다.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long calls;
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            calls = 0;
+            statements = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=benchmark",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--decorator.datasource.enabled=false",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate.SQL=warn");
+
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+        EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        insertMembers(emf);
+
+        condition = new MemberSearchCondition();
+        if (!"all".equals(selectivity)) {
+            condition.setTeamName("team0");
+        }
+        if ("narrow".equals(selectivity)) {
+            condition.setAgeGoe(10);
+            condition.setAgeLoe(19);
+        }
+        pageable = PageRequest.of(page, PAGE_SIZE);
+    }
+
+    private void insertMembers(EntityManagerFactory emf) {
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        EntityManager em = context.getBean(EntityManager.class);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team[] teams = new Team[teamCount];
+            for (int i = 0; i < teamCount; i++) {
+                teams[i] = new Team("team" + i);
+                em.persist(teams[i]);
+            }
+            for (int i = 0; i < memberCount; i++) {
+                em.persist(new Member("member" + i, i % 100, teams[i % teamCount]));
+                if ((i + 1) % 100 == 0) {
+                    em.flush();
+                    em.clear();
+                    for (Team team : teams) {
+                        team.getMembers().clear();
+                    }
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(SqlCounter counter) {
+        return count(counter, () -> memberRepository.search(condition));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(SqlCounter counter) {
+        return count(counter, () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex(SqlCounter counter) {
+        return count(counter, () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPage(SqlCounter counter) {
+        return count(counter, () -> memberRepository.searchPage(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination2(SqlCounter counter) {
+        return count(counter, () -> memberTestRepository.applyPagination2(condition, pageable));
+    }
+
+    private <T> T count(SqlCounter counter, Supplier<T> call) {
+        long before = statistics.getPrepareStatementCount();
+        T result = call.get();
+        counter.statements += statistics.getPrepareStatementCount() - before;
+        counter.calls++;
+        return result;
+    }
+}
@@ -3,9 +3,12 @@ package com.livenow.querydsl;
 import com.livenow.querydsl.domain.Member;
 import com.livenow.querydsl.domain.Team;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
@@ -21,31 +24,79 @@ public class InitMember {
 
     private final InitMemberService initMemberService;
 
+    @Value("${init.member.count:100}")
+    private int memberCount;
+
     /**
      * 자동적으로 실행하려고
      */
     @PostConstruct
     public void init() {
-        initMemberService.init();;
+        initMemberService.init(memberCount);
     }
 
+    @Slf4j
     @Component
     static class InitMemberService{
         @PersistenceContext
         private EntityManager em;
 
+        private int batchSize;
+
+        /**
+         * 0 이하면 flush 주기를 계산할 때 % 연산이 터지므로 바인딩 시점에 막는다
+         */
+        @Value("${init.member.batch-size:100}")
+        public void setBatchSize(int batchSize) {
+            Assert.isTrue(batchSize >= 1, "init.member.batch-size must be at least 1: " + batchSize);
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * 대량 데이터 적재
+         * team 을 cascade 로 persist 하면 모든 member 가 영속성 컨텍스트와 team.members 에 쌓인다.
+         * member 를 직접 persist 하고 batchSize 마다 flush, clear 해서
+         * hibernate.jdbc.batch_size 단위의 배치 insert 로 내보내고 메모리는 일정하게 유지한다.
+         * id 는 시퀀스 pooled optimizer 가 미리 할당해 두므로 insert 마다 시퀀스를 조회하지 않는다.
+         *
+         * @return 초당 적재한 row 수
+         */
         @Transactional
-        public void init(){
+        public long init(int memberCount){
+            long start = System.nanoTime();
+
             Team teamA = new Team("teamA");
             Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
 
-            for (int i = 0; i < 100; i++) {
+            for (int i = 0; i < memberCount; i++) {
                 Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                new Member("member" + i, i, selectedTeam);
+                em.persist(new Member("member" + i, i, selectedTeam));
+
+                if ((i + 1) % batchSize == 0) {
+                    flushAndClear(teamA, teamB);
+                }
             }
-            em.persist(teamA);
-            em.persist(teamB);
+            flushAndClear(teamA, teamB);
 
+            long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+            long rowsPerSecond = (memberCount + 2) * 1_000_000_000L / elapsedNanos;
+            log.info("init members: {} rows in {} ms ({} rows/sec)",
+                    memberCount + 2, elapsedNanos / 1_000_000, rowsPerSecond);
+            return rowsPerSecond;
+        }
+
+        /**
+         * clear 후에도 teamA, teamB 는 준영속 상태로 member 의 FK 로만 쓰인다.
+         * 연관관계 주인이 아닌 team.members 는 DB 에 영향이 없으니 비워서 member 가 쌓이지 않게 한다.
+         */
+        private void flushAndClear(Team... teams) {
+            em.flush();
+            em.clear();
+            for (Team team : teams) {
+                team.getMembers().clear();
+            }
         }
     }
 
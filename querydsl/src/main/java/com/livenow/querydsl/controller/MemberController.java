@@ -1,16 +1,28 @@
 package com.livenow.querydsl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.livenow.querydsl.dto.MemberTeamDto;
 import com.livenow.querydsl.repository.MemberJpaRepository;
+import com.livenow.querydsl.repository.MemberQueryRepository;
 import com.livenow.querydsl.repository.MemberRepository;
+import com.livenow.querydsl.repository.support.KeysetCursor;
+import com.livenow.querydsl.repository.support.KeysetSlice;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -19,6 +31,9 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberQueryRepository memberQueryRepository;
+    private final ObjectMapper objectMapper;
+    private final SpringDataWebProperties springDataWebProperties;
 
     /**
      * http://localhost:8080/v1/member?teamName=teamB&ageGoe=31&ageLoe=35
@@ -29,6 +44,35 @@ public class MemberController {
         return memberJpaRepository.search(condition);
     }
 
+    /**
+     * v1 의 스트리밍 버전
+     * 결과를 List 로 모으지 않고, 커서에서 읽는 대로 JSON 배열의 원소로 바로 내려보낸다.
+     * 결과가 아무리 많아도 메모리 사용량이 일정하다.
+     * http://localhost:8080/v1/members/stream?teamName=teamB&fetchSize=500
+     */
+    @GetMapping("/v1/members/stream")
+    public void searchMemberV1Stream(MemberSearchCondition condition,
+                                     @RequestParam(defaultValue = "100") int fetchSize,
+                                     HttpServletResponse response) throws IOException {
+        // 응답을 쓰기 시작하면 상태코드를 바꿀 수 없으므로 먼저 검사한다
+        if (fetchSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fetchSize must be greater than zero!");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            memberQueryRepository.searchStream(condition, fetchSize, memberTeamDto -> {
+                try {
+                    generator.writeObject(memberTeamDto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchPageSimple(condition, pageable);
@@ -42,4 +86,26 @@ public class MemberController {
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
         return memberRepository.searchPageComplex(condition, pageable);
     }
+
+    /**
+     * http://localhost:8080/v4/members?size=20 으로 첫 페이지를 받고
+     * 응답의 nextCursor 를 cursor 로 넘기면 다음 페이지를 조회한다.
+     * offset 을 쓰지 않아서 뒤 페이지도 첫 페이지와 같은 비용으로 조회된다.
+     * size 는 Pageable 과 같이 spring.data.web.pageable.max-page-size (기본 2000) 를 넘지 않게 자른다.
+     */
+    @GetMapping("/v4/members")
+    public KeysetSlice<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Size must be greater than zero!");
+        }
+        try {
+            KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        int maxPageSize = springDataWebProperties.getPageable().getMaxPageSize();
+        return memberRepository.searchSlice(condition, cursor, Math.min(size, maxPageSize));
+    }
 }
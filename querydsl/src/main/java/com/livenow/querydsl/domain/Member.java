@@ -10,7 +10,13 @@ import javax.persistence.*;
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
-    @Id @GeneratedValue
+    /**
+     * 시퀀스를 allocationSize 만큼 한번에 올려두고(pooled optimizer) 메모리에서 id 를 할당한다.
+     * 매 insert 마다 시퀀스를 조회하지 않아서 JDBC 배치 insert 가 가능해진다.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 100)
     @Column(name =  "member_id")
     private Long id;
 
@@ -5,11 +5,16 @@ import com.livenow.querydsl.dto.MemberTeamDto;
 import com.livenow.querydsl.dto.QMemberTeamDto;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.livenow.querydsl.domain.QMember.member;
 import static com.livenow.querydsl.domain.QTeam.team;
@@ -49,6 +54,52 @@ public class MemberQueryRepository {
                 .fetch();
     }
 
+    /**
+     * search 의 스트리밍 버전
+     * fetch() 는 결과를 전부 List 에 담기 때문에 조건이 넓으면 힙을 많이 쓴다.
+     * querydsl 4.3.1 의 iterate() 도 내부적으로 getResultList().iterator() 라서 결과를 전부 메모리에 올린다.
+     * 그래서 하이버네이트 Query 로 꺼내서 forward-only 커서(ScrollableResults)로 한 row 씩 읽는다.
+     * DTO 로 조회하기 때문에 영속성 컨텍스트에도 쌓이지 않는다.
+     * 커서가 열려있는 동안 커넥션이 필요하므로 트랜잭션 안에서 consumer 를 호출한다.
+     *
+     * @param fetchSize JDBC 드라이버가 한번에 가져올 row 수
+     */
+    @Transactional(readOnly = true)
+    public void searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer) {
+        Query<?> query = queryFactory
+                .select(member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .createQuery()
+                .unwrap(Query.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+        // scroll() 에는 querydsl 이 등록한 ResultTransformer 가 적용되지 않아서 row 가 컬럼 값 배열로 나온다
+        // 그래서 QMemberTeamDto 대신 컬럼을 조회하고 DTO 는 직접 만든다
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                Object[] row = results.get();
+                consumer.accept(new MemberTeamDto(
+                        (Long) row[0],
+                        (String) row[1],
+                        (Integer) row[2],
+                        (Long) row[3],
+                        (String) row[4]));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
     /**
      * queryDsl 의 BooleanExpression이니 헷갈리지 말기
      */
@@ -2,6 +2,7 @@ package com.livenow.querydsl.repository;
 
 import com.livenow.querydsl.controller.MemberSearchCondition;
 import com.livenow.querydsl.dto.MemberTeamDto;
+import com.livenow.querydsl.repository.support.KeysetSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,5 +22,11 @@ public interface MemberRepositoryCustom {
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable);
 
+    /**
+     * keyset(seek) 페이징
+     * member.id 를 기준으로 cursor 이후의 데이터만 조회한다.
+     */
+    KeysetSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size);
+
 
     }
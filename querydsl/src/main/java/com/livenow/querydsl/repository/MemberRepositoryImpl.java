@@ -4,6 +4,9 @@ import com.livenow.querydsl.controller.MemberSearchCondition;
 import com.livenow.querydsl.domain.Member;
 import com.livenow.querydsl.dto.MemberTeamDto;
 import com.livenow.querydsl.dto.QMemberTeamDto;
+import com.livenow.querydsl.repository.support.CountQueryCache;
+import com.livenow.querydsl.repository.support.KeysetCursor;
+import com.livenow.querydsl.repository.support.KeysetSlice;
 import com.querydsl.core.QueryResults;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -12,6 +15,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
@@ -23,28 +27,23 @@ import static com.livenow.querydsl.domain.QTeam.team;
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final JPAQueryFactory queryFactory;
+    private final CountQueryCache countQueryCache;
+    private final MemberSearchQueryTemplates searchQueryTemplates;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, CountQueryCache countQueryCache,
+                                MemberSearchQueryTemplates searchQueryTemplates) {
         this.queryFactory = new JPAQueryFactory(em);
+        this.countQueryCache = countQueryCache;
+        this.searchQueryTemplates = searchQueryTemplates;
     }
 
+    /**
+     * 조건 조합별로 미리 만들어둔 JPQL 에 파라미터만 바인딩해서 조회한다.
+     * 요청마다 표현식 트리를 만들고 직렬화하는 비용이 없다.
+     */
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        return searchQueryTemplates.search(condition);
     }
 
     /**
@@ -88,32 +87,20 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
      */
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+        List<MemberTeamDto> content = searchQueryTemplates.search(condition,
+                pageable.getOffset(), pageable.getPageSize());
 
-        long total = queryFactory
+        /**
+         * 같은 조건이면 캐시된 카운트를 사용한다.
+         * Member, Team 이 변경되면 캐시는 무효화된다.
+         */
+        long total = countQueryCache.fetchCount(queryFactory
                 .selectFrom(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetchCount();
+                        ageLoe(condition.getAgeLoe())));
         return new PageImpl<>(content, pageable, total);
 
     }
@@ -127,6 +114,28 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
      */
     @Override
     public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = searchQueryTemplates.search(condition,
+                pageable.getOffset(), pageable.getPageSize());
+
+        JPAQuery<Member> countQuery = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> countQueryCache.fetchCount(countQuery));
+    }
+
+    /**
+     * keyset(seek) 페이징
+     * offset 대신 마지막으로 읽은 member.id 이후만 조회하기 때문에 뒤 페이지도 첫 페이지와 비용이 같다.
+     * size + 1 개를 조회해서 다음 페이지 여부를 판단하므로 카운트 쿼리가 필요없다.
+     */
+    @Override
+    public KeysetSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        Assert.isTrue(size > 0, "Size must be greater than zero!");
         List<MemberTeamDto> content = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -137,23 +146,16 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                 ))
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
+                .where(memberIdGt(KeysetCursor.decode(cursor)),
+                        usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
+                .orderBy(member.id.asc())
+                .limit(size + 1L)
                 .fetch();
 
-        JPAQuery<Member> countQuery = queryFactory
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-
-        return PageableExecutionUtils.getPage(content, pageable, () -> countQuery.fetchCount());
+        return KeysetSlice.of(content, size, MemberTeamDto::getMemberId);
     }
 
     /**
@@ -197,6 +199,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return ageLoe != null ? member.age.loe(ageLoe) : null;
     }
 
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
+    }
+
     /**
      * 리포지토리 지원 - QuerydslRepositorySupport
      * QuerydslRepositorySupport
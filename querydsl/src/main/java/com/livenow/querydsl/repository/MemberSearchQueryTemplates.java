@@ -0,0 +1,170 @@
+package com.livenow.querydsl.repository;
+
+import com.livenow.querydsl.controller.MemberSearchCondition;
+import com.livenow.querydsl.dto.MemberTeamDto;
+import com.livenow.querydsl.dto.QMemberTeamDto;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.livenow.querydsl.domain.QMember.member;
+import static com.livenow.querydsl.domain.QTeam.team;
+
+/**
+ * MemberSearchCondition 동적 쿼리의 JPQL 템플릿
+ * usernameEq() 같은 메서드로 동적 쿼리를 만들면 요청마다 Querydsl 표현식 트리를 새로 만들고
+ * JPQL 문자열로 다시 직렬화한다.
+ * 그런데 조건 값이 아니라 "어떤 필드가 null 이 아닌지" 에 따라서만 JPQL 이 달라지므로
+ * 4개 필드의 조합 16가지를 Param 으로 미리 직렬화해 두고, 요청마다 파라미터만 바인딩한다.
+ * Param 은 ?1, ?2 처럼 위치 파라미터로 직렬화되므로 조합마다 각 Param 의 위치를 함께 기억한다.
+ * JPQL 문자열이 항상 같으니 Hibernate 의 쿼리 플랜 캐시도 그대로 재사용된다.
+ */
+@Component
+public class MemberSearchQueryTemplates {
+
+    private static final int HAS_USERNAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName")
+    );
+
+    private static final Param<?>[] PARAMS = {USERNAME, TEAM_NAME, AGE_GOE, AGE_LOE};
+
+    private final EntityManager em;
+    private final Template[] templates = new Template[16];
+
+    public MemberSearchQueryTemplates(EntityManager em) {
+        this.em = em;
+        for (int mask = 0; mask < templates.length; mask++) {
+            templates[mask] = render(mask);
+        }
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return search(condition, 0, -1);
+    }
+
+    /**
+     * @param limit 0 보다 작으면 제한하지 않는다.
+     */
+    @SuppressWarnings("unchecked")
+    public List<MemberTeamDto> search(MemberSearchCondition condition, long offset, int limit) {
+        Template template = templates[mask(condition)];
+        Query query = em.createQuery(template.jpql);
+        Object[] values = {condition.getUsername(), condition.getTeamName(),
+                condition.getAgeGoe(), condition.getAgeLoe()};
+        for (int i = 0; i < values.length; i++) {
+            if (template.positions[i] > 0) {
+                query.setParameter(template.positions[i], values[i]);
+            }
+        }
+        if (offset > 0) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+
+        List<Object[]> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(PROJECTION.newInstance(row));
+        }
+        return result;
+    }
+
+    String getTemplate(MemberSearchCondition condition) {
+        return templates[mask(condition)].jpql;
+    }
+
+    /**
+     * MemberRepositoryImpl 의 usernameEq(), teamNameEq() ... 와 같은 기준으로 null 여부를 판단한다.
+     */
+    private static int mask(MemberSearchCondition condition) {
+        int mask = 0;
+        if (StringUtils.hasText(condition.getUsername())) {
+            mask |= HAS_USERNAME;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            mask |= HAS_TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            mask |= HAS_AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            mask |= HAS_AGE_LOE;
+        }
+        return mask;
+    }
+
+    /**
+     * 하이버네이트를 사용하므로 JPAQueryFactory 와 같은 HQLTemplates 로 직렬화한다.
+     */
+    private static Template render(int mask) {
+        JPAQuery<MemberTeamDto> query = new JPAQuery<Void>()
+                .select(PROJECTION)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(mask), teamNameEq(mask), ageGoe(mask), ageLoe(mask));
+
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(query.getMetadata(), false, null);
+
+        int[] positions = new int[PARAMS.length];
+        for (int i = 0; i < PARAMS.length; i++) {
+            String label = serializer.getConstantToAllLabels().get(PARAMS[i]);
+            positions[i] = label != null ? Integer.parseInt(label) : 0;
+        }
+        return new Template(serializer.toString(), positions);
+    }
+
+    private static BooleanExpression usernameEq(int mask) {
+        return (mask & HAS_USERNAME) != 0 ? member.username.eq(USERNAME) : null;
+    }
+
+    private static BooleanExpression teamNameEq(int mask) {
+        return (mask & HAS_TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME) : null;
+    }
+
+    private static BooleanExpression ageGoe(int mask) {
+        return (mask & HAS_AGE_GOE) != 0 ? member.age.goe(AGE_GOE) : null;
+    }
+
+    private static BooleanExpression ageLoe(int mask) {
+        return (mask & HAS_AGE_LOE) != 0 ? member.age.loe(AGE_LOE) : null;
+    }
+
+    private static class Template {
+        private final String jpql;
+        /**
+         * PARAMS 순서대로 JPQL 상의 위치, 조건에 없으면 0
+         */
+        private final int[] positions;
+
+        private Template(String jpql, int[] positions) {
+            this.jpql = jpql;
+            this.positions = positions;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.livenow.querydsl.repository;
 import com.livenow.querydsl.controller.MemberSearchCondition;
 import com.livenow.querydsl.domain.Member;
 import com.livenow.querydsl.domain.QMember;
+import com.livenow.querydsl.repository.support.KeysetSlice;
 import com.livenow.querydsl.repository.support.Querydsl4RepositorySupport;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -56,6 +57,7 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
         return applyPagination(pageable, query ->
                 query.selectFrom(member)
+                        .leftJoin(member.team, team)
                         .where(usernameEq(condition.getUsername()),
                                 teamNameEq(condition.getTeamName()),
                                 ageGoe(condition.getAgeGoe()),
@@ -70,6 +72,7 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
         return applyPagination(pageable, contentQuery ->
                         contentQuery.selectFrom(member)
+                                .leftJoin(member.team, team)
                                 .where(usernameEq(condition.getUsername()),
                                         teamNameEq(condition.getTeamName()),
                                         ageGoe(condition.getAgeGoe()),
@@ -86,6 +89,21 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         );
     }
 
+    /**
+     * 이건 keyset(seek) 페이징에서 사용하는것
+     */
+    public KeysetSlice<Member> applyKeysetPagination(MemberSearchCondition condition, String cursor, int size) {
+        return applyKeysetPagination(cursor, size, member.id, Member::getId, query ->
+                query.selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())
+                        )
+        );
+    }
+
     private BooleanExpression usernameEq(String username) {
         return StringUtils.hasText(username) ? member.username.eq(username) : null;
     }
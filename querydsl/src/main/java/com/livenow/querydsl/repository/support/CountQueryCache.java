@@ -0,0 +1,276 @@
+package com.livenow.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.EqualsAndHashCode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 카운트 쿼리 결과 캐시
+ * 같은 검색 조건으로 페이지만 넘기는 경우 매번 전체 카운트를 다시 구할 필요가 없다.
+ * <p>
+ * 키는 카운트 쿼리의 JPQL 과 바인딩 되는 값(MemberSearchCondition 의 값들)이고,
+ * 쿼리가 참조하는 엔티티(from, join 대상)를 함께 기록해 둔다.
+ * flush 시점에 Member, Team 등이 insert/update/delete 되면 해당 엔티티를 참조하는 엔트리를 지운다.
+ * 트랜잭션 커밋 이후에도 한번 더 지워서, flush 와 커밋 사이에 다시 채워진 값이 남지 않게 한다.
+ * <p>
+ * 캐시에는 커밋된 데이터의 카운트만 담는다.
+ * flush 는 됐지만 커밋되지 않은 변경은 그 트랜잭션에서만 보이기 때문에, 이 카운트를 담으면 다른 트랜잭션이 잘못된 값을 읽게 된다.
+ * 그래서 트랜잭션마다 flush 된 엔티티 타입을 기록해 두고(TransactionSynchronization 으로 트랜잭션이 끝나면 정리),
+ * 쿼리가 참조하는 엔티티에 커밋되지 않은 변경이 있거나 아직 flush 되지 않은 변경이 있으면 캐시를 읽지도 담지도 않는다.
+ * <p>
+ * 주의: 벌크 연산(update, delete 의 execute())은 영속성 컨텍스트를 거치지 않기 때문에
+ * 이벤트가 발생하지 않는다. 벌크 연산 후에는 invalidateAll() 을 호출해야 한다.
+ */
+@Component
+public class CountQueryCache implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final int MAX_ENTRIES = 1000;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<CountKey, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CountQueryCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /**
+     * 캐시에 있으면 꺼내고, 없으면 fetchCount() 를 실행해서 담는다.
+     * 카운트를 구하는 동안 무효화가 일어났거나, 카운트에 커밋되지 않은 변경이 보인다면 결과를 담지 않는다.
+     */
+    public long fetchCount(JPAQuery<?> countQuery) {
+        QueryMetadata metadata = countQuery.getMetadata();
+        Set<Class<?>> entityTypes = entityTypes(metadata);
+        if (hasUncommittedChanges(entityTypes)) {
+            return countQuery.fetchCount();
+        }
+        CountKey key = CountKey.of(metadata);
+        Entry entry = cache.get(key);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.count;
+        }
+        missCount.incrementAndGet();
+
+        long startVersion = version.get();
+        long count = countQuery.fetchCount();
+        //카운트 쿼리 전에 auto flush 가 일어났을 수 있다
+        if (hasUncommittedChanges(entityTypes)) {
+            return count;
+        }
+        synchronized (this) {
+            if (version.get() == startVersion) {
+                if (cache.size() >= MAX_ENTRIES) {
+                    cache.clear();
+                }
+                cache.put(key, new Entry(count, entityTypes));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 현재 트랜잭션에 entityTypes 에 대한 flush 됐지만 커밋되지 않은 변경이나, 아직 flush 되지 않은 변경이 있는지
+     */
+    private boolean hasUncommittedChanges(Set<Class<?>> entityTypes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        Set<Class<?>> flushedTypes = flushedTypes(false);
+        if (flushedTypes != null && !Collections.disjoint(flushedTypes, entityTypes)) {
+            return true;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        //flush 되지 않은 변경은 어떤 엔티티인지 알려면 flush 와 같은 dirty checking 이 필요해서 타입을 구분하지 않는다
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        return holder != null && holder.getEntityManager().unwrap(Session.class).isDirty();
+    }
+
+    /**
+     * 현재 트랜잭션에서 flush 된 엔티티 타입들, 트랜잭션 리소스로 바인딩 되어 트랜잭션이 끝나면 정리된다.
+     *
+     * @param create 없으면 만들지 여부
+     * @return 트랜잭션이 없거나, create 가 false 이고 아직 flush 된 변경이 없으면 null
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Class<?>> flushedTypes(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Set<Class<?>> types = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+        if (types == null && create) {
+            Set<Class<?>> newTypes = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, newTypes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(CountQueryCache.this);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(CountQueryCache.this, newTypes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CountQueryCache.this);
+                }
+            });
+            types = newTypes;
+        }
+        return types;
+    }
+
+    private void flushed(Class<?> entityType) {
+        Set<Class<?>> types = flushedTypes(true);
+        if (types != null) {
+            types.add(entityType);
+        }
+        invalidate(entityType);
+    }
+
+    public synchronized void invalidate(Class<?> entityType) {
+        version.incrementAndGet();
+        cache.values().removeIf(entry -> entry.entityTypes.contains(entityType));
+    }
+
+    public synchronized void invalidateAll() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        flushed(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        invalidate(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        flushed(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        invalidate(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        flushed(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        invalidate(event.getPersister().getMappedClass());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return true;
+    }
+
+    private static Set<Class<?>> entityTypes(QueryMetadata metadata) {
+        Set<Class<?>> types = new HashSet<>();
+        for (JoinExpression join : metadata.getJoins()) {
+            types.add(join.getTarget().getType());
+        }
+        return Collections.unmodifiableSet(types);
+    }
+
+    private static class Entry {
+        private final long count;
+        private final Set<Class<?>> entityTypes;
+
+        private Entry(long count, Set<Class<?>> entityTypes) {
+            this.count = count;
+            this.entityTypes = entityTypes;
+        }
+    }
+
+    /**
+     * 상수는 ?1, ?2 처럼 라벨로 치환되므로 값이 달라도 JPQL 은 같다.
+     * 라벨과 값을 함께 키로 써서 조건 값이 다르면 다른 엔트리가 되게 한다.
+     */
+    @EqualsAndHashCode
+    private static class CountKey {
+        private final String jpql;
+        private final Map<String, Object> bindings;
+
+        private CountKey(String jpql, Map<String, Object> bindings) {
+            this.jpql = jpql;
+            this.bindings = bindings;
+        }
+
+        private static CountKey of(QueryMetadata metadata) {
+            JPQLSerializer serializer = new JPQLSerializer(JPQLTemplates.DEFAULT);
+            serializer.serialize(metadata, true, null);
+            Map<String, Object> bindings = new TreeMap<>();
+            serializer.getConstantToAllLabels().forEach((value, label) -> bindings.put(label, value));
+            return new CountKey(serializer.toString(), bindings);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.livenow.querydsl.repository.support;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징의 continuation token
+ * 마지막으로 읽은 정렬 키를 클라이언트가 해석하지 못하도록 Base64(URL safe)로 감싼다.
+ * 토큰이 없으면 첫 페이지로 본다.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class KeysetCursor {
+
+    public static String encode(Long lastKey) {
+        if (lastKey == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            byte[] decoded = Base64.getUrlDecoder().decode(cursor);
+            return Long.valueOf(new String(decoded, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 cursor 입니다: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.livenow.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * keyset(seek) 페이징 결과
+ * offset 페이징과 달리 전체 카운트를 구하지 않고, 다음 페이지가 있는지와
+ * 다음 페이지를 요청할 때 넘겨줄 cursor 만 가지고 있다.
+ */
+@Getter
+@ToString(of = {"size", "hasNext", "nextCursor"})
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public KeysetSlice(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = Collections.unmodifiableList(content);
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * size + 1 개를 조회한 결과를 받아서
+     * 한 개가 더 있으면 다음 페이지가 있는 것으로 보고 잘라낸다.
+     */
+    public static <T> KeysetSlice<T> of(List<T> fetched, int size, Function<T, Long> keyExtractor) {
+        Assert.isTrue(size > 0, "Size must be greater than zero!");
+        boolean hasNext = fetched.size() > size;
+        List<T> content = hasNext ? fetched.subList(0, size) : fetched;
+        String nextCursor = hasNext ? KeysetCursor.encode(keyExtractor.apply(content.get(size - 1))) : null;
+        return new KeysetSlice<>(content, size, hasNext, nextCursor);
+    }
+}
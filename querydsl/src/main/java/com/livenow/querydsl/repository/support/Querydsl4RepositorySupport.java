@@ -3,6 +3,7 @@ package com.livenow.querydsl.repository.support;
 
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
@@ -47,6 +48,7 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private CountQueryCache countQueryCache;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -71,11 +73,20 @@ public abstract class Querydsl4RepositorySupport {
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    /**
+     * 같은 조건의 카운트 쿼리를 반복하지 않기 위해 사용
+     */
+    @Autowired
+    public void setCountQueryCache(CountQueryCache countQueryCache) {
+        this.countQueryCache = countQueryCache;
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(countQueryCache, "CountQueryCache must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -104,7 +115,7 @@ public abstract class Querydsl4RepositorySupport {
         List<T> content = getQuerydsl().applyPagination(pageable,
                 jpaQuery).fetch();
         return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+                () -> countQueryCache.fetchCount(jpaQuery));
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
@@ -115,6 +126,33 @@ public abstract class Querydsl4RepositorySupport {
                 jpaContentQuery).fetch();
         JPAQuery countResult = countQuery.apply(getQueryFactory());
         return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+                () -> countQueryCache.fetchCount(countResult));
+    }
+
+    /**
+     * keyset(seek) 페이징
+     * offset 은 앞의 row 를 모두 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+     * 마지막으로 읽은 키보다 큰 것만 키 순서로 size + 1 개 조회하므로 몇 번째 페이지든 비용이 같고,
+     * 카운트 쿼리도 나가지 않는다.
+     *
+     * @param cursor       이전 결과의 nextCursor, 첫 페이지면 null
+     * @param size         페이지 크기, 1 이상
+     * @param keyPath      정렬 및 seek 에 사용할 유일한 키 (예: member.id)
+     * @param keyExtractor 결과에서 키를 꺼내는 함수
+     */
+    protected <T> KeysetSlice<T> applyKeysetPagination(String cursor, int size,
+                                                       NumberPath<Long> keyPath, Function<T, Long> keyExtractor,
+                                                       Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        Assert.isTrue(size > 0, "Size must be greater than zero!");
+        JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+        Long lastKey = KeysetCursor.decode(cursor);
+        if (lastKey != null) {
+            jpaQuery.where(keyPath.gt(lastKey));
+        }
+        List<T> content = jpaQuery
+                .orderBy(keyPath.asc())
+                .limit(size + 1L)
+                .fetch();
+        return KeysetSlice.of(content, size, keyExtractor);
     }
 }
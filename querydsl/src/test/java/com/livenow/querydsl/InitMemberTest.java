@@ -0,0 +1,41 @@
+package com.livenow.querydsl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class InitMemberTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    InitMember.InitMemberService initMemberService;
+
+    @Test
+    public void bulkInit() {
+        long rowsPerSecond = initMemberService.init(1050);
+
+        assertThat(rowsPerSecond).isPositive();
+        assertThat(em.createQuery("select count(m) from Member m", Long.class).getSingleResult()).isEqualTo(1050L);
+        assertThat(em.createQuery("select count(m) from Member m where m.team.name = 'teamB'", Long.class)
+                .getSingleResult()).isEqualTo(525L);
+    }
+
+    @Test
+    public void batchSizeMustBePositive() {
+        InitMember.InitMemberService service = new InitMember.InitMemberService();
+
+        assertThatThrownBy(() -> service.setBatchSize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.setBatchSize(-1)).isInstanceOf(IllegalArgumentException.class);
+        service.setBatchSize(1);
+    }
+}
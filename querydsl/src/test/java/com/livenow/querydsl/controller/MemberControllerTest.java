@@ -0,0 +1,73 @@
+package com.livenow.querydsl.controller;
+
+import com.livenow.querydsl.domain.Member;
+import com.livenow.querydsl.domain.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void searchMemberV1Stream() throws Exception {
+        Team teamA = Team.builder().name("teamA").build();
+        em.persist(teamA);
+        em.persist(Member.builder().username("member1").age(10).team(teamA).build());
+        em.persist(Member.builder().username("member2").age(20).team(teamA).build());
+        em.flush();
+
+        mockMvc.perform(get("/v1/members/stream").param("teamName", "teamA").param("fetchSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].teamName").value("teamA"));
+    }
+
+    @Test
+    public void searchMemberV1StreamRejectsInvalidFetchSize() throws Exception {
+        mockMvc.perform(get("/v1/members/stream").param("fetchSize", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void searchMemberV4CapsSize() throws Exception {
+        Team teamA = Team.builder().name("teamA").build();
+        em.persist(teamA);
+        for (int i = 0; i < 3; i++) {
+            em.persist(Member.builder().username("member" + i).age(i).team(teamA).build());
+        }
+        em.flush();
+
+        mockMvc.perform(get("/v4/members").param("teamName", "teamA")
+                .param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(2000))
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    public void searchMemberV4RejectsInvalidSizeAndCursor() throws Exception {
+        mockMvc.perform(get("/v4/members").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+}
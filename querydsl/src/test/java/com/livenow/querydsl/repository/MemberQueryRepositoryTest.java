@@ -0,0 +1,110 @@
+package com.livenow.querydsl.repository;
+
+import com.livenow.querydsl.controller.MemberSearchCondition;
+import com.livenow.querydsl.domain.Member;
+import com.livenow.querydsl.domain.Team;
+import com.livenow.querydsl.dto.MemberTeamDto;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberQueryRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberQueryRepository memberQueryRepository;
+
+    @Autowired
+    ResultSetNextCounter resultSetNextCounter;
+
+    /**
+     * p6spy 가 JdbcEventListener 빈을 등록해주기 때문에 ResultSet.next() 호출 횟수를 셀 수 있다
+     */
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ResultSetNextCounter resultSetNextCounter() {
+            return new ResultSetNextCounter();
+        }
+    }
+
+    static class ResultSetNextCounter extends JdbcEventListener {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos,
+                                         boolean hasNext, SQLException e) {
+            count.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void searchStream() {
+        Team teamA = Team.builder().name("teamA").build();
+        Team teamB = Team.builder().name("teamB").build();
+
+        Member member1 = Member.builder().username("member1").age(10).team(teamA).build();
+        Member member2 = Member.builder().username("member2").age(20).team(teamA).build();
+        Member member3 = Member.builder().username("member3").age(30).team(teamB).build();
+        Member member4 = Member.builder().username("member4").age(40).team(teamB).build();
+
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        memberQueryRepository.searchStream(condition, 1, result::add);
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+        assertThat(result).isEqualTo(memberQueryRepository.search(condition));
+    }
+
+    @Test
+    public void searchStreamDoesNotLoadAllRows() {
+        Team teamA = Team.builder().name("teamA").build();
+        for (int i = 0; i < 10; i++) {
+            Member.builder().username("member" + i).age(i).team(teamA).build();
+        }
+        em.persist(teamA);
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //consumer 가 row 를 받을 때마다 그때까지 ResultSet.next() 가 몇번 호출됐는지 기록
+        resultSetNextCounter.count.set(0);
+        List<Integer> nextCounts = new ArrayList<>();
+        memberQueryRepository.searchStream(condition, 1, dto -> nextCounts.add(resultSetNextCounter.count.get()));
+
+        //결과를 전부 읽은 다음 넘겨준다면 첫 row 를 받을 때 이미 next() 가 11번 호출되어 있다
+        assertThat(nextCounts).hasSize(10);
+        assertThat(nextCounts.get(0)).isLessThan(10);
+        assertThat(nextCounts).isSorted().doesNotHaveDuplicates();
+    }
+}
@@ -4,17 +4,24 @@ import com.livenow.querydsl.controller.MemberSearchCondition;
 import com.livenow.querydsl.domain.Member;
 import com.livenow.querydsl.domain.Team;
 import com.livenow.querydsl.dto.MemberTeamDto;
+import com.livenow.querydsl.repository.support.CountQueryCache;
+import com.livenow.querydsl.repository.support.KeysetSlice;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -26,6 +33,12 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    CountQueryCache countQueryCache;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @Test
     public void basicTest() {
         Member member = new Member("member1", 10);
@@ -108,4 +121,98 @@ class MemberRepositoryTest {
         assertThat(result.getSize()).isEqualTo(3);
         assertThat(result.getContent()).extracting("username").containsExactly("member1","member2","member3");
     }
+
+    @Test
+    public void searchSlice() {
+        Team teamA = Team.builder().name("teamA").build();
+        Team teamB = Team.builder().name("teamB").build();
+
+        Member member1 = Member.builder().username("member1").age(10).team(teamA).build();
+        Member member2 = Member.builder().username("member2").age(20).team(teamA).build();
+        Member member3 = Member.builder().username("member3").age(30).team(teamB).build();
+        Member member4 = Member.builder().username("member4").age(40).team(teamB).build();
+
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        KeysetSlice<MemberTeamDto> first = memberRepository.searchSlice(condition, null, 2);
+
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member3");
+
+        KeysetSlice<MemberTeamDto> second = memberRepository.searchSlice(condition, first.getNextCursor(), 2);
+
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+    }
+
+    @Test
+    public void searchSliceRejectsInvalidSize() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, null, 0))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchSlice(condition, null, -1))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchPageComplexCountCache() {
+        /**
+         * 캐시에는 커밋된 데이터의 카운트만 담기 때문에 테스트 데이터를 별도 트랜잭션에서 커밋한다.
+         */
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long teamId = requiresNew.execute(status -> {
+            Team cacheTeam = Team.builder().name("cacheTeam").build();
+            Member.builder().username("member1").age(10).team(cacheTeam).build();
+            Member.builder().username("member2").age(20).team(cacheTeam).build();
+            em.persist(cacheTeam);
+            return cacheTeam.getId();
+        });
+
+        try {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("cacheTeam");
+            PageRequest pageRequest = PageRequest.of(0, 1);
+
+            long hitCount = countQueryCache.getHitCount();
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(2);
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest.next()).getTotalElements()).isEqualTo(2);
+            assertThat(countQueryCache.getHitCount()).isEqualTo(hitCount + 1);
+
+            /**
+             * flush 시점에 Member 가 insert 되면 캐시가 무효화 되고,
+             * 커밋되지 않은 member5 가 보이는 카운트는 캐시에 담기지도, 캐시에서 읽히지도 않는다.
+             */
+            Team findTeam = em.find(Team.class, teamId);
+            em.persist(Member.builder().username("member5").age(50).team(findTeam).build());
+            em.flush();
+
+            int size = countQueryCache.size();
+            hitCount = countQueryCache.getHitCount();
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(3);
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest.next()).getTotalElements()).isEqualTo(3);
+            assertThat(countQueryCache.getHitCount()).isEqualTo(hitCount);
+            assertThat(countQueryCache.size()).isEqualTo(size);
+        } finally {
+            //member5 를 롤백해야 커밋한 데이터를 지울 수 있다
+            TestTransaction.end();
+            requiresNew.execute(status -> {
+                em.remove(em.find(Team.class, teamId));
+                return null;
+            });
+        }
+    }
 }
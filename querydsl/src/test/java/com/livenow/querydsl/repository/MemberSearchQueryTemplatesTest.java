@@ -0,0 +1,75 @@
+package com.livenow.querydsl.repository;
+
+import com.livenow.querydsl.controller.MemberSearchCondition;
+import com.livenow.querydsl.domain.Member;
+import com.livenow.querydsl.domain.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueryTemplatesTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueryTemplates searchQueryTemplates;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Test
+    public void sameResultAsDynamicQuery() {
+        Team teamA = Team.builder().name("teamA").build();
+        Team teamB = Team.builder().name("teamB").build();
+
+        Member member1 = Member.builder().username("member1").age(10).team(teamA).build();
+        Member member2 = Member.builder().username("member2").age(20).team(teamA).build();
+        Member member3 = Member.builder().username("member3").age(30).team(teamB).build();
+        Member member4 = Member.builder().username("member4").age(40).team(teamB).build();
+
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+
+        em.flush();
+        em.clear();
+
+        /**
+         * 16가지 조합을 모두 Querydsl 동적 쿼리 결과와 비교한다.
+         */
+        for (int mask = 0; mask < 16; mask++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((mask & 1) != 0 ? "member3" : null);
+            condition.setTeamName((mask & 2) != 0 ? "teamB" : "");
+            condition.setAgeGoe((mask & 4) != 0 ? 20 : null);
+            condition.setAgeLoe((mask & 8) != 0 ? 35 : null);
+
+            assertThat(searchQueryTemplates.search(condition))
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+        }
+    }
+
+    @Test
+    public void templateIsReused() {
+        MemberSearchCondition condition1 = new MemberSearchCondition();
+        condition1.setTeamName("teamA");
+        condition1.setAgeGoe(10);
+        MemberSearchCondition condition2 = new MemberSearchCondition();
+        condition2.setTeamName("teamB");
+        condition2.setAgeGoe(30);
+
+        assertThat(searchQueryTemplates.getTemplate(condition1)).isSameAs(searchQueryTemplates.getTemplate(condition2));
+        assertThat(searchQueryTemplates.getTemplate(condition1))
+                .contains("team.name = ?", "member1.age >= ?")
+                .doesNotContain("member1.username =", "member1.age <=");
+    }
+}
@@ -0,0 +1,100 @@
+package com.livenow.querydsl.repository;
+
+import com.livenow.querydsl.controller.MemberSearchCondition;
+import com.livenow.querydsl.domain.Member;
+import com.livenow.querydsl.domain.Team;
+import com.livenow.querydsl.repository.support.KeysetCursor;
+import com.livenow.querydsl.repository.support.KeysetSlice;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @Test
+    public void applyKeysetPagination() {
+        Team teamA = Team.builder().name("teamA").build();
+
+        Member member1 = Member.builder().username("member1").age(10).team(teamA).build();
+        Member member2 = Member.builder().username("member2").age(20).team(teamA).build();
+        Member member3 = Member.builder().username("member3").age(30).team(teamA).build();
+        Member member4 = Member.builder().username("member4").age(40).team(teamA).build();
+        Member member5 = Member.builder().username("member5").age(50).team(teamA).build();
+
+        em.persist(teamA);
+
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        KeysetSlice<Member> first = memberTestRepository.applyKeysetPagination(condition, null, 2);
+
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        //cursor 는 마지막으로 읽은 키를 담는다
+        assertThat(KeysetCursor.decode(first.getNextCursor())).isEqualTo(member2.getId());
+
+        KeysetSlice<Member> second = memberTestRepository.applyKeysetPagination(condition, first.getNextCursor(), 2);
+
+        assertThat(second.isHasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(KeysetCursor.decode(second.getNextCursor())).isEqualTo(member4.getId());
+
+        /**
+         * 마지막 페이지는 다음 페이지도, cursor 도 없다
+         */
+        KeysetSlice<Member> last = memberTestRepository.applyKeysetPagination(condition, second.getNextCursor(), 2);
+
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+        assertThat(last.getContent()).extracting("username").containsExactly("member5");
+    }
+
+    @Test
+    public void applyKeysetPaginationLastPageIsFull() {
+        Team teamA = Team.builder().name("teamA").build();
+
+        Member.builder().username("member1").age(10).team(teamA).build();
+        Member.builder().username("member2").age(20).team(teamA).build();
+
+        em.persist(teamA);
+
+        em.flush();
+        em.clear();
+
+        KeysetSlice<Member> slice = memberTestRepository.applyKeysetPagination(new MemberSearchCondition(), null, 2);
+
+        assertThat(slice.isHasNext()).isFalse();
+        assertThat(slice.getNextCursor()).isNull();
+        assertThat(slice.getContent()).extracting("username").containsExactly("member1", "member2");
+    }
+
+    @Test
+    public void applyKeysetPaginationRejectsInvalidSize() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // @Repository 프록시가 IllegalArgumentException 을 스프링 예외로 변환한다
+        assertThatThrownBy(() -> memberTestRepository.applyKeysetPagination(condition, null, 0))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberTestRepository.applyKeysetPagination(condition, null, -1))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+}